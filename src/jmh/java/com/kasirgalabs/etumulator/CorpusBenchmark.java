@@ -0,0 +1,316 @@
+package com.kasirgalabs.etumulator;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.processor.BaseProcessor;
+import com.kasirgalabs.etumulator.processor.BaseProcessorUnits;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import com.kasirgalabs.etumulator.processor.Snapshot;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the standard workload corpus and reports, for every program, the instructions executed,
+ * the wall time, the emulated MIPS and the bytes allocated per instruction. The programs are in
+ * <code>src/jmh/resources/corpus</code>; a program may have a <code>.in</code> file which is
+ * fed to its UART.
+ * <p>
+ * Every program is measured alone in several forked JVMs, after a warmup of several seconds. The
+ * JIT compiler does not compile the instruction visitors the same way in every JVM, so the speed
+ * of a fork varies by tens of percent, and single runs vary with the garbage collector and the
+ * load of the machine. The report therefore takes the fastest run of all forks, the speed the
+ * program reliably reaches, and the median allocation of the forks. With <code>--forks 0</code>
+ * the programs are measured in the running JVM only.
+ * <p>
+ * The report can be compared with a baseline written by an earlier run. A program regresses when
+ * its MIPS drop or its allocation per instruction grows by more than the threshold; a different
+ * instruction count means the program no longer behaves the same. Usage:
+ * <pre>
+ * CorpusBenchmark [--baseline &lt;file&gt;] [--save &lt;file&gt;] [--threshold &lt;percent&gt;]
+ *                 [--forks &lt;forks&gt;] [--warmup &lt;seconds&gt;] [--runs &lt;runs&gt;]
+ * </pre>
+ * The default threshold is 25 percent: even the fastest of five forks still varied by up to about
+ * 20 percent between runs of the branch heavy sorting programs. The exit status is 1 if any
+ * program regressed or changed. Baselines are only comparable on the machine they were written
+ * on, with nothing else running.
+ */
+public final class CorpusBenchmark {
+    private static final String[] PROGRAMS = {
+        "sieve", "bubble_sort", "insertion_sort", "matrix_multiply", "string_reverse", "fib",
+        "uart_echo"
+    };
+    private static final String HEADER = "program,instructions,mips,bytes_per_instruction";
+    private static final String CHILD = "--child";
+
+    private CorpusBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path baseline = null;
+        Path save = null;
+        double threshold = 25;
+        int forks = 5;
+        double warmup = 10;
+        int runs = 30;
+        String child = args.length > 1 && CHILD.equals(args[0]) ? args[1] : null;
+        for(int i = child != null ? 2 : 0; i + 1 < args.length; i += 2) {
+            switch(args[i]) {
+                case "--baseline":
+                    baseline = Paths.get(args[i + 1]);
+                    break;
+                case "--save":
+                    save = Paths.get(args[i + 1]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--forks":
+                    forks = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--warmup":
+                    warmup = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if(child != null) {
+            System.out.println(measure(child, warmup, runs).toCSV());
+            return;
+        }
+        List<Measurement> measurements = new ArrayList<>();
+        for(String program : PROGRAMS) {
+            measurements.add(forks == 0 ? measure(program, warmup, runs)
+                    : fork(program, forks, warmup, runs));
+        }
+        Map<String, Measurement> previous = baseline != null && Files.exists(baseline)
+                ? read(baseline) : new LinkedHashMap<>();
+        boolean failed = report(measurements, previous, threshold, System.out);
+        if(save != null) {
+            write(measurements, save);
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Measures a program in the given number of child JVMs and takes the fastest of their
+     * measurements.
+     */
+    static Measurement fork(String program, int forks, double warmup, int runs)
+            throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+                + "java";
+        List<Measurement> samples = new ArrayList<>();
+        for(int i = 0; i < forks; i++) {
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    CorpusBenchmark.class.getName(), CHILD, program, "--warmup",
+                    Double.toString(warmup), "--runs", Integer.toString(runs))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            List<String> lines;
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    process.getInputStream(), StandardCharsets.UTF_8))) {
+                lines = reader.lines().collect(Collectors.toList());
+            }
+            try {
+                if(process.waitFor() != 0) {
+                    throw new IllegalStateException(program + " failed in fork " + (i + 1) + ".");
+                }
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while measuring " + program + ".");
+            }
+            samples.addAll(parse(lines).values());
+        }
+        samples.sort((first, second) -> Double.compare(first.mips, second.mips));
+        Measurement fastest = samples.get(samples.size() - 1);
+        for(Measurement sample : samples) {
+            if(sample.instructions != fastest.instructions) {
+                throw new IllegalStateException(program + " is not deterministic.");
+            }
+        }
+        double[] allocations = samples.stream()
+                .mapToDouble(sample -> sample.bytesPerInstruction).sorted().toArray();
+        return new Measurement(program, fastest.instructions, fastest.nanos, fastest.mips,
+                allocations[allocations.length / 2]);
+    }
+
+    /**
+     * Measures a program in the running JVM. The program runs repeatedly for the warmup time
+     * first, since the processor only reaches its full speed once the JIT compiler is done with
+     * the instruction visitors, which takes seconds.
+     */
+    static Measurement measure(String program, double warmup, int runs) throws IOException {
+        String code = new String(resource(program + ".s"), StandardCharsets.UTF_8);
+        boolean hasInput = CorpusBenchmark.class.getResource("/corpus/" + program + ".in") != null;
+        byte[] input = hasInput ? resource(program + ".in") : new byte[0];
+        ProcessorUnits loaded = new BaseProcessorUnits();
+        loaded.setSeed(0);
+        ExecutableCode executableCode = new Assembler(loaded.getMemory()).assemble(code);
+        Snapshot snapshot = Snapshot.of(loaded);
+        long warmupEnd = System.nanoTime() + (long) (warmup * 1e9);
+        do {
+            run(program, executableCode, snapshot, input);
+        } while(System.nanoTime() < warmupEnd);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long fastest = Long.MAX_VALUE;
+        long allocated = 0;
+        long instructions = 0;
+        for(int run = 0; run < runs; run++) {
+            long bytes = allocatedBytes(threads);
+            RunResult result = run(program, executableCode, snapshot, input);
+            allocated += allocatedBytes(threads) - bytes;
+            fastest = Math.min(fastest, result.getElapsedNanos());
+            instructions = result.getInstructions();
+        }
+        double mips = instructions * 1e3 / fastest;
+        double bytesPerInstruction = allocatedBytes(threads) < 0
+                ? -1 : (double) allocated / runs / instructions;
+        return new Measurement(program, instructions, fastest, mips, bytesPerInstruction);
+    }
+
+    private static RunResult run(String program, ExecutableCode executableCode,
+            Snapshot snapshot, byte[] input) {
+        ProcessorUnits processorUnits = snapshot.fork();
+        processorUnits.setSeed(0);
+        processorUnits.getUART().setInput(new ByteArrayInputStream(input));
+        processorUnits.getUART().setOutput(new ByteArrayOutputStream());
+        RunResult result = new BaseProcessor(processorUnits).run(executableCode, RunLimits.NONE);
+        if(result.getStatus() != RunResult.Status.COMPLETED) {
+            throw new IllegalStateException(program + " did not complete: " + result.getStatus());
+        }
+        return result;
+    }
+
+    static boolean report(List<Measurement> measurements, Map<String, Measurement> baseline,
+            double threshold, PrintStream out) {
+        boolean failed = false;
+        out.printf(Locale.ROOT, "%-16s %12s %10s %8s %10s %10s  %s%n", "program",
+                "instructions", "time ms", "MIPS", "B/instr", "vs base", "verdict");
+        for(Measurement measurement : measurements) {
+            Measurement base = baseline.get(measurement.program);
+            String change = "";
+            String verdict = "";
+            if(base != null) {
+                double speed = (measurement.mips / base.mips - 1) * 100;
+                change = String.format(Locale.ROOT, "%+.1f%%", speed);
+                if(measurement.instructions != base.instructions) {
+                    verdict = "CHANGED (was " + base.instructions + " instructions)";
+                }
+                else if(speed < -threshold) {
+                    verdict = "REGRESSION";
+                }
+                else if(base.bytesPerInstruction >= 0 && measurement.bytesPerInstruction
+                        > base.bytesPerInstruction * (1 + threshold / 100)) {
+                    verdict = "ALLOCATION REGRESSION";
+                }
+                else {
+                    verdict = "ok";
+                }
+                failed |= !"ok".equals(verdict);
+            }
+            out.printf(Locale.ROOT, "%-16s %12d %10.2f %8.2f %10.1f %10s  %s%n",
+                    measurement.program, measurement.instructions, measurement.nanos / 1e6,
+                    measurement.mips, measurement.bytesPerInstruction, change, verdict);
+        }
+        return failed;
+    }
+
+    static Map<String, Measurement> read(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Measurement> parse(List<String> lines) {
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for(String line : lines) {
+            if(line.isEmpty() || line.equals(HEADER)) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            long instructions = Long.parseLong(fields[1]);
+            double mips = Double.parseDouble(fields[2]);
+            measurements.put(fields[0], new Measurement(fields[0], instructions,
+                    (long) (instructions * 1e3 / mips), mips, Double.parseDouble(fields[3])));
+        }
+        return measurements;
+    }
+
+    static void write(List<Measurement> measurements, Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for(Measurement measurement : measurements) {
+            lines.add(measurement.toCSV());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try(InputStream in = CorpusBenchmark.class.getResourceAsStream("/corpus/" + name)) {
+            if(in == null) {
+                throw new IOException("Missing corpus file: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Measurement of a single corpus program.
+     */
+    static final class Measurement {
+        private final String program;
+        private final long instructions;
+        private final long nanos;
+        private final double mips;
+        private final double bytesPerInstruction;
+
+        Measurement(String program, long instructions, long nanos, double mips,
+                double bytesPerInstruction) {
+            this.program = program;
+            this.instructions = instructions;
+            this.nanos = nanos;
+            this.mips = mips;
+            this.bytesPerInstruction = bytesPerInstruction;
+        }
+
+        String toCSV() {
+            return String.format(Locale.ROOT, "%s,%d,%.4f,%.1f", program, instructions, mips,
+                    bytesPerInstruction);
+        }
+    }
+}
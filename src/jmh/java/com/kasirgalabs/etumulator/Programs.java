@@ -0,0 +1,68 @@
+package com.kasirgalabs.etumulator;
+
+/**
+ * Generates the programs measured by the benchmarks.
+ */
+public final class Programs {
+    private static final String[] BODY = {
+        "add r1, r1, #1",
+        "sub r2, r2, r1",
+        "adds r3, r1, r2",
+        "mov r4, #255",
+        "and r5, r4, r1",
+        "orr r6, r5, r2, lsl #2",
+        "cmp r6, r3",
+        "mul r7, r1, r2",
+        "lsr r8, r7, #3",
+        "eor r9, r8, r1"
+    };
+
+    private Programs() {
+    }
+
+    /**
+     * Generates a straight program of the given size which mixes arithmetic, logical, shift and
+     * branch instructions with a label every ten lines.
+     *
+     * @param lines The number of lines.
+     *
+     * @return The code.
+     */
+    public static String generate(int lines) {
+        StringBuilder code = new StringBuilder(lines * 16);
+        for(int i = 0; i < lines; i++) {
+            if(i % 10 == 9) {
+                code.append("label").append(i).append(":\n");
+            }
+            else if(i % 10 == 8 && i + 1 < lines) {
+                code.append("bne label").append(i + 1).append('\n');
+            }
+            else {
+                code.append(BODY[i % BODY.length]).append('\n');
+            }
+        }
+        return code.toString();
+    }
+
+    /**
+     * Generates a loop which runs the given body the given number of times.
+     *
+     * @param iterations The number of iterations.
+     * @param body       The instructions of the loop body. They must not modify r0.
+     *
+     * @return The code.
+     */
+    public static String loop(int iterations, String... body) {
+        StringBuilder code = new StringBuilder();
+        code.append("ldr r0, =").append(iterations).append('\n');
+        code.append("ldr r12, =buffer\n");
+        code.append("loop:\n");
+        for(String line : body) {
+            code.append(line).append('\n');
+        }
+        code.append("subs r0, r0, #1\n");
+        code.append("bne loop\n");
+        code.append("buffer: .asciz \"0123456789abcdef\"\n");
+        return code.toString();
+    }
+}
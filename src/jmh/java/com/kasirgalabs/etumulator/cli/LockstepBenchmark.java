@@ -0,0 +1,72 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares running many test vectors one after another with running them in a single lockstep
+ * pass, both on one thread. The program is a counted loop whose body diverges on the lane
+ * number, so the lanes split in to two groups and merge back on every iteration.
+ * <p>
+ * Usage: {@code LockstepBenchmark [lanes] [iterations] [rounds]}
+ */
+public final class LockstepBenchmark {
+    private static final String PROGRAM = "mov r2, #0\n"
+            + "loop:\n"
+            + "add r2, r2, r1\n"
+            + "cmp r1, #128\n"
+            + "blt small\n"
+            + "sub r2, r2, #1\n"
+            + "small:\n"
+            + "sub r0, r0, #1\n"
+            + "cmp r0, #0\n"
+            + "bne loop\n";
+
+    private LockstepBenchmark() {
+    }
+
+    public static void main(String[] args) throws SyntaxError, LabelError {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        run(lanes, iterations, rounds, System.out);
+    }
+
+    static void run(int lanes, int iterations, int rounds, PrintStream out)
+            throws SyntaxError, LabelError {
+        TestVectorRunner runner = new TestVectorRunner(PROGRAM);
+        List<TestVectorRunner.TestVector> vectors = new ArrayList<>(lanes);
+        for(int i = 0; i < lanes; i++) {
+            Map<String, Integer> registers = new HashMap<>();
+            registers.put("r0", iterations);
+            registers.put("r1", i);
+            vectors.add(new TestVectorRunner.TestVector(registers, new byte[0]));
+        }
+        out.printf(Locale.ROOT, "%d lanes, %d iterations%n", lanes, iterations);
+        for(int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for(TestVectorRunner.TestVector vector : vectors) {
+                runner.run(vector, RunLimits.NONE);
+            }
+            long separate = System.nanoTime() - start;
+            start = System.nanoTime();
+            runner.runLockstep(vectors, RunLimits.NONE);
+            long lockstep = System.nanoTime() - start;
+            out.printf(Locale.ROOT,
+                    "round %d: separate %.0f lanes/s, lockstep %.0f lanes/s (%.2fx)%n", round,
+                    lanesPerSecond(lanes, separate), lanesPerSecond(lanes, lockstep),
+                    (double) separate / lockstep);
+        }
+    }
+
+    private static double lanesPerSecond(int lanes, long nanos) {
+        return lanes * 1e9 / nanos;
+    }
+}
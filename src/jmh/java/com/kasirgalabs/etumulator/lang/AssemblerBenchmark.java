@@ -0,0 +1,65 @@
+package com.kasirgalabs.etumulator.lang;
+
+import com.kasirgalabs.etumulator.Programs;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.processor.Memory;
+import com.kasirgalabs.thumb2.AssemblerParser;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the assembly phases on generated programs of several sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+    @Param({"10", "100", "1000"})
+    private int lines;
+    private String code;
+    private AssemblerParser.ProgContext program;
+    private Assembler assembler;
+    private Linker linker;
+
+    @Setup
+    public void setUp() {
+        code = Programs.generate(lines);
+        assembler = new Assembler(new Memory());
+        program = assembler.parse(code);
+        linker = new Linker();
+    }
+
+    @Benchmark
+    public ExecutableCode assemble() {
+        return assembler.assemble(code);
+    }
+
+    @Benchmark
+    public AssemblerParser.ProgContext parse() {
+        return assembler.parse(code);
+    }
+
+    @Benchmark
+    public AssemblerParser.ProgContext validate() {
+        ConstantValidator.validate(program);
+        return program;
+    }
+
+    @Benchmark
+    public ExecutableCode link() {
+        return linker.link(code, program);
+    }
+}
@@ -0,0 +1,71 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.Programs;
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the execution engines on the same set of lanes: one {@link BaseProcessor} run per
+ * lane against a single {@link LockstepProcessor} pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"1", "16", "256"})
+    private int lanes;
+    private ExecutableCode executableCode;
+    private Snapshot snapshot;
+    private List<ProcessorUnits> units;
+
+    @Setup
+    public void setUp() {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        executableCode = new Assembler(processorUnits.getMemory()).assemble(Programs.loop(100,
+                "add r1, r1, r0", "cmp r1, #128", "blt small", "sub r1, r1, #128", "small:"));
+        snapshot = Snapshot.of(processorUnits);
+    }
+
+    @Setup(Level.Invocation)
+    public void fork() {
+        units = new ArrayList<>(lanes);
+        for(int i = 0; i < lanes; i++) {
+            ProcessorUnits lane = snapshot.fork();
+            lane.getRegisterFile().setValue("r1", i);
+            units.add(lane);
+        }
+    }
+
+    @Benchmark
+    public long separate() {
+        long instructions = 0;
+        for(ProcessorUnits lane : units) {
+            instructions += new BaseProcessor(lane).run(executableCode, RunLimits.NONE)
+                    .getInstructions();
+        }
+        return instructions;
+    }
+
+    @Benchmark
+    public List<RunResult> lockstep() {
+        return new LockstepProcessor(units).run(executableCode, RunLimits.NONE);
+    }
+}
@@ -0,0 +1,85 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.Programs;
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BaseProcessor#run(ExecutableCode, RunLimits)} on loops dominated by a single
+ * instruction class. Besides the time per run, the "instructions" counter reports the executed
+ * instructions per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBenchmark {
+    private static final int ITERATIONS = 1000;
+    @Param({"ARITHMETIC", "BRANCH", "MEMORY", "STACK"})
+    private InstructionClass instructionClass;
+    private ProcessorUnits processorUnits;
+    private Processor processor;
+    private ExecutableCode executableCode;
+
+    @Setup
+    public void setUp() {
+        processorUnits = new BaseProcessorUnits();
+        processor = new BaseProcessor(processorUnits);
+        executableCode = new Assembler(processorUnits.getMemory())
+                .assemble(Programs.loop(ITERATIONS, instructionClass.body));
+    }
+
+    @Benchmark
+    public RunResult run(Counters counters) {
+        RunResult result = processor.run(executableCode, RunLimits.NONE);
+        counters.instructions += result.getInstructions();
+        return result;
+    }
+
+    /**
+     * Instructions executed during an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            instructions = 0;
+        }
+    }
+
+    public enum InstructionClass {
+        ARITHMETIC("add r1, r1, #1", "sub r2, r2, r1", "adds r3, r1, r2", "mul r4, r3, r1",
+                "rsb r5, r4, r2", "adc r6, r5, r1", "sbcs r7, r6, r2", "cmp r7, r1"),
+        BRANCH("b first", "first:", "cmp r1, #0", "beq second", "second:", "bl third",
+                "third:", "bne fourth", "fourth:"),
+        MEMORY("str r1, [r12]", "ldr r2, [r12]", "strb r2, [r12, #1]", "ldrb r3, [r12, #1]",
+                "strh r3, [r12, #2]", "ldrh r4, [r12, #2]", "ldr r5, [r12, #3]"),
+        STACK("push {r1, r2}", "push {r3}", "pop {r3}", "pop {r1, r2}", "push {r4, r5, r6}",
+                "pop {r4, r5, r6}");
+
+        private final String[] body;
+
+        InstructionClass(String... body) {
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Memory} accesses with sequential and random addresses. Every benchmark method
+ * performs {@link #ACCESSES} accesses, so the score is the time of a single access.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+    private static final int ACCESSES = 4096;
+    private Memory memory;
+    private int[] randomAddresses;
+
+    @Setup
+    public void setUp() {
+        memory = new Memory();
+        Random random = new Random(0);
+        randomAddresses = new int[ACCESSES];
+        for(int i = 0; i < ACCESSES; i++) {
+            randomAddresses[i] = random.nextInt(1 << 20) & ~3;
+            memory.set(randomAddresses[i], i, Memory.Size.WORD);
+        }
+        for(int i = 0; i < ACCESSES * 4; i++) {
+            memory.set(i, i, Memory.Size.BYTE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int sequentialByteGet() {
+        int sum = 0;
+        for(int i = 0; i < ACCESSES; i++) {
+            sum += memory.get(i, Memory.Size.BYTE);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void sequentialByteSet() {
+        for(int i = 0; i < ACCESSES; i++) {
+            memory.set(i, i, Memory.Size.BYTE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int sequentialWordGet() {
+        int sum = 0;
+        for(int i = 0; i < ACCESSES; i++) {
+            sum += memory.get(i * 4, Memory.Size.WORD);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void sequentialWordSet() {
+        for(int i = 0; i < ACCESSES; i++) {
+            memory.set(i * 4, i, Memory.Size.WORD);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int randomWordGet() {
+        int sum = 0;
+        for(int address : randomAddresses) {
+            sum += memory.get(address, Memory.Size.WORD);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void randomWordSet() {
+        for(int i = 0; i < ACCESSES; i++) {
+            memory.set(randomAddresses[i], i, Memory.Size.WORD);
+        }
+    }
+}
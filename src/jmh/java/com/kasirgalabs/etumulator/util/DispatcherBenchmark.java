@@ -0,0 +1,49 @@
+package com.kasirgalabs.etumulator.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of a single {@link BaseDispatcher} notification, which every register,
+ * flag and memory write pays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatcherBenchmark {
+    @Param({"0", "1", "8"})
+    private int observers;
+    private Dispatcher dispatcher;
+    private int notifications;
+
+    @Setup
+    public void setUp() {
+        dispatcher = new BaseDispatcher();
+        for(int i = 0; i < observers; i++) {
+            dispatcher.addObserver((clazz, arg) -> notifications++);
+        }
+    }
+
+    @Benchmark
+    public void notifyObservers() {
+        dispatcher.notifyObservers(DispatcherBenchmark.class, "r0");
+    }
+
+    @Benchmark
+    public void notifyObserversWithoutArgument() {
+        dispatcher.notifyObservers(DispatcherBenchmark.class);
+    }
+}
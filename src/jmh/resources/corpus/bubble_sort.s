@@ -0,0 +1,47 @@
+// Bubble sort of 64 pseudo-random words. r0 = sum of a[i] * (i + 1).
+        ldr r1, =array
+        mov r2, #64
+        mov r3, #0
+        mov r4, #1
+        mov r7, #13
+fill:
+        mul r4, r4, r7
+        add r4, r4, #7
+        and r4, r4, #127
+        str r4, [r1, r3, lsl #2]
+        add r3, r3, #1
+        cmp r3, r2
+        blt fill
+        sub r8, r2, #1
+pass:
+        cmp r8, #0
+        ble sorted
+        mov r3, #0
+compare:
+        cmp r3, r8
+        bge passed
+        add r9, r3, #1
+        ldr r5, [r1, r3, lsl #2]
+        ldr r6, [r1, r9, lsl #2]
+        cmp r5, r6
+        ble ordered
+        str r6, [r1, r3, lsl #2]
+        str r5, [r1, r9, lsl #2]
+ordered:
+        mov r3, r9
+        b compare
+passed:
+        sub r8, r8, #1
+        b pass
+sorted:
+        mov r0, #0
+        mov r3, #0
+checksum:
+        ldr r5, [r1, r3, lsl #2]
+        add r3, r3, #1
+        mla r0, r5, r3, r0
+        cmp r3, r2
+        blt checksum
+        b end
+array: .asciz "array"
+end:
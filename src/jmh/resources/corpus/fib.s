@@ -0,0 +1,20 @@
+// Recursive Fibonacci with push/pop. r0 = fib(18).
+        mov r0, #18
+        bl fib
+        b end
+fib:
+        push {lr}
+        cmp r0, #2
+        blt base
+        push {r0}
+        sub r0, r0, #1
+        bl fib
+        pop {r1}
+        push {r0}
+        sub r0, r1, #2
+        bl fib
+        pop {r1}
+        add r0, r0, r1
+base:
+        pop {pc}
+end:
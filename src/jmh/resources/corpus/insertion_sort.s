@@ -0,0 +1,47 @@
+// Insertion sort of 128 pseudo-random words. r0 = sum of a[i] * (i + 1).
+        ldr r1, =array
+        mov r2, #128
+        mov r3, #0
+        mov r4, #1
+        mov r7, #13
+fill:
+        mul r4, r4, r7
+        add r4, r4, #7
+        and r4, r4, #127
+        str r4, [r1, r3, lsl #2]
+        add r3, r3, #1
+        cmp r3, r2
+        blt fill
+        mov r3, #1
+outer:
+        cmp r3, r2
+        bge sorted
+        ldr r5, [r1, r3, lsl #2]
+        sub r9, r3, #1
+inner:
+        cmp r9, #0
+        blt place
+        ldr r6, [r1, r9, lsl #2]
+        cmp r6, r5
+        ble place
+        add r10, r9, #1
+        str r6, [r1, r10, lsl #2]
+        sub r9, r9, #1
+        b inner
+place:
+        add r10, r9, #1
+        str r5, [r1, r10, lsl #2]
+        add r3, r3, #1
+        b outer
+sorted:
+        mov r0, #0
+        mov r3, #0
+checksum:
+        ldr r5, [r1, r3, lsl #2]
+        add r3, r3, #1
+        mla r0, r5, r3, r0
+        cmp r3, r2
+        blt checksum
+        b end
+array: .asciz "array"
+end:
@@ -0,0 +1,46 @@
+// C = A * B for 16x16 word matrices. r0 = sum of the elements of C.
+        ldr r1, =matrices
+        add r2, r1, #1024
+        add r3, r2, #1024
+        mov r4, #0
+        mov r9, #3
+fill:
+        and r8, r4, #7
+        str r8, [r1, r4, lsl #2]
+        mul r8, r4, r9
+        and r8, r8, #7
+        str r8, [r2, r4, lsl #2]
+        add r4, r4, #1
+        cmp r4, #256
+        blt fill
+        mov r0, #0
+        mov r4, #0
+rows:
+        mov r5, #0
+columns:
+        mov r6, #0
+        mov r7, #0
+dot:
+        lsl r8, r4, #4
+        add r8, r8, r6
+        ldr r9, [r1, r8, lsl #2]
+        lsl r8, r6, #4
+        add r8, r8, r5
+        ldr r10, [r2, r8, lsl #2]
+        mla r7, r9, r10, r7
+        add r6, r6, #1
+        cmp r6, #16
+        blt dot
+        lsl r8, r4, #4
+        add r8, r8, r5
+        str r7, [r3, r8, lsl #2]
+        add r0, r0, r7
+        add r5, r5, #1
+        cmp r5, #16
+        blt columns
+        add r4, r4, #1
+        cmp r4, #16
+        blt rows
+        b end
+matrices: .asciz "matrices"
+end:
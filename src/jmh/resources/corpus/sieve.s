@@ -0,0 +1,34 @@
+// Sieve of Eratosthenes: counts the primes below 2000 in to r0.
+        ldr r1, =flags
+        ldr r2, =2000
+        mov r3, #0
+        mov r4, #0
+clear:
+        strb r4, [r1, r3]
+        add r3, r3, #1
+        cmp r3, r2
+        blt clear
+        mov r0, #0
+        mov r3, #2
+        mov r5, #1
+outer:
+        cmp r3, r2
+        bge done
+        ldrb r4, [r1, r3]
+        cmp r4, #0
+        bne next
+        add r0, r0, #1
+        mul r6, r3, r3
+inner:
+        cmp r6, r2
+        bge next
+        strb r5, [r1, r6]
+        add r6, r6, r3
+        b inner
+next:
+        add r3, r3, #1
+        b outer
+done:
+        b end
+flags: .asciz "flags"
+end:
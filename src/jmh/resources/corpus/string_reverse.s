@@ -0,0 +1,32 @@
+// Measures and reverses a string in place 200 times with ldrb/strb.
+// r0 = sum of the lengths, r5 = first character after the last reversal.
+        ldr r9, =200
+        mov r0, #0
+repeat:
+        ldr r1, =text
+        mov r2, r1
+length:
+        ldrb r3, [r2], #1
+        cmp r3, #0
+        bne length
+        sub r2, r2, #2
+        sub r4, r2, r1
+        add r4, r4, #1
+        add r0, r0, r4
+reverse:
+        cmp r1, r2
+        bge reversed
+        ldrb r3, [r1]
+        ldrb r4, [r2]
+        strb r4, [r1], #1
+        strb r3, [r2]
+        sub r2, r2, #1
+        b reverse
+reversed:
+        subs r9, r9, #1
+        bne repeat
+        ldr r1, =text
+        ldrb r5, [r1]
+        b end
+text: .asciz "The quick brown fox jumps over the lazy dog"
+end:
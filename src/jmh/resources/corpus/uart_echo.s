@@ -0,0 +1,16 @@
+// Echoes the UART input in upper case until the end of the input. r1 = number of characters.
+        mov r1, #0
+loop:
+        bl uart_read
+        cmp r0, #0
+        beq end
+        cmp r0, #97
+        blt put
+        cmp r0, #122
+        bgt put
+        sub r0, r0, #32
+put:
+        bl uart_write
+        add r1, r1, #1
+        b loop
+end:
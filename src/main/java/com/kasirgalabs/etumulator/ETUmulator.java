@@ -4,6 +4,7 @@ import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.kasirgalabs.etumulator.document.DocumentIO;
 import com.kasirgalabs.etumulator.menu.FileMenuController;
 import com.kasirgalabs.etumulator.processor.GUISafeProcessor;
 import javafx.application.Application;
@@ -26,6 +27,18 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ETUmulator extends Application {
+    private static final DocumentIO.Callback<File> EXIT_AFTER_SAVE
+            = new DocumentIO.Callback<File>() {
+        @Override
+        public void completed(File file) {
+            System.exit(0);
+        }
+
+        @Override
+        public void failed(IOException ex) {
+            Logger.getLogger(ETUmulator.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    };
     @Inject
     private FileMenuController fileMenuController;
     @Inject
@@ -81,12 +94,7 @@ public class ETUmulator extends Application {
                 btnSave.setOnAction(new EventHandler<ActionEvent>() {
                     @Override
                     public void handle(ActionEvent event) {
-                        try {
-                            fileMenuController.document.saveDocument();
-                            System.exit(0);
-                        } catch (IOException ex) {
-                            Logger.getLogger(ETUmulator.class.getName()).log(Level.SEVERE, null, ex);
-                        }
+                        fileMenuController.document.saveDocument(EXIT_AFTER_SAVE);
                     }
                 });
                 box.getChildren().add(label);
@@ -122,12 +130,7 @@ public class ETUmulator extends Application {
                             return;
                         }
                         fileMenuController.document.setTargetFile(file);
-                        try {
-                            fileMenuController.document.saveDocument();
-                        } catch (IOException ex) {
-                            Logger.getLogger(ETUmulator.class.getName()).log(Level.SEVERE, null, ex);
-                        }
-                        System.exit(0);
+                        fileMenuController.document.saveDocument(EXIT_AFTER_SAVE);
                     }
                 });
                 box.getChildren().add(label);
@@ -2,43 +2,91 @@ package com.kasirgalabs.etumulator;
 
 import com.google.inject.Inject;
 import com.kasirgalabs.etumulator.document.Document;
-import com.kasirgalabs.etumulator.lang.Assembler;
-import com.kasirgalabs.etumulator.lang.LabelError;
-import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
-import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.lang.AssemblyTimings;
+import com.kasirgalabs.etumulator.navigator.Navigator;
 import com.kasirgalabs.etumulator.processor.GUISafeProcessor;
-import com.kasirgalabs.etumulator.processor.Memory;
-import com.kasirgalabs.etumulator.processor.ProcessorUnits;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.control.Label;
 
 public class ETUmulatorController {
     @Inject
     private Document document;
     @Inject
-    private ProcessorUnits processorUnits;
-    @Inject
     private GUISafeProcessor processor;
     @Inject
-    private Memory memory;
+    private RunPipeline runPipeline;
+    @Inject
+    private Navigator navigator;
+    @FXML
+    private Label runStatus;
+
+    @FXML
+    private void initialize() {
+        processor.setOnFinished(() -> {
+            document.setHeatMap(processor.getProfile().getCounts());
+        });
+        processor.addSessionObserver((clazz, arg) -> navigator.refresh());
+    }
 
     @FXML
     private void runButtonOnAction(ActionEvent event){
         processor.stop();
-        processorUnits.reset();
-        Assembler assembler = new Assembler(memory);
-        ExecutableCode executableCode;
-        try {
-            executableCode = assembler.assemble(document.getText() + "\n");
-        } catch(SyntaxError | LabelError | NumberFormatException ex) {
-            System.err.println(ex.getMessage());
-            return;
-        }
-        processor.run(executableCode);
+        document.setHeatMap(null);
+        runStatus.setText("Assembling...");
+        runPipeline.run(document.getText() + "\n", new RunPipeline.Callback() {
+            @Override
+            public void completed(AssemblyTimings timings) {
+                runStatus.setText(timings.toString());
+            }
+
+            @Override
+            public void failed(Throwable error) {
+                runStatus.setText("Assembly failed.");
+                System.err.println(error.getMessage());
+            }
+        });
+    }
+
+    @FXML
+    private void pauseButtonOnAction(ActionEvent event) {
+        processor.stop();
+    }
+
+    @FXML
+    private void continueButtonOnAction(ActionEvent event) {
+        processor.resume();
+    }
+
+    @FXML
+    private void stepButtonOnAction(ActionEvent event) {
+        processor.step();
+    }
+
+    @FXML
+    private void stepOverButtonOnAction(ActionEvent event) {
+        processor.stepOver();
+    }
+
+    @FXML
+    private void runToCursorButtonOnAction(ActionEvent event) {
+        processor.runUntil(document.getCurrentLine());
+    }
+
+    @FXML
+    private void stepBackButtonOnAction(ActionEvent event) {
+        processor.stepBack();
+    }
+
+    @FXML
+    private void reverseButtonOnAction(ActionEvent event) {
+        processor.reverseContinue();
     }
 
     @FXML
     private void stopButtonOnAction(ActionEvent event) {
+        runPipeline.cancel();
         processor.stop();
+        runStatus.setText("");
     }
 }
@@ -1,14 +1,23 @@
 package com.kasirgalabs.etumulator;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.console.BaseConsole;
 import com.kasirgalabs.etumulator.console.Console;
 import com.kasirgalabs.etumulator.document.BaseDocument;
 import com.kasirgalabs.etumulator.document.Document;
+import com.kasirgalabs.etumulator.processor.APSR;
+import com.kasirgalabs.etumulator.processor.Breakpoint;
 import com.kasirgalabs.etumulator.processor.GUISafeProcessor;
 import com.kasirgalabs.etumulator.processor.GUISafeProcessorUnits;
+import com.kasirgalabs.etumulator.processor.LR;
+import com.kasirgalabs.etumulator.processor.Memory;
+import com.kasirgalabs.etumulator.processor.PC;
 import com.kasirgalabs.etumulator.processor.Processor;
 import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.RegisterFile;
+import com.kasirgalabs.etumulator.processor.Stack;
+import com.kasirgalabs.etumulator.processor.UART;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.GUISafeDispatcher;
 
@@ -20,5 +29,13 @@ public class ETUmulatorModule extends AbstractModule {
         bind(Document.class).to(BaseDocument.class);
         bind(Console.class).to(BaseConsole.class);
         bind(Dispatcher.class).to(GUISafeDispatcher.class);
+        bind(RegisterFile.class).in(Singleton.class);
+        bind(APSR.class).in(Singleton.class);
+        bind(Stack.class).in(Singleton.class);
+        bind(Memory.class).in(Singleton.class);
+        bind(UART.class).in(Singleton.class);
+        bind(PC.class).in(Singleton.class);
+        bind(LR.class).in(Singleton.class);
+        bind(Breakpoint.class).in(Singleton.class);
     }
 }
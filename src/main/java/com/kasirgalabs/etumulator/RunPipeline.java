@@ -0,0 +1,171 @@
+package com.kasirgalabs.etumulator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.AssemblyTimings;
+import com.kasirgalabs.etumulator.lang.ConstantValidator;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.GUISafeProcessor;
+import com.kasirgalabs.etumulator.processor.Processor;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.thumb2.AssemblerParser;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.application.Platform;
+
+/**
+ * Assembles, loads and launches programs without blocking the JavaFX thread.
+ * <p>
+ * Parsing, validation and linking run on a background thread. Only a successfully linked program
+ * resets the processor units and loads its data, after which the processor is started through the
+ * callback executor. The units are reset and loaded on the thread of the processor once the
+ * previous program has ended, since a stopped program still runs until it notices. Starting a
+ * new run cancels the assembly of the previous one, and the results of a cancelled run are never
+ * delivered.
+ */
+@Singleton
+public class RunPipeline {
+    private final Processor processor;
+    private final ProcessorUnits processorUnits;
+    private final Executor callbackExecutor;
+    private final ExecutorService executor;
+    private final AtomicLong generation;
+    private Future<?> assembly;
+
+    /**
+     * Constructs a RunPipeline which starts the given processor on the JavaFX thread.
+     *
+     * @param processor      The processor that runs the assembled programs.
+     * @param processorUnits The units that are reset before a program is loaded.
+     */
+    @Inject
+    public RunPipeline(GUISafeProcessor processor, ProcessorUnits processorUnits) {
+        this(processor, processorUnits, Platform::runLater);
+    }
+
+    /**
+     * Constructs a RunPipeline which starts the processor and invokes the callbacks through the
+     * given executor.
+     *
+     * @param processor        The processor that runs the assembled programs.
+     * @param processorUnits   The units that are reset before a program is loaded.
+     * @param callbackExecutor The executor used to start the processor and invoke the callbacks.
+     */
+    public RunPipeline(Processor processor, ProcessorUnits processorUnits,
+            Executor callbackExecutor) {
+        this.processor = processor;
+        this.processorUnits = processorUnits;
+        this.callbackExecutor = callbackExecutor;
+        generation = new AtomicLong();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "run-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Assembles the given code in the background and runs it once it is loaded. Any assembly which
+     * is still in progress is cancelled.
+     *
+     * @param code     The code to be run.
+     * @param callback Receives the phase timings once the processor is started, or the error.
+     *
+     * @return The future of the assembly.
+     */
+    public synchronized Future<?> run(String code, Callback callback) {
+        cancel();
+        long run = generation.get();
+        assembly = executor.submit(() -> assemble(run, code, callback));
+        return assembly;
+    }
+
+    /**
+     * Cancels the assembly in progress, if any. A program which is already running is not
+     * affected.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if(assembly != null) {
+            assembly.cancel(true);
+        }
+    }
+
+    private void assemble(long run, String code, Callback callback) {
+        Assembler assembler = new Assembler(processorUnits.getMemory());
+        AssemblyTimings timings = new AssemblyTimings();
+        ExecutableCode executableCode;
+        try {
+            long start = System.nanoTime();
+            AssemblerParser.ProgContext program = assembler.parse(code);
+            timings.record(AssemblyTimings.Phase.PARSE, System.nanoTime() - start);
+            checkCurrent(run);
+
+            start = System.nanoTime();
+            ConstantValidator.validate(program);
+            timings.record(AssemblyTimings.Phase.VALIDATE, System.nanoTime() - start);
+            checkCurrent(run);
+
+            start = System.nanoTime();
+            executableCode = assembler.link(code, program);
+            timings.record(AssemblyTimings.Phase.LINK, System.nanoTime() - start);
+            checkCurrent(run);
+
+            processor.runWhenIdle(() -> {
+                long loadStart = System.nanoTime();
+                processorUnits.reset();
+                assembler.load(executableCode);
+                timings.record(AssemblyTimings.Phase.LOAD, System.nanoTime() - loadStart);
+            });
+        } catch(SyntaxError | LabelError | NumberFormatException ex) {
+            deliver(run, () -> callback.failed(ex));
+            return;
+        } catch(CancellationException | InterruptedException ex) {
+            return;
+        }
+        deliver(run, () -> {
+            processor.run(executableCode);
+            callback.completed(timings);
+        });
+    }
+
+    private void checkCurrent(long run) {
+        if(Thread.currentThread().isInterrupted() || generation.get() != run) {
+            throw new CancellationException();
+        }
+    }
+
+    private void deliver(long run, Runnable action) {
+        callbackExecutor.execute(() -> {
+            if(generation.get() == run) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Receives the outcome of a run.
+     */
+    public interface Callback {
+        /**
+         * Called after the program is loaded and the processor is started.
+         *
+         * @param timings The time spent in each assembly phase.
+         */
+        void completed(AssemblyTimings timings);
+
+        /**
+         * Called if the program could not be assembled.
+         *
+         * @param error The syntax, label or constant error.
+         */
+        void failed(Throwable error);
+    }
+}
@@ -0,0 +1,310 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.document.DocumentIO;
+import com.kasirgalabs.etumulator.processor.LoopDetector;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many programs in parallel and streams one result per program as soon as it finishes.
+ * <p>
+ * Every worker thread owns a {@link HeadlessRunner}, so jobs never share processor units. For a
+ * program <code>name.s</code>, the optional file <code>name.in</code> in the same directory is fed
+ * to the UART and the optional file <code>name.out</code> holds the expected UART output, compared
+ * byte for byte. With loop detection on, every runner has a {@link LoopDetector}, so programs
+ * stuck in a loop whose state never changes end long before their limits.
+ */
+public class BatchGrader {
+    /**
+     * The limits the command line grades with unless told otherwise: ten million instructions,
+     * ten seconds and one megabyte of output per program. Grading needs finite limits, since a
+     * single program stuck in a loop would hold its worker forever and one printing in a loop
+     * would fill the memory with its output.
+     */
+    public static final RunLimits DEFAULT_LIMITS = new RunLimits(10_000_000, 10, TimeUnit.SECONDS)
+            .withMaxOutputBytes(1024 * 1024);
+    private static final byte[] NO_INPUT = new byte[0];
+    private final int jobs;
+    private final RunLimits limits;
+    private final Format format;
+    private final boolean detectLoops;
+
+    /**
+     * Constructs a BatchGrader without loop detection.
+     *
+     * @param jobs   The number of programs to run at the same time.
+     * @param limits The limits of every single run.
+     * @param format The format of the results.
+     */
+    public BatchGrader(int jobs, RunLimits limits, Format format) {
+        this(jobs, limits, format, false);
+    }
+
+    /**
+     * Constructs a BatchGrader.
+     *
+     * @param jobs        The number of programs to run at the same time.
+     * @param limits      The limits of every single run.
+     * @param format      The format of the results.
+     * @param detectLoops True to end the programs whose machine state repeats.
+     */
+    public BatchGrader(int jobs, RunLimits limits, Format format, boolean detectLoops) {
+        if(jobs < 1) {
+            throw new IllegalArgumentException("jobs must be positive.");
+        }
+        this.jobs = jobs;
+        this.limits = limits;
+        this.format = format;
+        this.detectLoops = detectLoops;
+    }
+
+    /**
+     * Runs the given programs and writes their results in the order they finish. The writer is
+     * flushed after every result. A program whose job fails unexpectedly gets a
+     * {@link Verdict#RUNTIME_ERROR} and the rest of the batch goes on; its worker starts over with
+     * a new runner.
+     *
+     * @param programs The programs to run.
+     * @param out      Receives the results.
+     *
+     * @return The number of programs which did not pass.
+     *
+     * @throws IOException          If the results could not be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the results.
+     */
+    public int grade(List<Path> programs, Writer out) throws IOException, InterruptedException {
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(jobs, runnable -> {
+            Thread thread = new Thread(runnable, "batch-grader-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadLocal<HeadlessRunner> runners = ThreadLocal.withInitial(() -> {
+            HeadlessRunner runner = new HeadlessRunner();
+            if(detectLoops) {
+                runner.setLoopDetector(new LoopDetector(runner.getProcessorUnits()));
+            }
+            return runner;
+        });
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<Result>, Path> submitted = new HashMap<>();
+        try {
+            for(Path program : programs) {
+                submitted.put(completionService.submit(() -> {
+                    try {
+                        return grade(runners.get(), program);
+                    } catch(RuntimeException | Error ex) {
+                        runners.remove();
+                        throw ex;
+                    }
+                }), program);
+            }
+            if(format == Format.CSV) {
+                out.write("file,verdict,status,instructions,elapsed_ms,message\n");
+            }
+            int failures = 0;
+            for(int i = 0; i < programs.size(); i++) {
+                Future<Result> future = completionService.take();
+                Result result;
+                try {
+                    result = future.get();
+                } catch(ExecutionException ex) {
+                    result = new Result(submitted.get(future), Verdict.RUNTIME_ERROR, null,
+                            ex.getCause().toString());
+                }
+                if(result.verdict != Verdict.PASSED && result.verdict != Verdict.COMPLETED) {
+                    failures++;
+                }
+                out.write(format == Format.CSV ? result.toCSV() : result.toJSON());
+                out.write('\n');
+                out.flush();
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result grade(HeadlessRunner runner, Path program) {
+        String name = program.getFileName().toString();
+        String base = name.endsWith(".s") ? name.substring(0, name.length() - 2) : name;
+        byte[] input;
+        byte[] expected;
+        String code;
+        try {
+            code = DocumentIO.read(program, progress -> {
+            });
+            input = readIfExists(program.resolveSibling(base + ".in"));
+            expected = readIfExists(program.resolveSibling(base + ".out"));
+        } catch(IOException ex) {
+            return new Result(program, Verdict.IO_ERROR, null, ex.toString());
+        }
+        InputStream in = new ByteArrayInputStream(input == null ? NO_INPUT : input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HeadlessRunner.Report report = runner.run(code, in, out, limits);
+        if(report.getAssemblyError() != null) {
+            return new Result(program, Verdict.ASSEMBLY_ERROR, null, report.getAssemblyError());
+        }
+        if(report.getRuntimeError() != null) {
+            return new Result(program, Verdict.RUNTIME_ERROR, null, report.getRuntimeError());
+        }
+        RunResult result = report.getResult();
+        switch(result.getStatus()) {
+            case COMPLETED:
+            case BREAKPOINT:
+                break;
+            case BUDGET_EXCEEDED:
+                return new Result(program, Verdict.BUDGET_EXCEEDED, result, null);
+            case TIMED_OUT:
+                return new Result(program, Verdict.TIMED_OUT, result, null);
+            case NON_TERMINATING:
+                return new Result(program, Verdict.NON_TERMINATING, result,
+                        "non-terminating: state cycle at PC "
+                        + runner.getLoopDetector().getCyclePC());
+            default:
+                return new Result(program, Verdict.RUNTIME_ERROR, result, "Run cancelled.");
+        }
+        if(expected == null) {
+            return new Result(program, Verdict.COMPLETED, result, null);
+        }
+        if(Arrays.equals(expected, out.toByteArray())) {
+            return new Result(program, Verdict.PASSED, result, null);
+        }
+        return new Result(program, Verdict.FAILED, result, "Output differs from " + base + ".out");
+    }
+
+    private static byte[] readIfExists(Path path) throws IOException {
+        return Files.isRegularFile(path) ? Files.readAllBytes(path) : null;
+    }
+
+    /**
+     * Formats of the results.
+     */
+    public enum Format {
+        /**
+         * One JSON object per line.
+         */
+        NDJSON,
+        /**
+         * Comma separated values with a header line.
+         */
+        CSV
+    }
+
+    /**
+     * Verdict of a single program.
+     */
+    public enum Verdict {
+        /**
+         * The output matches the expected output.
+         */
+        PASSED,
+        /**
+         * The output does not match the expected output.
+         */
+        FAILED,
+        /**
+         * The program completed and there is no expected output to compare with.
+         */
+        COMPLETED,
+        ASSEMBLY_ERROR,
+        RUNTIME_ERROR,
+        BUDGET_EXCEEDED,
+        TIMED_OUT,
+        /**
+         * The machine state repeated, so the program would never have ended.
+         */
+        NON_TERMINATING,
+        IO_ERROR
+    }
+
+    private static final class Result {
+        private final Path program;
+        private final Verdict verdict;
+        private final RunResult result;
+        private final String message;
+
+        Result(Path program, Verdict verdict, RunResult result, String message) {
+            this.program = program;
+            this.verdict = verdict;
+            this.result = result;
+            this.message = message;
+        }
+
+        String toJSON() {
+            StringBuilder builder = new StringBuilder(128);
+            builder.append("{\"file\":");
+            appendJSON(builder, program.toString());
+            builder.append(",\"verdict\":\"").append(verdict).append('"');
+            if(result != null) {
+                builder.append(",\"status\":\"").append(result.getStatus()).append('"');
+                builder.append(",\"instructions\":").append(result.getInstructions());
+                builder.append(",\"elapsed_ms\":").append(result.getElapsedNanos() / 1000000);
+            }
+            if(message != null) {
+                builder.append(",\"message\":");
+                appendJSON(builder, message);
+            }
+            return builder.append('}').toString();
+        }
+
+        String toCSV() {
+            StringBuilder builder = new StringBuilder(128);
+            appendCSV(builder, program.toString());
+            builder.append(',').append(verdict).append(',');
+            if(result != null) {
+                builder.append(result.getStatus()).append(',')
+                        .append(result.getInstructions()).append(',')
+                        .append(result.getElapsedNanos() / 1000000);
+            }
+            else {
+                builder.append(",,");
+            }
+            builder.append(',');
+            if(message != null) {
+                appendCSV(builder, message);
+            }
+            return builder.toString();
+        }
+
+        private static void appendJSON(StringBuilder builder, String value) {
+            builder.append('"');
+            for(int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c == '"' || c == '\\') {
+                    builder.append('\\').append(c);
+                }
+                else if(c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+
+        private static void appendCSV(StringBuilder builder, String value) {
+            builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
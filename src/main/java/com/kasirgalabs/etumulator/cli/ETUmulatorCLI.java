@@ -0,0 +1,344 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.document.DocumentIO;
+import com.kasirgalabs.etumulator.processor.APSR;
+import com.kasirgalabs.etumulator.processor.CallProfile;
+import com.kasirgalabs.etumulator.processor.LoopDetector;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.Profile;
+import com.kasirgalabs.etumulator.processor.RegisterFile;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import com.kasirgalabs.etumulator.processor.TraceReader;
+import com.kasirgalabs.etumulator.processor.TraceWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line entry point which runs programs without the user interface:
+ * <pre>
+ * etumulator-cli [--stats] [--profile] [--flame-graph &lt;file&gt;] [--trace &lt;directory&gt;]
+ *                [--detect-loops] [--max-instructions &lt;n&gt;] [--timeout &lt;ms&gt;]
+ *                [--max-output &lt;bytes&gt;] &lt;file&gt;
+ * etumulator-cli --batch &lt;directory&gt; [--jobs &lt;n&gt;] [--format ndjson|csv]
+ *                [--detect-loops] [--max-instructions &lt;n&gt;] [--timeout &lt;ms&gt;]
+ *                [--max-output &lt;bytes&gt;]
+ * </pre>
+ * A single program has the UART connected to the standard input and output. Errors, the final
+ * registers and flags, and the optional statistics and hot lines are printed to the standard
+ * error so the program output stays clean. With <code>--flame-graph</code> the instructions of
+ * every call stack are written to the given file in the collapsed format of flame graph tools,
+ * and the inclusive and exclusive counts of every routine are printed. With <code>--trace</code>
+ * every executed instruction is recorded in the given directory, to be read by a
+ * {@link TraceReader}. With <code>--detect-loops</code> a {@link LoopDetector} ends programs whose
+ * machine state repeats, reporting the PC value of the branch where it did. In batch mode every
+ * <code>.s</code> file of the directory is graded by a {@link BatchGrader} and the results are
+ * streamed to the standard output. The limits which are not given are those of
+ * {@link BatchGrader#DEFAULT_LIMITS} in batch mode, and none for a single program. This class
+ * must not touch JavaFX.
+ */
+public final class ETUmulatorCLI {
+    /**
+     * The program completed or reached the breakpoint.
+     */
+    public static final int EXIT_OK = 0;
+    /**
+     * The program could not be assembled.
+     */
+    public static final int EXIT_ASSEMBLY_ERROR = 1;
+    /**
+     * The command line is invalid.
+     */
+    public static final int EXIT_USAGE = 2;
+    /**
+     * The program raised an error while running.
+     */
+    public static final int EXIT_RUNTIME_ERROR = 3;
+    /**
+     * The program ran out of its instruction budget or time.
+     */
+    public static final int EXIT_LIMIT_EXCEEDED = 4;
+    /**
+     * The program file could not be read.
+     */
+    public static final int EXIT_IO_ERROR = 5;
+    /**
+     * At least one program of the batch did not pass.
+     */
+    public static final int EXIT_BATCH_FAILURES = 6;
+    private static final int HOT_LINES = 10;
+    private static final long UNSET = -1;
+    private static final String USAGE = String.format("Usage: etumulator-cli [--stats] "
+            + "[--profile] [--flame-graph <file>] [--trace <directory>] [--detect-loops] "
+            + "[--max-instructions <n>] [--timeout <ms>] [--max-output <bytes>] <file>%n"
+            + "       etumulator-cli --batch <directory> [--jobs <n>] [--format ndjson|csv] "
+            + "[--detect-loops] [--max-instructions <n>] [--timeout <ms>] "
+            + "[--max-output <bytes>]");
+
+    private ETUmulatorCLI() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the command line.
+     *
+     * @param args   The command line arguments.
+     * @param input  The stream the UART reads from.
+     * @param output The stream the UART writes to.
+     * @param error  The stream errors, the final state and statistics are printed to.
+     *
+     * @return The exit status.
+     */
+    public static int run(String[] args, InputStream input, OutputStream output,
+            PrintStream error) {
+        boolean stats = false;
+        boolean profile = false;
+        String flameGraph = null;
+        String trace = null;
+        boolean detectLoops = false;
+        long maxInstructions = UNSET;
+        long timeout = UNSET;
+        long maxOutput = UNSET;
+        String file = null;
+        String batch = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        BatchGrader.Format format = BatchGrader.Format.NDJSON;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                if("--stats".equals(args[i])) {
+                    stats = true;
+                }
+                else if("--profile".equals(args[i])) {
+                    profile = true;
+                }
+                else if("--flame-graph".equals(args[i]) && i + 1 < args.length) {
+                    flameGraph = args[++i];
+                }
+                else if("--trace".equals(args[i]) && i + 1 < args.length) {
+                    trace = args[++i];
+                }
+                else if("--detect-loops".equals(args[i])) {
+                    detectLoops = true;
+                }
+                else if("--batch".equals(args[i]) && i + 1 < args.length) {
+                    batch = args[++i];
+                }
+                else if("--jobs".equals(args[i]) && i + 1 < args.length) {
+                    jobs = Integer.parseInt(args[++i]);
+                }
+                else if("--format".equals(args[i]) && i + 1 < args.length) {
+                    format = BatchGrader.Format.valueOf(args[++i].toUpperCase(Locale.ENGLISH));
+                }
+                else if("--max-instructions".equals(args[i]) && i + 1 < args.length) {
+                    maxInstructions = parseLimit(args[++i]);
+                }
+                else if("--timeout".equals(args[i]) && i + 1 < args.length) {
+                    timeout = TimeUnit.MILLISECONDS.toNanos(parseLimit(args[++i]));
+                }
+                else if("--max-output".equals(args[i]) && i + 1 < args.length) {
+                    maxOutput = parseLimit(args[++i]);
+                }
+                else if(file == null && !args[i].startsWith("--")) {
+                    file = args[i];
+                }
+                else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch(IllegalArgumentException ex) {
+            error.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if((file == null) == (batch == null) || jobs < 1) {
+            error.println(USAGE);
+            return EXIT_USAGE;
+        }
+        RunLimits defaults = batch != null ? BatchGrader.DEFAULT_LIMITS : RunLimits.NONE;
+        RunLimits limits = new RunLimits(
+                maxInstructions != UNSET ? maxInstructions : defaults.getMaxInstructions(),
+                timeout != UNSET ? timeout : defaults.getTimeoutNanos(), TimeUnit.NANOSECONDS)
+                .withMaxOutputBytes(maxOutput != UNSET ? maxOutput : defaults.getMaxOutputBytes());
+        if(batch != null) {
+            return runBatch(Paths.get(batch), new BatchGrader(jobs, limits, format, detectLoops),
+                    output, error);
+        }
+
+        String code;
+        try {
+            code = DocumentIO.read(Paths.get(file), progress -> {
+            });
+        } catch(IOException ex) {
+            error.println("Could not read " + file + ": " + ex.getMessage());
+            return EXIT_IO_ERROR;
+        }
+
+        HeadlessRunner runner = new HeadlessRunner();
+        Profile hotLines = profile ? new Profile() : null;
+        runner.setProfile(hotLines);
+        CallProfile callProfile = flameGraph != null ? new CallProfile() : null;
+        runner.setCallProfile(callProfile);
+        if(detectLoops) {
+            runner.setLoopDetector(new LoopDetector(runner.getProcessorUnits()));
+        }
+        TraceWriter traceWriter = null;
+        if(trace != null) {
+            try {
+                traceWriter = new TraceWriter(runner.getProcessorUnits(), Paths.get(trace));
+            } catch(IOException ex) {
+                error.println("Could not prepare " + trace + ": " + ex.getMessage());
+                return EXIT_IO_ERROR;
+            }
+            runner.setTrace(traceWriter);
+        }
+        HeadlessRunner.Report report = runner.run(code, input,
+                new BufferedOutputStream(output, 8192), limits);
+        if(traceWriter != null) {
+            try {
+                traceWriter.close();
+            } catch(IOException ex) {
+                error.println("Could not write " + trace + ": " + ex.getMessage());
+                return EXIT_IO_ERROR;
+            }
+            error.println("traced instructions: " + traceWriter.getRecords());
+        }
+        if(report.getAssemblyError() != null) {
+            error.println(report.getAssemblyError());
+            return EXIT_ASSEMBLY_ERROR;
+        }
+        printState(runner.getProcessorUnits(), error);
+        if(report.getRuntimeError() != null) {
+            error.println(report.getRuntimeError());
+            return EXIT_RUNTIME_ERROR;
+        }
+        RunResult result = report.getResult();
+        error.println("status: " + result.getStatus());
+        if(result.getStatus() == RunResult.Status.NON_TERMINATING) {
+            error.println("non-terminating: state cycle at PC "
+                    + runner.getLoopDetector().getCyclePC());
+        }
+        if(stats) {
+            printStatistics(report, error);
+        }
+        if(profile) {
+            printHotLines(hotLines, code, error);
+        }
+        if(flameGraph != null) {
+            printRoutines(callProfile, error);
+            try(Writer writer = Files.newBufferedWriter(Paths.get(flameGraph),
+                    StandardCharsets.UTF_8)) {
+                callProfile.writeCollapsedStacks(writer);
+            } catch(IOException ex) {
+                error.println("Could not write " + flameGraph + ": " + ex.getMessage());
+                return EXIT_IO_ERROR;
+            }
+        }
+        switch(result.getStatus()) {
+            case COMPLETED:
+            case BREAKPOINT:
+                return EXIT_OK;
+            case CANCELLED:
+                return EXIT_RUNTIME_ERROR;
+            default:
+                return EXIT_LIMIT_EXCEEDED;
+        }
+    }
+
+    private static long parseLimit(String value) {
+        long limit = Long.parseLong(value);
+        if(limit < 0) {
+            throw new IllegalArgumentException(value);
+        }
+        return limit;
+    }
+
+    private static int runBatch(Path directory, BatchGrader grader, OutputStream output,
+            PrintStream error) {
+        List<Path> programs;
+        try(Stream<Path> files = Files.list(directory)) {
+            programs = files.filter(path -> path.toString().endsWith(".s"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch(IOException ex) {
+            error.println("Could not list " + directory + ": " + ex.getMessage());
+            return EXIT_IO_ERROR;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try {
+            int failures = grader.grade(programs, writer);
+            error.println(programs.size() - failures + "/" + programs.size() + " passed");
+            return failures == 0 ? EXIT_OK : EXIT_BATCH_FAILURES;
+        } catch(IOException ex) {
+            error.println("Could not write the results: " + ex.getMessage());
+            return EXIT_IO_ERROR;
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return EXIT_RUNTIME_ERROR;
+        }
+    }
+
+    private static void printState(ProcessorUnits processorUnits, PrintStream error) {
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        for(int i = 0; i <= 12; i++) {
+            printRegister("r" + i, registerFile.getValue("r" + i), error);
+        }
+        printRegister("lr", processorUnits.getLR().getValue(), error);
+        printRegister("pc", processorUnits.getPC().getValue(), error);
+        APSR apsr = processorUnits.getAPSR();
+        error.printf("N=%d Z=%d C=%d V=%d%n", apsr.isNegative() ? 1 : 0, apsr.isZero() ? 1 : 0,
+                apsr.isCarry() ? 1 : 0, apsr.isOverflow() ? 1 : 0);
+    }
+
+    private static void printRegister(String name, int value, PrintStream error) {
+        error.printf("%-3s = 0x%08x (%d)%n", name, value, value);
+    }
+
+    private static void printStatistics(HeadlessRunner.Report report, PrintStream error) {
+        RunResult result = report.getResult();
+        double micros = result.getElapsedNanos() / 1e3;
+        error.printf("instructions: %d%n", result.getInstructions());
+        error.printf("run time: %.1f ms%n", micros / 1e3);
+        error.printf("MIPS: %.2f%n", micros == 0 ? 0 : result.getInstructions() / micros);
+        error.println(report.getTimings());
+    }
+
+    private static void printRoutines(CallProfile callProfile, PrintStream error) {
+        error.println("routines:");
+        long total = Math.max(1, callProfile.getTotal());
+        for(CallProfile.Routine routine : callProfile.getRoutines()) {
+            error.printf(Locale.ROOT, "%-16s inclusive %10d %5.1f%%  exclusive %10d %5.1f%%%n",
+                    routine.getName(), routine.getInclusive(),
+                    routine.getInclusive() * 100.0 / total, routine.getExclusive(),
+                    routine.getExclusive() * 100.0 / total);
+        }
+    }
+
+    private static void printHotLines(Profile profile, String code, PrintStream error) {
+        String[] lines = code.split("\\n");
+        error.println("hot lines:");
+        List<Profile.HotLine> hotLines = profile.getHotLines();
+        for(Profile.HotLine hotLine : hotLines.subList(0, Math.min(HOT_LINES, hotLines.size()))) {
+            String label = hotLine.getLabel() == null ? "" : hotLine.getLabel();
+            error.printf(Locale.ROOT, "%5d %-12s %10d %5.1f%%  %s%n", hotLine.getLine() + 1,
+                    label, hotLine.getCount(), hotLine.getShare() * 100,
+                    lines[hotLine.getLine()].trim());
+        }
+    }
+}
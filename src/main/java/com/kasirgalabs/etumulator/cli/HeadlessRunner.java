@@ -0,0 +1,185 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.AssemblyTimings;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.BaseProcessor;
+import com.kasirgalabs.etumulator.processor.BaseProcessorUnits;
+import com.kasirgalabs.etumulator.processor.CallProfile;
+import com.kasirgalabs.etumulator.processor.LoopDetector;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.Profile;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import com.kasirgalabs.etumulator.processor.TraceWriter;
+import com.kasirgalabs.etumulator.processor.UART;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Assembles and runs programs without the user interface. Every runner owns its own processor
+ * units with plain dispatchers, so no JavaFX class is ever loaded and separate runners can be used
+ * from separate threads. A single runner is not thread safe.
+ * <p>
+ * The UART reads from and writes to the streams given to {@link #run(String, InputStream,
+ * OutputStream, RunLimits)}. Reading past the end of the input gives zero. The random sources of
+ * the units are reseeded before every run, so a program behaves the same on every runner even
+ * when it reads uninitialized memory.
+ */
+public class HeadlessRunner {
+    static final long SEED = 0;
+    private final ProcessorUnits processorUnits;
+    private final BaseProcessor processor;
+
+    /**
+     * Constructs a HeadlessRunner with a fresh set of processor units.
+     */
+    public HeadlessRunner() {
+        processorUnits = new BaseProcessorUnits();
+        processor = new BaseProcessor(processorUnits);
+    }
+
+    /**
+     * @return The processor units which hold the state left by the last run.
+     */
+    public ProcessorUnits getProcessorUnits() {
+        return processorUnits;
+    }
+
+    /**
+     * Attaches a profile which counts the executions of every line in later runs.
+     *
+     * @param profile The profile, or null to stop profiling.
+     */
+    public void setProfile(Profile profile) {
+        processor.setProfile(profile);
+    }
+
+    /**
+     * Attaches a call profile which follows the calls and returns of later runs.
+     *
+     * @param callProfile The call profile, or null to stop profiling calls.
+     */
+    public void setCallProfile(CallProfile callProfile) {
+        processor.setCallProfile(callProfile);
+    }
+
+    /**
+     * Attaches a trace writer which records every instruction of later runs. The writer must be
+     * constructed with the processor units of this runner.
+     *
+     * @param trace The trace writer, or null to stop tracing.
+     */
+    public void setTrace(TraceWriter trace) {
+        processor.setTrace(trace);
+    }
+
+    /**
+     * Attaches a loop detector which ends later runs whose machine state repeats. The detector
+     * must be constructed with the processor units of this runner.
+     *
+     * @param loopDetector The loop detector, or null to stop detecting loops.
+     */
+    public void setLoopDetector(LoopDetector loopDetector) {
+        processor.setLoopDetector(loopDetector);
+    }
+
+    /**
+     * @return The attached loop detector, null if loops are not detected.
+     */
+    public LoopDetector getLoopDetector() {
+        return processor.getLoopDetector();
+    }
+
+    /**
+     * Resets the processor units, then assembles and runs the given code.
+     *
+     * @param code   The code to be run.
+     * @param input  The stream the UART reads from.
+     * @param output The stream the UART writes to. It is flushed before the method returns.
+     * @param limits The limits of the run, including the output limit of the UART.
+     *
+     * @return The report of the run.
+     */
+    public Report run(String code, InputStream input, OutputStream output, RunLimits limits) {
+        UART uart = processorUnits.getUART();
+        uart.setInput(input);
+        uart.setOutput(output, limits.getMaxOutputBytes());
+        processorUnits.reset();
+        processorUnits.setSeed(SEED);
+        AssemblyTimings timings = new AssemblyTimings();
+        ExecutableCode executableCode;
+        try {
+            executableCode = new Assembler(processorUnits.getMemory()).assemble(code, timings);
+        } catch(SyntaxError | LabelError | NumberFormatException ex) {
+            return new Report(timings, null, ex.getMessage(), null);
+        }
+        RunResult result = null;
+        String runtimeError = null;
+        try {
+            result = processor.run(executableCode, limits);
+        } catch(RuntimeException | SyntaxError | LabelError ex) {
+            runtimeError = ex.toString();
+        }
+        try {
+            uart.flush();
+            output.flush();
+        } catch(UncheckedIOException | IOException ex) {
+            if(runtimeError == null) {
+                result = null;
+                runtimeError = ex.toString();
+            }
+        }
+        return new Report(timings, result, null, runtimeError);
+    }
+
+    /**
+     * Outcome of a single {@link HeadlessRunner#run(String, InputStream, OutputStream, RunLimits)}.
+     */
+    public static final class Report {
+        private final AssemblyTimings timings;
+        private final RunResult result;
+        private final String assemblyError;
+        private final String runtimeError;
+
+        Report(AssemblyTimings timings, RunResult result, String assemblyError,
+                String runtimeError) {
+            this.timings = timings;
+            this.result = result;
+            this.assemblyError = assemblyError;
+            this.runtimeError = runtimeError;
+        }
+
+        /**
+         * @return The time spent in each assembly phase.
+         */
+        public AssemblyTimings getTimings() {
+            return timings;
+        }
+
+        /**
+         * @return The result of the run, null if the program could not be assembled or failed.
+         */
+        public RunResult getResult() {
+            return result;
+        }
+
+        /**
+         * @return The message of the assembly error, null if the program is assembled.
+         */
+        public String getAssemblyError() {
+            return assemblyError;
+        }
+
+        /**
+         * @return The description of the error raised while running, null if there is none.
+         */
+        public String getRuntimeError() {
+            return runtimeError;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.BaseProcessor;
+import com.kasirgalabs.etumulator.processor.BaseProcessorUnits;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import com.kasirgalabs.etumulator.processor.UART;
+import com.kasirgalabs.etumulator.util.Observer;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many interactive programs at once. Every session runs on its own thread, which waits
+ * inside {@link UART#read()} whenever the program asks for input that has not arrived yet.
+ * <p>
+ * When the runtime supports virtual threads, sessions run on them, so a waiting session costs
+ * little more than its processor units and hundreds of sessions fit in one process. On older
+ * runtimes, including Java 8, each session gets a platform thread with a small stack instead.
+ * <p>
+ * The UART of a session is exposed through non-blocking calls: {@link Session#write(byte[])}
+ * queues input and {@link Session#read()} drains the output written so far.
+ */
+public class SessionHost {
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    private final ThreadFactory threadFactory;
+    private final boolean virtual;
+    private final AtomicInteger active;
+
+    /**
+     * Constructs a SessionHost which uses virtual threads if the runtime supports them.
+     */
+    public SessionHost() {
+        ThreadFactory factory = virtualThreadFactory();
+        virtual = factory != null;
+        threadFactory = virtual ? factory : platformThreadFactory();
+        active = new AtomicInteger();
+    }
+
+    /**
+     * @return True if sessions run on virtual threads, otherwise false.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return The number of sessions which are still running.
+     */
+    public int getActiveSessions() {
+        return active.get();
+    }
+
+    /**
+     * Assembles the given code and starts running it in a new session.
+     *
+     * @param code   The code to be run.
+     * @param limits The limits of the run.
+     *
+     * @return The session.
+     *
+     * @throws SyntaxError If the code contains syntax error(s).
+     * @throws LabelError  If an undefined label used or duplicate labels exist.
+     */
+    public Session open(String code, RunLimits limits) throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        processorUnits.setSeed(HeadlessRunner.SEED);
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        Session session = new Session(processorUnits);
+        Thread thread = threadFactory.newThread(() -> session.run(executableCode, limits));
+        session.thread = thread;
+        active.incrementAndGet();
+        thread.start();
+        return session;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            ofVirtual = builder.getMethod("name", String.class, long.class)
+                    .invoke(ofVirtual, "session-", 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(ofVirtual);
+        } catch(ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException ex) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(null, runnable, "session-" + count.getAndIncrement(),
+                    PLATFORM_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A single program running in the host.
+     */
+    public final class Session implements Observer {
+        private final ProcessorUnits processorUnits;
+        private final UART uart;
+        private final Queue<Byte> input;
+        private final ByteArrayOutputStream output;
+        private final CompletableFuture<RunResult> result;
+        private boolean inputClosed;
+        private boolean waiting;
+        private Thread thread;
+
+        private Session(ProcessorUnits processorUnits) {
+            this.processorUnits = processorUnits;
+            uart = processorUnits.getUART();
+            input = new ArrayDeque<>();
+            output = new ByteArrayOutputStream();
+            result = new CompletableFuture<>();
+            uart.addDirectObserver(this);
+        }
+
+        private void run(ExecutableCode executableCode, RunLimits limits) {
+            RunResult runResult;
+            try {
+                runResult = new BaseProcessor(processorUnits).run(executableCode, limits);
+            } catch(RuntimeException ex) {
+                active.decrementAndGet();
+                result.completeExceptionally(ex);
+                return;
+            }
+            active.decrementAndGet();
+            result.complete(runResult);
+        }
+
+        /**
+         * Queues input for the program without blocking.
+         *
+         * @param data The bytes the UART reads next.
+         */
+        public synchronized void write(byte[] data) {
+            if(inputClosed) {
+                throw new IllegalStateException("Input is closed.");
+            }
+            for(byte b : data) {
+                input.add(b);
+            }
+            feedIfWaiting();
+        }
+
+        /**
+         * Queues input for the program without blocking.
+         *
+         * @param data The text the UART reads next, encoded in UTF-8.
+         */
+        public void write(String data) {
+            write(data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Closes the input. Once the queued input is consumed, every read gives zero.
+         */
+        public synchronized void closeInput() {
+            inputClosed = true;
+            feedIfWaiting();
+        }
+
+        /**
+         * Drains the output written by the program so far without blocking.
+         *
+         * @return The bytes written since the last call.
+         */
+        public synchronized byte[] read() {
+            byte[] data = output.toByteArray();
+            output.reset();
+            return data;
+        }
+
+        /**
+         * @return True if the program is waiting for input, otherwise false.
+         */
+        public synchronized boolean isWaiting() {
+            return waiting;
+        }
+
+        /**
+         * @return The processor units of the session.
+         */
+        public ProcessorUnits getProcessorUnits() {
+            return processorUnits;
+        }
+
+        /**
+         * @return The future result of the run. It completes exceptionally if the program raises
+         *         an error.
+         */
+        public CompletableFuture<RunResult> getResult() {
+            return result;
+        }
+
+        /**
+         * Stops the program. A waiting program stops immediately, a running one within the check
+         * interval of its limits.
+         */
+        public void cancel() {
+            thread.interrupt();
+        }
+
+        @Override
+        public synchronized void update(Class<?> clazz, Object arg) {
+            if("read".equals(arg)) {
+                waiting = true;
+                feedIfWaiting();
+            }
+            else {
+                output.write((char) arg);
+            }
+        }
+
+        private void feedIfWaiting() {
+            if(!waiting) {
+                return;
+            }
+            Byte data = input.poll();
+            if(data != null) {
+                waiting = false;
+                uart.feed((char) (data & 0xFF));
+            }
+            else if(inputClosed) {
+                waiting = false;
+                uart.feed('\0');
+            }
+        }
+    }
+}
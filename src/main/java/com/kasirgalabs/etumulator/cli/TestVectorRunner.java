@@ -0,0 +1,234 @@
+package com.kasirgalabs.etumulator.cli;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.AssemblyTimings;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.BaseProcessor;
+import com.kasirgalabs.etumulator.processor.BaseProcessorUnits;
+import com.kasirgalabs.etumulator.processor.LockstepProcessor;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.RegisterFile;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import com.kasirgalabs.etumulator.processor.Snapshot;
+import com.kasirgalabs.etumulator.processor.UART;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs one program against many test vectors. The program is assembled and loaded once; every
+ * vector then runs in a fork of the loaded state whose memory pages are shared copy-on-write, so
+ * a vector costs neither an assembly nor a copy of the data section.
+ * <p>
+ * {@link #run(TestVector, RunLimits)} may be called from many threads at the same time.
+ *
+ * @see Snapshot
+ */
+public class TestVectorRunner {
+    private final ExecutableCode executableCode;
+    private final Snapshot snapshot;
+    private final AssemblyTimings timings;
+
+    /**
+     * Assembles and loads the given code.
+     *
+     * @param code The code to be run.
+     *
+     * @throws SyntaxError If the code contains syntax error(s).
+     * @throws LabelError  If an undefined label used or duplicate labels exist.
+     */
+    public TestVectorRunner(String code) throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        processorUnits.setSeed(HeadlessRunner.SEED);
+        timings = new AssemblyTimings();
+        executableCode = new Assembler(processorUnits.getMemory()).assemble(code, timings);
+        snapshot = Snapshot.of(processorUnits);
+    }
+
+    /**
+     * @return The time spent in each phase of the single assembly.
+     */
+    public AssemblyTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Runs the program against a single vector in a fresh fork of the loaded state.
+     *
+     * @param vector The test vector.
+     * @param limits The limits of the run.
+     *
+     * @return The outcome of the run.
+     */
+    public Outcome run(TestVector vector, RunLimits limits) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ProcessorUnits processorUnits = fork(vector, output, limits);
+        try {
+            RunResult result = new BaseProcessor(processorUnits).run(executableCode, limits);
+            return new Outcome(processorUnits, result, null, output.toByteArray());
+        } catch(RuntimeException | SyntaxError | LabelError ex) {
+            return new Outcome(processorUnits, null, ex.toString(), output.toByteArray());
+        }
+    }
+
+    /**
+     * Runs the program against all given vectors in parallel. A vector whose run fails
+     * unexpectedly, for example with an {@link Error}, gets an outcome with only the error.
+     *
+     * @param vectors The test vectors.
+     * @param limits  The limits of every run.
+     * @param threads The number of vectors to run at the same time.
+     *
+     * @return The outcomes, in the order of the vectors.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting for the outcomes.
+     */
+    public List<Outcome> runAll(List<TestVector> vectors, RunLimits limits, int threads)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "test-vector-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>(vectors.size());
+            for(TestVector vector : vectors) {
+                futures.add(executor.submit(() -> run(vector, limits)));
+            }
+            List<Outcome> outcomes = new ArrayList<>(vectors.size());
+            for(Future<Outcome> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch(ExecutionException ex) {
+                    outcomes.add(new Outcome(null, null, ex.getCause().toString(), new byte[0]));
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the program against all given vectors in a single lockstep pass on the calling thread.
+     * Vectors that follow the same instruction path share the cost of every dispatch.
+     *
+     * @param vectors The test vectors.
+     * @param limits  The limits of the pass. The instruction budget applies to each vector.
+     *
+     * @return The outcomes, in the order of the vectors.
+     *
+     * @see LockstepProcessor
+     */
+    public List<Outcome> runLockstep(List<TestVector> vectors, RunLimits limits) {
+        List<ProcessorUnits> lanes = new ArrayList<>(vectors.size());
+        List<ByteArrayOutputStream> outputs = new ArrayList<>(vectors.size());
+        for(TestVector vector : vectors) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            lanes.add(fork(vector, output, limits));
+            outputs.add(output);
+        }
+        LockstepProcessor processor = new LockstepProcessor(lanes);
+        List<RunResult> results = processor.run(executableCode, limits);
+        List<Outcome> outcomes = new ArrayList<>(vectors.size());
+        for(int i = 0; i < lanes.size(); i++) {
+            RuntimeException error = processor.getError(i);
+            outcomes.add(new Outcome(lanes.get(i), results.get(i),
+                    error == null ? null : error.toString(), outputs.get(i).toByteArray()));
+        }
+        return outcomes;
+    }
+
+    private ProcessorUnits fork(TestVector vector, OutputStream output, RunLimits limits) {
+        ProcessorUnits processorUnits = snapshot.fork();
+        processorUnits.setSeed(HeadlessRunner.SEED);
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        vector.registers.forEach(registerFile::setValue);
+        UART uart = processorUnits.getUART();
+        uart.setInput(new ByteArrayInputStream(vector.input));
+        uart.setOutput(output, limits.getMaxOutputBytes());
+        return processorUnits;
+    }
+
+    /**
+     * Initial registers and UART input of a single run.
+     */
+    public static final class TestVector {
+        private final Map<String, Integer> registers;
+        private final byte[] input;
+
+        /**
+         * @param input The bytes the UART reads.
+         */
+        public TestVector(byte[] input) {
+            this(Collections.emptyMap(), input);
+        }
+
+        /**
+         * @param registers The initial values of registers, keyed by names such as "r0".
+         * @param input     The bytes the UART reads.
+         */
+        public TestVector(Map<String, Integer> registers, byte[] input) {
+            this.registers = registers;
+            this.input = input.clone();
+        }
+    }
+
+    /**
+     * Outcome of a single test vector.
+     */
+    public static final class Outcome {
+        private final ProcessorUnits processorUnits;
+        private final RunResult result;
+        private final String runtimeError;
+        private final byte[] output;
+
+        Outcome(ProcessorUnits processorUnits, RunResult result, String runtimeError,
+                byte[] output) {
+            this.processorUnits = processorUnits;
+            this.result = result;
+            this.runtimeError = runtimeError;
+            this.output = output;
+        }
+
+        /**
+         * @return The processor units of the fork, holding the final state, null if the run
+         *         failed before the units could be returned.
+         */
+        public ProcessorUnits getProcessorUnits() {
+            return processorUnits;
+        }
+
+        /**
+         * @return The result of the run, null if the program raised an error.
+         */
+        public RunResult getResult() {
+            return result;
+        }
+
+        /**
+         * @return The description of the error raised while running, null if there is none.
+         */
+        public String getRuntimeError() {
+            return runtimeError;
+        }
+
+        /**
+         * @return The bytes the UART wrote.
+         */
+        public byte[] getOutput() {
+            return output.clone();
+        }
+    }
+}
@@ -5,10 +5,13 @@ import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.processor.UART;
 import com.kasirgalabs.etumulator.util.Observer;
 import com.kasirgalabs.etumulator.processor.Breakpoint;
+import com.kasirgalabs.etumulator.processor.BreakpointCondition;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ResourceBundle;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -18,20 +21,26 @@ import javafx.scene.layout.VBox;
 
 @Singleton
 public class BaseConsole extends TextArea implements Initializable, Console, Observer {
-    private final String userName;
-    private boolean readEnable;
-    private boolean pointEnable;
-    private char readChar;
+    private static final int MAX_LINES = 5000;
+    private final ConsoleBuffer buffer;
+    private volatile boolean readEnable;
+    private volatile char readChar;
     @FXML
     private VBox vbox;
     @FXML
     private TextField point;
     private final UART uart;
+    private final Breakpoint breakpoint;
 
-    @Inject
     public BaseConsole(UART uart) {
-        userName = System.getProperty("user.name");
+        this(uart, new Breakpoint());
+    }
+
+    @Inject
+    public BaseConsole(UART uart, Breakpoint breakpoint) {
+        buffer = new ConsoleBuffer(System.getProperty("user.name") + "@ETUmulator: ", MAX_LINES);
         this.uart = uart;
+        this.breakpoint = breakpoint;
     }
 
     @Override
@@ -39,18 +48,29 @@ public class BaseConsole extends TextArea implements Initializable, Console, Obs
         System.setErr(new PrintStream(new OutputStream() {
             @Override
             public void write(int b) {
-                Platform.runLater(() -> {
-                    BaseConsole.this.write((char) b);
-                });
+                buffer.write((char) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                buffer.write(new String(b, off, len, StandardCharsets.ISO_8859_1));
             }
         }));
         readEnable = false;
-        pointEnable = false;
-        setText(userName + "@ETUmulator: ");
-        uart.addObserver(this);
+        setText(buffer.reset());
+        uart.addDirectObserver(this);
         vbox.getChildren().add(this);
-   }
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        }.start();
+    }
 
+    /**
+     * Called on the thread that runs the processor, so it only touches the output buffer.
+     */
     @Override
     public void update(Class<?> clazz, Object arg) {
         if("read".equals(arg)) {
@@ -63,13 +83,22 @@ public class BaseConsole extends TextArea implements Initializable, Console, Obs
     @Override
     public void write(char data) {
         readChar = data;
-        if(data == '\n') {
-            super.replaceText(getText().length(), getText().length(),
-                    "\n" + userName + "@ETUmulator: ");
+        buffer.write(data);
+        if(Platform.isFxApplicationThread()) {
+            flush();
         }
-        else {
-            super.replaceText(getText().length(), getText().length(), Character.toString(data));
+    }
+
+    private void flush() {
+        if(buffer.isEmpty()) {
+            return;
         }
+        ConsoleBuffer.Chunk chunk = buffer.flush();
+        if(chunk.getTrimmed() > 0) {
+            super.replaceText(0, chunk.getTrimmed(), "");
+        }
+        int end = getLength();
+        super.replaceText(end, end, chunk.getAppended());
     }
 
     @Override
@@ -90,18 +119,48 @@ public class BaseConsole extends TextArea implements Initializable, Console, Obs
     @Override
     @FXML
     public void clearArea() {
-        this.clear();
-        setText(userName + "@ETUmulator: ");
+        setText(buffer.reset());
     }
 
+    /**
+     * Adds or removes the breakpoint written in the point field, then lists the breakpoints.
+     * The field holds the PC value, optionally followed by a comma and a hit count, and a
+     * condition, like <code>12</code>, <code>12 r0 == 5</code> or <code>12,3 !z</code>. A plain
+     * PC value removes the breakpoint if it exists, and an empty field removes every breakpoint.
+     */
     @FXML
     public void setBreakpoint() {
-        Breakpoint breakpoint = Breakpoint.getInstance();
-        pointEnable=!pointEnable;
-        if(pointEnable) {
-          breakpoint.setPoint(Integer.parseInt(point.getText()));
-        }else {
-          breakpoint.reset();
+        String text = point.getText().trim();
+        try {
+            if(text.isEmpty()) {
+                breakpoint.reset();
+            }
+            else {
+                String[] parts = text.split("\\s+", 2);
+                String[] pointAndHits = parts[0].split(",", 2);
+                int pc = Integer.parseInt(pointAndHits[0]);
+                int hitCount = pointAndHits.length > 1 ? Integer.parseInt(pointAndHits[1]) : 1;
+                if(parts.length == 1 && hitCount == 1) {
+                    breakpoint.toggle(pc);
+                }
+                else {
+                    BreakpointCondition condition = parts.length > 1
+                            ? BreakpointCondition.compile(parts[1]) : null;
+                    breakpoint.add(pc, condition, hitCount);
+                }
+            }
+        } catch(IllegalArgumentException ex) {
+            System.err.println("Invalid breakpoint: " + ex.getMessage());
+            return;
+        }
+        StringBuilder points = new StringBuilder("breakpoints:");
+        for(int pc : breakpoint.getPoints()) {
+            BreakpointCondition condition = breakpoint.getCondition(pc);
+            points.append(' ').append(pc);
+            if(condition != null) {
+                points.append(" (").append(condition).append(')');
+            }
         }
+        System.err.println(points);
     }
 }
@@ -0,0 +1,142 @@
+package com.kasirgalabs.etumulator.console;
+
+/**
+ * Output model behind the console. Any thread may write characters into the pending buffer
+ * without blocking on the JavaFX thread; the console drains it with {@link #flush()} at most once
+ * per frame. The buffer also keeps the lengths of the displayed lines in a ring so the console
+ * can drop the oldest lines once the scrollback limit is reached, without reading its own text
+ * back.
+ * <p>
+ * {@link #write(char)} and {@link #write(CharSequence)} are thread safe. {@link #flush()} and
+ * {@link #reset()} must be called from the thread that owns the displayed text.
+ */
+public class ConsoleBuffer {
+    private final String prompt;
+    private final StringBuilder pending;
+    private final int[] lineLengths;
+    private int head;
+    private int lines;
+    private int length;
+
+    /**
+     * Construct a ConsoleBuffer.
+     *
+     * @param prompt The prompt printed at the beginning of every line.
+     * @param maxLines The maximum number of lines kept in the scrollback.
+     */
+    public ConsoleBuffer(String prompt, int maxLines) {
+        if(maxLines < 1) {
+            throw new IllegalArgumentException("maxLines must be positive.");
+        }
+        this.prompt = prompt;
+        pending = new StringBuilder(256);
+        lineLengths = new int[maxLines];
+        reset();
+    }
+
+    /**
+     * Appends a character to the pending output. A new line is followed by the prompt.
+     *
+     * @param data The character to append.
+     */
+    public synchronized void write(char data) {
+        pending.append(data);
+        if(data == '\n') {
+            pending.append(prompt);
+        }
+    }
+
+    /**
+     * Appends a sequence of characters to the pending output.
+     *
+     * @param data The characters to append.
+     *
+     * @see #write(char)
+     */
+    public synchronized void write(CharSequence data) {
+        for(int i = 0; i < data.length(); i++) {
+            write(data.charAt(i));
+        }
+    }
+
+    /**
+     * @return True if there is no pending output, otherwise false.
+     */
+    public synchronized boolean isEmpty() {
+        return pending.length() == 0;
+    }
+
+    /**
+     * Drains the pending output and accounts it to the scrollback.
+     *
+     * @return The characters to remove from the head of the displayed text and the text to append
+     * to its end.
+     */
+    public Chunk flush() {
+        String text;
+        synchronized(this) {
+            text = pending.toString();
+            pending.setLength(0);
+        }
+        int oldLength = length;
+        int trimmed = 0;
+        for(int i = 0; i < text.length(); i++) {
+            lineLengths[(head + lines - 1) % lineLengths.length]++;
+            if(text.charAt(i) != '\n') {
+                continue;
+            }
+            if(lines == lineLengths.length) {
+                trimmed += lineLengths[head];
+                head = (head + 1) % lineLengths.length;
+                lines--;
+            }
+            lineLengths[(head + lines) % lineLengths.length] = 0;
+            lines++;
+        }
+        length = oldLength + text.length() - trimmed;
+        if(trimmed <= oldLength) {
+            return new Chunk(trimmed, text);
+        }
+        return new Chunk(oldLength, text.substring(trimmed - oldLength));
+    }
+
+    /**
+     * Resets the scrollback to a single line holding the prompt. Pending output is kept.
+     *
+     * @return The text the console should display after the reset.
+     */
+    public String reset() {
+        head = 0;
+        lines = 1;
+        lineLengths[0] = prompt.length();
+        length = prompt.length();
+        return prompt;
+    }
+
+    /**
+     * A drained piece of output.
+     */
+    public static final class Chunk {
+        private final int trimmed;
+        private final String appended;
+
+        Chunk(int trimmed, String appended) {
+            this.trimmed = trimmed;
+            this.appended = appended;
+        }
+
+        /**
+         * @return The number of characters to remove from the head of the displayed text.
+         */
+        public int getTrimmed() {
+            return trimmed;
+        }
+
+        /**
+         * @return The text to append to the end of the displayed text.
+         */
+        public String getAppended() {
+            return appended;
+        }
+    }
+}
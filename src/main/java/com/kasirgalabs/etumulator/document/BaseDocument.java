@@ -1,20 +1,17 @@
 package com.kasirgalabs.etumulator.document;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import java.io.BufferedWriter;
+import com.kasirgalabs.etumulator.processor.Breakpoint;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
-import java.util.function.IntFunction;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
-import javafx.geometry.Pos;
-import javafx.scene.Cursor;
-import javafx.scene.Node;
 import javafx.scene.control.Label;
-import javafx.scene.layout.HBox;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.StackPane;
 import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.CodeArea;
@@ -26,25 +23,28 @@ public class BaseDocument implements Initializable, Document {
     private Label label;
     @FXML
     private StackPane stackPane;
+    @FXML
+    private ProgressBar progressBar;
     private File targetFile;
     private final CodeArea document;
+    private final DocumentIO documentIO;
+    private final GutterFactory gutterFactory;
 
     public BaseDocument() {
+        this(new Breakpoint());
+    }
+
+    @Inject
+    public BaseDocument(Breakpoint breakpoint) {
+        documentIO = new DocumentIO(Platform::runLater);
         document = new Thumb2CodeArea();
-        IntFunction<Node> numberFunction = LineNumberFunction.applyTo(document);
-        IntFunction<Node> arrowFunction = new ArrowFunction(document.currentParagraphProperty());
-        IntFunction<Node> graphicFactory = line -> {
-            HBox hbox = new HBox(numberFunction.apply(line), arrowFunction.apply(line));
-            hbox.setCursor(Cursor.DEFAULT);
-            hbox.setAlignment(Pos.CENTER_LEFT);
-            return hbox;
-        };
-        document.setParagraphGraphicFactory(graphicFactory);
+        gutterFactory = new GutterFactory(document, breakpoint);
+        document.setParagraphGraphicFactory(gutterFactory);
     }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        stackPane.getChildren().add(new VirtualizedScrollPane<>(document));
+        stackPane.getChildren().add(0, new VirtualizedScrollPane<>(document));
         targetFile = new File(DEFAULT_NAME);
         label.setText(DEFAULT_NAME);
     }
@@ -56,8 +56,7 @@ public class BaseDocument implements Initializable, Document {
 
     @Override
     public void setText(String text) {
-        document.clear();
-        document.appendText(text);
+        document.replaceText(text);
     }
 
     @Override
@@ -74,14 +73,55 @@ public class BaseDocument implements Initializable, Document {
 
     @Override
     public void saveDocument() throws IOException {
-        String text = document.getText();
-        try(BufferedWriter bw = new BufferedWriter(new FileWriter(targetFile))) {
-            bw.write(text);
-        }
+        DocumentIO.write(targetFile.toPath(), document.getText());
+    }
+
+    @Override
+    public void saveDocument(DocumentIO.Callback<File> callback) {
+        documentIO.write(targetFile, document.getText(), callback);
+    }
+
+    @Override
+    public void loadDocument(File file, DocumentIO.Callback<String> callback) {
+        progressBar.setProgress(0.0);
+        progressBar.setVisible(true);
+        document.setDisable(true);
+        documentIO.read(file, progress -> {
+            Platform.runLater(() -> progressBar.setProgress(progress));
+        }, new DocumentIO.Callback<String>() {
+            @Override
+            public void completed(String text) {
+                loadFinished();
+                setText(text);
+                setTargetFile(file);
+                callback.completed(text);
+            }
+
+            @Override
+            public void failed(IOException ex) {
+                loadFinished();
+                callback.failed(ex);
+            }
+        });
+    }
+
+    @Override
+    public void setHeatMap(long[] counts) {
+        gutterFactory.setHeat(counts);
+    }
+
+    @Override
+    public int getCurrentLine() {
+        return document.getCurrentParagraph();
     }
 
     @Override
     public void clear() {
         document.clear();
     }
+
+    private void loadFinished() {
+        progressBar.setVisible(false);
+        document.setDisable(false);
+    }
 }
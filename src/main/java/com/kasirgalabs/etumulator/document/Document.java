@@ -15,4 +15,32 @@ public interface Document {
     File getTargetFile();
 
     void saveDocument() throws IOException;
+
+    /**
+     * Saves the document to the target file in the background.
+     *
+     * @param callback Receives the saved file or the error, on the JavaFX application thread.
+     */
+    void saveDocument(DocumentIO.Callback<File> callback);
+
+    /**
+     * Loads the given file in the background. The text and the target file of the document are
+     * only replaced after the file is read, and the document can not be edited meanwhile.
+     *
+     * @param file     The file to load.
+     * @param callback Receives the loaded text or the error, on the JavaFX application thread.
+     */
+    void loadDocument(File file, DocumentIO.Callback<String> callback);
+
+    /**
+     * Shades the gutter of every line by how often it is executed.
+     *
+     * @param counts The execution counts indexed by line, or null to remove the heat map.
+     */
+    void setHeatMap(long[] counts);
+
+    /**
+     * @return The line of the caret, counted from zero.
+     */
+    int getCurrentLine();
 }
@@ -0,0 +1,219 @@
+package com.kasirgalabs.etumulator.document;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reads and writes documents on a background thread with NIO channels.
+ * <p>
+ * Saving is atomic: the text is written and flushed to a temporary file in the directory of the
+ * target which is then renamed over the target, so a failed save never leaves a truncated file
+ * behind. All operations run one at a time in submission order, and their outcome is reported
+ * through a {@link Callback} invoked on the callback executor given during construction.
+ *
+ * @see Document
+ */
+public class DocumentIO {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+
+    /**
+     * Constructs a DocumentIO which invokes the callbacks on the I/O thread.
+     */
+    public DocumentIO() {
+        this(Runnable::run);
+    }
+
+    /**
+     * Constructs a DocumentIO which invokes the callbacks through the given executor, such as
+     * <code>Platform::runLater</code>.
+     *
+     * @param callbackExecutor The executor used to invoke the callbacks.
+     */
+    public DocumentIO(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the given file in the background.
+     *
+     * @param file     The file to read.
+     * @param progress Receives the read progress between 0 and 1, on the I/O thread.
+     * @param callback Receives the text of the file or the error.
+     *
+     * @return The future of the operation.
+     */
+    public Future<?> read(File file, DoubleConsumer progress, Callback<String> callback) {
+        return executor.submit(() -> {
+            try {
+                String text = read(file.toPath(), progress);
+                callbackExecutor.execute(() -> callback.completed(text));
+            } catch(IOException ex) {
+                callbackExecutor.execute(() -> callback.failed(ex));
+            }
+        });
+    }
+
+    /**
+     * Saves the given text to the given file in the background.
+     *
+     * @param file     The target file.
+     * @param text     The text to save.
+     * @param callback Receives the saved file or the error.
+     *
+     * @return The future of the operation.
+     */
+    public Future<?> write(File file, String text, Callback<File> callback) {
+        return executor.submit(() -> {
+            try {
+                write(file.toPath(), text);
+                callbackExecutor.execute(() -> callback.completed(file));
+            } catch(IOException ex) {
+                callbackExecutor.execute(() -> callback.failed(ex));
+            }
+        });
+    }
+
+    /**
+     * Reads the given file on the calling thread. Line terminators are normalized to
+     * <code>'\n'</code>, and a missing terminator is added to the last line.
+     *
+     * @param path     The file to read.
+     * @param progress Receives the read progress between 0 and 1.
+     *
+     * @return The text of the file.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static String read(Path path, DoubleConsumer progress) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + " is too large to open.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while(buffer.hasRemaining()) {
+                buffer.limit(Math.min(buffer.position() + CHUNK_SIZE, buffer.capacity()));
+                if(channel.read(buffer) < 0) {
+                    break;
+                }
+                progress.accept((double) buffer.position() / Math.max(size, 1));
+            }
+            buffer.flip();
+            CharBuffer chars = CHARSET.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buffer);
+            progress.accept(1.0);
+            return normalizeLineTerminators(chars);
+        }
+    }
+
+    /**
+     * Atomically replaces the given file with the given text on the calling thread. A symbolic
+     * link is followed, so the file it points to is replaced and the link is kept, and the
+     * permissions of an existing file are copied onto its replacement.
+     *
+     * @param path The target file.
+     * @param text The text to save.
+     *
+     * @throws IOException If the text can not be written.
+     */
+    public static void write(Path path, String text) throws IOException {
+        Path target = Files.exists(path) ? path.toRealPath() : path.toAbsolutePath();
+        Path temp = createTempFile(target);
+        try {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = CHARSET.encode(text);
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            if(Files.exists(target) && Files.getFileStore(target)
+                    .supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch(AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty file next to the given target. Unlike {@link Files#createTempFile}, which
+     * restricts the file to its owner, this gives a new document the default permissions.
+     */
+    private static Path createTempFile(Path target) throws IOException {
+        while(true) {
+            try {
+                return Files.createFile(target.resolveSibling("." + target.getFileName() + "."
+                        + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp"));
+            } catch(FileAlreadyExistsException ex) {
+                // Try another name.
+            }
+        }
+    }
+
+    private static String normalizeLineTerminators(CharSequence text) {
+        StringBuilder normalized = new StringBuilder(text.length() + 1);
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\r') {
+                normalized.append('\n');
+                if(i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            }
+            else {
+                normalized.append(c);
+            }
+        }
+        if(normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != '\n') {
+            normalized.append('\n');
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Receives the outcome of a document I/O operation.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface Callback<T> {
+        void completed(T result);
+
+        void failed(IOException ex);
+    }
+}
@@ -0,0 +1,197 @@
+package com.kasirgalabs.etumulator.document;
+
+import com.kasirgalabs.etumulator.processor.Breakpoint;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Polygon;
+import org.fxmisc.richtext.StyledTextArea;
+
+/**
+ * Paragraph graphic factory which draws the breakpoint marker, the line number and the current
+ * line arrow. Clicking a line number toggles the breakpoint of the line, whose PC value is the
+ * line index since the assembler keeps one source line per PC value. When a heat
+ * map is shown, the background of each line number is shaded from grey to red by how often the
+ * line is executed, on a logarithmic scale relative to the hottest line. Editing the text removes
+ * the heat map, since the counts no longer match the lines.
+ * <p>
+ * Graphics are only requested for the paragraphs on screen. Instead of building new nodes with
+ * their own bindings for every request, gutters that left the scene are kept in a pool and reused.
+ * A gutter is in the pool at most once, even if it left the scene again before it was reused.
+ * The line number width and the current line are observed once by the factory, which then
+ * updates only the gutters that are currently shown.
+ */
+class GutterFactory implements IntFunction<Node> {
+    private static final Insets DEFAULT_INSETS = new Insets(0.0, 5.0, 0.0, 5.0);
+    private static final Background DEFAULT_BACKGROUND = new Background(new BackgroundFill(Color
+            .web("#ddd"), null, null));
+    private static final Color COLD = Color.web("#ddd");
+    private static final Color HOT = Color.web("#e53935");
+    private static final Background[] HEAT_BACKGROUNDS = new Background[16];
+    private static final int MAX_POOL_SIZE = 256;
+    private final Deque<Gutter> pool;
+    private final Set<Gutter> shown;
+    private final Breakpoint breakpoint;
+    private int digits;
+    private int currentLine;
+    private long[] heat;
+    private double maxHeat;
+
+    static {
+        for(int i = 0; i < HEAT_BACKGROUNDS.length; i++) {
+            Color color = COLD.interpolate(HOT, (i + 1.0) / HEAT_BACKGROUNDS.length);
+            HEAT_BACKGROUNDS[i] = new Background(new BackgroundFill(color, null, null));
+        }
+    }
+
+    GutterFactory(StyledTextArea<?, ?> area, Breakpoint breakpoint) {
+        this.breakpoint = breakpoint;
+        pool = new ArrayDeque<>(MAX_POOL_SIZE);
+        shown = new HashSet<>(128);
+        digits = digitsOf(area.getParagraphs().size());
+        currentLine = area.getCurrentParagraph();
+        area.getParagraphs().addListener((InvalidationListener) observable -> {
+            int newDigits = digitsOf(area.getParagraphs().size());
+            if(newDigits != digits) {
+                digits = newDigits;
+                shown.forEach(Gutter::updateText);
+            }
+        });
+        area.currentParagraphProperty().addListener((observable, oldLine, newLine) -> {
+            currentLine = newLine;
+            shown.forEach(Gutter::updateArrow);
+        });
+        area.plainTextChanges().subscribe(change -> {
+            if(heat != null) {
+                setHeat(null);
+            }
+        });
+    }
+
+    /**
+     * Shades the line numbers by the given execution counts.
+     *
+     * @param counts The execution counts indexed by line, or null to remove the heat map.
+     */
+    void setHeat(long[] counts) {
+        heat = counts;
+        long max = 0;
+        if(counts != null) {
+            for(long count : counts) {
+                max = Math.max(max, count);
+            }
+        }
+        maxHeat = Math.log1p(max);
+        shown.forEach(Gutter::updateHeat);
+    }
+
+    @Override
+    public Node apply(int line) {
+        Gutter gutter = poll();
+        while(gutter != null && gutter.getScene() != null) {
+            gutter = poll();
+        }
+        if(gutter == null) {
+            gutter = new Gutter();
+        }
+        gutter.setLine(line);
+        return gutter;
+    }
+
+    private Gutter poll() {
+        Gutter gutter = pool.poll();
+        if(gutter != null) {
+            gutter.inPool = false;
+        }
+        return gutter;
+    }
+
+    private static int digitsOf(int lines) {
+        return Integer.toString(Math.max(lines, 1)).length();
+    }
+
+    private class Gutter extends HBox {
+        private final Circle marker;
+        private final Label lineNo;
+        private final Polygon arrow;
+        private int line;
+        private boolean inPool;
+
+        Gutter() {
+            lineNo = new Label();
+            lineNo.setCursor(Cursor.HAND);
+            lineNo.setBackground(DEFAULT_BACKGROUND);
+            lineNo.setPadding(DEFAULT_INSETS);
+            lineNo.getStyleClass().add("lineno");
+            lineNo.setOnMouseClicked(event -> {
+                breakpoint.toggle(line);
+                shown.forEach(Gutter::updateMarker);
+            });
+            marker = new Circle(4.0, Color.RED);
+            arrow = new Polygon(0.0, 0.0, 10.0, 5.0, 0.0, 10.0);
+            arrow.setFill(Color.GREEN);
+            getChildren().addAll(marker, lineNo, arrow);
+            setCursor(Cursor.DEFAULT);
+            setAlignment(Pos.CENTER_LEFT);
+            sceneProperty().addListener((observable, oldScene, newScene) -> {
+                if(newScene != null) {
+                    shown.add(this);
+                    updateText();
+                    updateMarker();
+                    updateArrow();
+                    updateHeat();
+                }
+                else {
+                    shown.remove(this);
+                    if(!inPool && pool.size() < MAX_POOL_SIZE) {
+                        inPool = true;
+                        pool.push(this);
+                    }
+                }
+            });
+        }
+
+        void setLine(int line) {
+            this.line = line;
+            updateText();
+            updateMarker();
+            updateArrow();
+            updateHeat();
+        }
+
+        void updateText() {
+            lineNo.setText(String.format("%" + digits + "d", line + 1));
+        }
+
+        void updateMarker() {
+            marker.setVisible(breakpoint.contains(line));
+        }
+
+        void updateArrow() {
+            arrow.setVisible(line == currentLine);
+        }
+
+        void updateHeat() {
+            long count = heat != null && line < heat.length ? heat[line] : 0;
+            if(count == 0) {
+                lineNo.setBackground(DEFAULT_BACKGROUND);
+                return;
+            }
+            int level = (int) (Math.log1p(count) / maxHeat * (HEAT_BACKGROUNDS.length - 1));
+            lineNo.setBackground(HEAT_BACKGROUNDS[level]);
+        }
+    }
+}
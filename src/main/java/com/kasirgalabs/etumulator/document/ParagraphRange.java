@@ -0,0 +1,92 @@
+package com.kasirgalabs.etumulator.document;
+
+/**
+ * A mutable, inclusive range of paragraph indexes which follows the edits made to the document.
+ * Used to remember which paragraphs still need to be highlighted.
+ */
+class ParagraphRange {
+    private int from;
+    private int to;
+    private boolean empty;
+
+    ParagraphRange() {
+        empty = true;
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    int getFrom() {
+        return from;
+    }
+
+    int getTo() {
+        return to;
+    }
+
+    /**
+     * Extends the range so that it covers the given paragraphs as well.
+     *
+     * @param from The first paragraph.
+     * @param to   The last paragraph, inclusive.
+     */
+    void add(int from, int to) {
+        if(empty) {
+            this.from = from;
+            this.to = to;
+            empty = false;
+            return;
+        }
+        this.from = Math.min(this.from, from);
+        this.to = Math.max(this.to, to);
+    }
+
+    /**
+     * Removes the paragraphs up to and including the given one from the start of the range.
+     *
+     * @param to The last paragraph to remove.
+     */
+    void removeHead(int to) {
+        if(empty || to >= this.to) {
+            clear();
+            return;
+        }
+        from = Math.max(from, to + 1);
+    }
+
+    /**
+     * Moves the range after an edit that started on <code>paragraph</code>, removed
+     * <code>removedLines</code> line terminators and inserted <code>insertedLines</code> ones.
+     *
+     * @param paragraph     The paragraph where the edit started.
+     * @param removedLines  Number of removed line terminators.
+     * @param insertedLines Number of inserted line terminators.
+     */
+    void shift(int paragraph, int removedLines, int insertedLines) {
+        if(empty || to < paragraph) {
+            return;
+        }
+        if(from > paragraph + removedLines) {
+            from += insertedLines - removedLines;
+            to += insertedLines - removedLines;
+            return;
+        }
+        from = Math.min(from, paragraph);
+        to = Math.max(paragraph + insertedLines, to + insertedLines - removedLines);
+    }
+
+    void clamp(int size) {
+        if(empty) {
+            return;
+        }
+        to = Math.min(to, size - 1);
+        if(from > to) {
+            clear();
+        }
+    }
+
+    void clear() {
+        empty = true;
+    }
+}
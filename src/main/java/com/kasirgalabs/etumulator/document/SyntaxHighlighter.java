@@ -5,12 +5,21 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
 
+/**
+ * Computes the style spans of Thumb-2 source code one paragraph at a time. Multi-line comments
+ * are handled by threading a single bit of state, whether the paragraph starts inside a block
+ * comment, from one paragraph to the next. This lets the caller re-highlight only the paragraphs
+ * that were edited, and stop as soon as the comment state of the next paragraph is unchanged.
+ * <p>
+ * The highlighter does not touch any JavaFX node, so it can be used from a background thread.
+ */
 public class SyntaxHighlighter {
     private static final String[] KEYWORDS = new String[]{
             "add", "adds", "adc", "adcs", "sub", "subs", "sbc", "sbcs",
@@ -26,7 +35,7 @@ public class SyntaxHighlighter {
     };
     private static final String KEYWORD_PATTERN = "\\b(" + String.join("|", KEYWORDS) + ")\\b";
     private static final String STRING_PATTERN = "\"([^\"\\\\]|\\\\.)*\"";
-    private static final String COMMENT_PATTERN = "//[^\n]*" + "|" + "/\\*(.|\\R)*?\\*/";
+    private static final String COMMENT_PATTERN = "//.*" + "|" + "/\\*.*?(\\*/|$)";
     private static final String LABEL_PATTERN = "[a-zA-Z0-9_]+\\s*:";
     private static final Pattern PATTERN = Pattern.compile(
             "(?<KEYWORD>" + KEYWORD_PATTERN + ")"
@@ -34,6 +43,7 @@ public class SyntaxHighlighter {
             + "|(?<COMMENT>" + COMMENT_PATTERN + ")"
             + "|(?<LABEL>" + LABEL_PATTERN + ")"
     );
+    private static final String COMMENT_END = "*/";
     private final Set<String> dictionary;
 
     public SyntaxHighlighter() {
@@ -41,10 +51,31 @@ public class SyntaxHighlighter {
         dictionary.addAll(Arrays.asList(KEYWORDS));
     }
 
-    public StyleSpans<Collection<String>> highlight(String text) {
-        Matcher matcher = PATTERN.matcher(text);
-        int lastKeywordEnd = 0;
+    /**
+     * Highlights a single paragraph.
+     *
+     * @param paragraph The paragraph text without the line terminator.
+     * @param inComment Whether the paragraph starts inside a block comment.
+     *
+     * @return The style spans of the paragraph and the comment state at its end.
+     */
+    public ParagraphStyle highlight(String paragraph, boolean inComment) {
         StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+        int lastKeywordEnd = 0;
+        boolean matched = false;
+        if(inComment) {
+            int end = paragraph.indexOf(COMMENT_END);
+            if(end < 0) {
+                spansBuilder.add(Collections.singleton("comment"), paragraph.length());
+                return new ParagraphStyle(spansBuilder.create(), true);
+            }
+            lastKeywordEnd = end + COMMENT_END.length();
+            spansBuilder.add(Collections.singleton("comment"), lastKeywordEnd);
+            inComment = false;
+            matched = true;
+        }
+        Matcher matcher = PATTERN.matcher(paragraph);
+        matcher.region(lastKeywordEnd, paragraph.length());
         while(matcher.find()) {
             String styleClass
                     = matcher.group("KEYWORD") != null ? "keyword"
@@ -55,11 +86,48 @@ public class SyntaxHighlighter {
             spansBuilder.add(Collections.emptyList(), matcher.start() - lastKeywordEnd);
             spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
             lastKeywordEnd = matcher.end();
+            matched = true;
+            String comment = matcher.group("COMMENT");
+            if(comment != null && comment.startsWith("/*")
+                    && (comment.length() < 4 || !comment.endsWith(COMMENT_END))) {
+                inComment = true;
+            }
         }
-        if(lastKeywordEnd == 0) {
-            return highlightMisspelled(text);
+        if(!matched) {
+            return new ParagraphStyle(highlightMisspelled(paragraph), false);
+        }
+        spansBuilder.add(Collections.emptyList(), paragraph.length() - lastKeywordEnd);
+        return new ParagraphStyle(spansBuilder.create(), inComment);
+    }
+
+    /**
+     * Highlights consecutive paragraphs and joins their spans into a single {@link StyleSpans}
+     * which also covers the line terminators between them.
+     *
+     * @param paragraphs The paragraph texts.
+     * @param inComment  Whether the first paragraph starts inside a block comment.
+     * @param states     Receives the comment state at the start of every paragraph, followed by
+     *                   the state at the end of the last one. Must have room for
+     *                   <code>paragraphs.size() + 1</code> entries.
+     *
+     * @return The style spans of all the given paragraphs.
+     */
+    public StyleSpans<Collection<String>> highlight(List<String> paragraphs, boolean inComment,
+            boolean[] states) {
+        StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+        for(int i = 0; i < paragraphs.size(); i++) {
+            states[i] = inComment;
+            if(i > 0) {
+                spansBuilder.add(Collections.emptyList(), 1);
+            }
+            ParagraphStyle style = highlight(paragraphs.get(i), inComment);
+            spansBuilder.addAll(style.getStyleSpans());
+            inComment = style.isInComment();
+        }
+        states[paragraphs.size()] = inComment;
+        if(paragraphs.isEmpty()) {
+            spansBuilder.add(Collections.emptyList(), 0);
         }
-        spansBuilder.add(Collections.emptyList(), text.length() - lastKeywordEnd);
         return spansBuilder.create();
     }
 
@@ -85,4 +153,25 @@ public class SyntaxHighlighter {
         spansBuilder.add(Collections.emptyList(), text.length() - lastKeywordEnd);
         return spansBuilder.create();
     }
+
+    /**
+     * Style spans of a single paragraph together with the block comment state at its end.
+     */
+    public static class ParagraphStyle {
+        private final StyleSpans<Collection<String>> styleSpans;
+        private final boolean inComment;
+
+        ParagraphStyle(StyleSpans<Collection<String>> styleSpans, boolean inComment) {
+            this.styleSpans = styleSpans;
+            this.inComment = inComment;
+        }
+
+        public StyleSpans<Collection<String>> getStyleSpans() {
+            return styleSpans;
+        }
+
+        public boolean isInComment() {
+            return inComment;
+        }
+    }
 }
@@ -1,11 +1,41 @@
 package com.kasirgalabs.etumulator.document;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
 import javafx.scene.Cursor;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.EventStream;
 
+/**
+ * Code area with incremental Thumb-2 syntax highlighting.
+ * <p>
+ * Edits only record which paragraphs became dirty. Once typing pauses, the dirty paragraphs are
+ * highlighted on a background thread and the resulting style spans are applied back on the
+ * JavaFX application thread. The block comment state at the start of every paragraph is kept,
+ * so highlighting moves on to the following paragraphs only while that state keeps changing.
+ */
 public class Thumb2CodeArea extends CodeArea {
+    private static final Duration HIGHLIGHT_DELAY = Duration.ofMillis(100);
+    private static final int MAX_PARAGRAPHS_PER_PASS = 2000;
+    private final SyntaxHighlighter syntaxHighlighter;
+    private final ExecutorService executor;
+    private final List<Boolean> commentStates;
+    private final ParagraphRange dirty;
+    private final ParagraphRange inFlight;
+    private long version;
+    private boolean highlighting;
+
     public Thumb2CodeArea() {
         getStylesheets().clear();
         getStylesheets().add(Thumb2CodeArea.class.getClassLoader()
@@ -13,11 +43,20 @@ public class Thumb2CodeArea extends CodeArea {
         getStylesheets().add(Thumb2CodeArea.class.getClassLoader()
                 .getResource("styles/spellchecking.css").toExternalForm());
         setCursor(Cursor.TEXT);
-        richChanges().filter(ch -> !ch.getInserted().equals(ch.getRemoved()))
-                .subscribe(change -> {
-                    SyntaxHighlighter syntaxHighlighter = new SyntaxHighlighter();
-                    setStyleSpans(0, syntaxHighlighter.highlight(getText()));
-                });
+        syntaxHighlighter = new SyntaxHighlighter();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "syntax-highlighter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        commentStates = new ArrayList<>(256);
+        commentStates.add(Boolean.FALSE);
+        dirty = new ParagraphRange();
+        inFlight = new ParagraphRange();
+        EventStream<PlainTextChange> textChanges = plainTextChanges()
+                .filter(ch -> !ch.getInserted().equals(ch.getRemoved()));
+        textChanges.subscribe(this::textChanged);
+        textChanges.successionEnds(HIGHLIGHT_DELAY).subscribe(change -> scheduleHighlight());
         addEventFilter(KeyEvent.KEY_PRESSED, (KeyEvent e) -> {
             if(e.getCode() == KeyCode.TAB) {
                 String s = "    ";
@@ -26,4 +65,98 @@ public class Thumb2CodeArea extends CodeArea {
             }
         });
     }
+
+    private void textChanged(PlainTextChange change) {
+        version++;
+        int paragraph = offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        int removedLines = countLines(change.getRemoved());
+        int insertedLines = countLines(change.getInserted());
+        int removeEnd = Math.min(paragraph + 1 + removedLines, commentStates.size());
+        commentStates.subList(Math.min(paragraph + 1, removeEnd), removeEnd).clear();
+        commentStates.addAll(Math.min(paragraph + 1, commentStates.size()),
+                Collections.nCopies(insertedLines, Boolean.FALSE));
+        dirty.shift(paragraph, removedLines, insertedLines);
+        inFlight.shift(paragraph, removedLines, insertedLines);
+        dirty.add(paragraph, paragraph + insertedLines);
+        int paragraphs = getParagraphs().size();
+        if(commentStates.size() != paragraphs) {
+            commentStates.clear();
+            commentStates.addAll(Collections.nCopies(paragraphs, Boolean.FALSE));
+            dirty.add(0, paragraphs - 1);
+        }
+    }
+
+    /**
+     * Takes the next batch of dirty paragraphs and highlights them on the background thread,
+     * unless a batch is already being highlighted.
+     */
+    private void scheduleHighlight() {
+        dirty.clamp(getParagraphs().size());
+        if(highlighting || dirty.isEmpty()) {
+            return;
+        }
+        int from = dirty.getFrom();
+        int to = Math.min(dirty.getTo(), from + MAX_PARAGRAPHS_PER_PASS - 1);
+        dirty.removeHead(to);
+        inFlight.add(from, to);
+        List<String> paragraphs = new ArrayList<>(to - from + 1);
+        for(int i = from; i <= to; i++) {
+            paragraphs.add(getParagraph(i).getText());
+        }
+        boolean inComment = commentStates.get(from);
+        long taskVersion = version;
+        highlighting = true;
+        executor.execute(() -> {
+            boolean[] states = new boolean[paragraphs.size() + 1];
+            StyleSpans<Collection<String>> styleSpans;
+            try {
+                styleSpans = syntaxHighlighter.highlight(paragraphs, inComment, states);
+            } catch(RuntimeException ex) {
+                Platform.runLater(() -> {
+                    highlighting = false;
+                    inFlight.clear();
+                });
+                throw ex;
+            }
+            Platform.runLater(() -> applyHighlight(taskVersion, styleSpans, states));
+        });
+    }
+
+    private void applyHighlight(long taskVersion, StyleSpans<Collection<String>> styleSpans,
+            boolean[] states) {
+        highlighting = false;
+        int from = inFlight.getFrom();
+        int to = inFlight.getTo();
+        boolean lost = inFlight.isEmpty();
+        inFlight.clear();
+        if(lost || taskVersion != version) {
+            // The document changed meanwhile, the spans no longer line up with the text.
+            if(!lost) {
+                dirty.add(from, to);
+            }
+            scheduleHighlight();
+            return;
+        }
+        setStyleSpans(from, 0, styleSpans);
+        for(int i = from; i <= to; i++) {
+            commentStates.set(i, states[i - from]);
+        }
+        int next = to + 1;
+        boolean endState = states[to - from + 1];
+        if(next < commentStates.size() && commentStates.get(next) != endState) {
+            commentStates.set(next, endState);
+            dirty.add(next, next);
+        }
+        scheduleHighlight();
+    }
+
+    private static int countLines(String text) {
+        int lines = 0;
+        for(int i = 0; i < text.length(); i++) {
+            if(text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
 }
@@ -42,16 +42,84 @@ public class Assembler {
      *
      */
     public ExecutableCode assemble(String code) throws SyntaxError, LabelError {
+        return assemble(code, new AssemblyTimings());
+    }
+
+    /**
+     * Assembles the given code in to an {@link ExecutableCode} and records the time spent in each
+     * phase.
+     *
+     * @param code    The code to be assembled.
+     * @param timings Receives the time spent in each phase.
+     *
+     * @return The executable code.
+     *
+     * @throws SyntaxError If the code contains syntax error(s).
+     * @throws LabelError  If an undefined label used or duplicate labels exist.
+     * @see #assemble(String)
+     */
+    public ExecutableCode assemble(String code, AssemblyTimings timings) throws SyntaxError,
+            LabelError {
+        long start = System.nanoTime();
+        AssemblerParser.ProgContext program = parse(code);
+        timings.record(AssemblyTimings.Phase.PARSE, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        ConstantValidator.validate(program);
+        timings.record(AssemblyTimings.Phase.VALIDATE, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        ExecutableCode executableCode = link(code, program);
+        timings.record(AssemblyTimings.Phase.LINK, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        load(executableCode);
+        timings.record(AssemblyTimings.Phase.LOAD, System.nanoTime() - start);
+        return executableCode;
+    }
+
+    /**
+     * Parses the given code. The returned parse tree can be shared by the later phases so the code
+     * is parsed only once.
+     *
+     * @param code The code to be parsed.
+     *
+     * @return The parse tree of the code.
+     *
+     * @throws SyntaxError If the code contains syntax error(s).
+     */
+    public AssemblerParser.ProgContext parse(String code) throws SyntaxError {
         AssemblerLexer lexer = new AssemblerLexer(CharStreams.fromString(code));
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         AssemblerParser parser = new AssemblerParser(tokens);
-        parser.prog();
+        AssemblerParser.ProgContext program = parser.prog();
         if(parser.getNumberOfSyntaxErrors() > 0) {
             throw new SyntaxError("You have error(s) in your code.");
         }
-        ConstantValidator.validate(code);
-        ExecutableCode executableCode = linker.link(code);
+        return program;
+    }
+
+    /**
+     * Links the given code without touching the memory.
+     *
+     * @param code    The code to be linked.
+     * @param program The parse tree returned by {@link #parse(String)} for the same code.
+     *
+     * @return The executable code.
+     *
+     * @throws LabelError If an undefined label used or duplicate labels exist.
+     */
+    public ExecutableCode link(String code, AssemblerParser.ProgContext program)
+            throws LabelError {
+        return linker.link(code, program);
+    }
+
+    /**
+     * Loads the data section of the given executable code in to the memory.
+     *
+     * @param executableCode The executable code to be loaded.
+     */
+    public void load(ExecutableCode executableCode) {
         loader.load(executableCode);
-        return executableCode;
     }
 }
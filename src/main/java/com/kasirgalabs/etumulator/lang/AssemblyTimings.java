@@ -0,0 +1,78 @@
+package com.kasirgalabs.etumulator.lang;
+
+/**
+ * Time spent in each phase of an assembly.
+ *
+ * @see Assembler#assemble(String, AssemblyTimings)
+ */
+public final class AssemblyTimings {
+    private final long[] nanos;
+
+    /**
+     * Constructs an AssemblyTimings with every phase at zero.
+     */
+    public AssemblyTimings() {
+        nanos = new long[Phase.values().length];
+    }
+
+    /**
+     * Adds the given time to a phase.
+     *
+     * @param phase The phase.
+     * @param time  The time spent in nanoseconds.
+     */
+    public void record(Phase phase, long time) {
+        nanos[phase.ordinal()] += time;
+    }
+
+    /**
+     * @param phase The phase.
+     *
+     * @return The time spent in the given phase in nanoseconds.
+     */
+    public long get(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * @return The time spent in all phases in nanoseconds.
+     */
+    public long getTotal() {
+        long total = 0;
+        for(long time : nanos) {
+            total += time;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(96);
+        builder.append(String.format("Assembled in %.1f ms", getTotal() / 1e6));
+        for(Phase phase : Phase.values()) {
+            builder.append(String.format("%n%s: %.1f ms", phase, get(phase) / 1e6));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Phases of an assembly.
+     */
+    public enum Phase {
+        PARSE("lex/parse"),
+        VALIDATE("validate"),
+        LINK("link"),
+        LOAD("load");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -14,12 +14,14 @@ public final class ConstantValidator extends AssemblerBaseVisitor<Integer> {
     }
 
     public static void validate(String code) {
-        ConstantValidator constantValidator = new ConstantValidator();
         AssemblerLexer lexer = new AssemblerLexer(CharStreams.fromString(code));
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         AssemblerParser parser = new AssemblerParser(tokens);
-        AssemblerParser.ProgContext program = parser.prog();
-        constantValidator.visit(program);
+        validate(parser.prog());
+    }
+
+    public static void validate(AssemblerParser.ProgContext program) {
+        new ConstantValidator().visit(program);
     }
 
     @Override
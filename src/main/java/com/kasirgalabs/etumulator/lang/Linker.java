@@ -3,13 +3,20 @@ package com.kasirgalabs.etumulator.lang;
 import com.kasirgalabs.thumb2.AssemblerBaseVisitor;
 import com.kasirgalabs.thumb2.AssemblerLexer;
 import com.kasirgalabs.thumb2.AssemblerParser;
+import com.kasirgalabs.thumb2.ProcessorLexer;
+import com.kasirgalabs.thumb2.ProcessorParser;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
@@ -255,15 +262,31 @@ public class Linker extends AssemblerBaseVisitor<Void> {
      * @see Loader#load(Linker.ExecutableCode)
      */
     public ExecutableCode link(String code) throws LabelError {
+        AssemblerLexer lexer = new AssemblerLexer(CharStreams.fromString(code));
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        AssemblerParser parser = new AssemblerParser(tokens);
+        return link(code, parser.prog());
+    }
+
+    /**
+     * Links the given code using a parse tree which is already built from it, so the code is not
+     * parsed again.
+     *
+     * @param code    Code to be linked.
+     * @param program Parse tree of the code.
+     *
+     * @return Executable code which is ready to run.
+     *
+     * @throws LabelError If an undefined label used or duplicate labels exist.
+     * @see #link(String)
+     */
+    public ExecutableCode link(String code, AssemblerParser.ProgContext program)
+            throws LabelError {
         definedBranches.clear();
         definedData.clear();
         addressBook.clear();
         secondPass = false;
         this.code = parseCode(code);
-        AssemblerLexer lexer = new AssemblerLexer(CharStreams.fromString(code));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        AssemblerParser parser = new AssemblerParser(tokens);
-        AssemblerParser.ProgContext program = parser.prog();
         visit(program);
         secondPass = true;
         visit(program);
@@ -271,7 +294,11 @@ public class Linker extends AssemblerBaseVisitor<Void> {
         definedData.forEach((label, data) -> {
             temp.add(data);
         });
-        return new ExecutableCode(this.code, temp);
+        NavigableMap<Integer, String> labels = new TreeMap<>();
+        definedBranches.forEach((label, line) -> {
+            labels.put(line, label);
+        });
+        return new ExecutableCode(this.code, temp, labels);
     }
 
     /**
@@ -341,19 +368,23 @@ public class Linker extends AssemblerBaseVisitor<Void> {
         return address;
     }
 
+    /**
+     * Linked program. It is immutable, so a single instance can be run by many processors at the
+     * same time. Instructions are decoded on first use and the decoded form is shared by all of
+     * them.
+     */
     public static class ExecutableCode {
         private final String[] code;
         private final List<Data> data;
-
-        private ExecutableCode(String[] code, List<Data> data) {
-            this.code = new String[code.length];
-            for(int i = 0; i < code.length; i++) {
-                this.code[i] = code[i];
-            }
-            this.data = new ArrayList<>(data.size());
-            for(int i = 0; i < data.size(); i++) {
-                this.data.add(new Data(data.get(i)));
-            }
+        private final NavigableMap<Integer, String> labels;
+        private final AtomicReferenceArray<ProcessorParser.ProgContext> decoded;
+
+        private ExecutableCode(String[] code, List<Data> data,
+                NavigableMap<Integer, String> labels) {
+            this.code = Arrays.copyOf(code, code.length);
+            this.data = Collections.unmodifiableList(new ArrayList<>(data));
+            this.labels = Collections.unmodifiableNavigableMap(labels);
+            decoded = new AtomicReferenceArray<>(code.length);
         }
 
         public String[] getCode() {
@@ -371,5 +402,62 @@ public class Linker extends AssemblerBaseVisitor<Void> {
             }
             return temp;
         }
+
+        /**
+         * @return The number of instructions, without copying them.
+         */
+        public int size() {
+            return code.length;
+        }
+
+        /**
+         * @param index The index of the instruction, which is its PC value.
+         *
+         * @return The instruction, without copying the code.
+         */
+        public String getInstruction(int index) {
+            return code[index];
+        }
+
+        /**
+         * @return A read-only view of the data section. {@link Data} is immutable, so nothing is
+         *         copied.
+         */
+        public List<Data> getDataView() {
+            return data;
+        }
+
+        /**
+         * Returns the branch labels keyed by the line they are defined on. Since every line of the
+         * code takes one PC value, the line of a label is also the PC value it stands for.
+         *
+         * @return A read-only view of the branch labels.
+         */
+        public NavigableMap<Integer, String> getLabels() {
+            return labels;
+        }
+
+        /**
+         * Returns the parse tree of an instruction. An instruction is parsed the first time it is
+         * requested; threads racing on the same instruction may both parse it, but all of them get
+         * the same tree afterwards.
+         *
+         * @param index The index of the instruction, which is its PC value.
+         *
+         * @return The parse tree of the instruction.
+         */
+        public ProcessorParser.ProgContext getDecodedInstruction(int index) {
+            ProcessorParser.ProgContext tree = decoded.get(index);
+            if(tree != null) {
+                return tree;
+            }
+            ProcessorLexer lexer = new ProcessorLexer(CharStreams.fromString(code[index]));
+            ProcessorParser parser = new ProcessorParser(new CommonTokenStream(lexer));
+            tree = parser.prog();
+            if(decoded.compareAndSet(index, null, tree)) {
+                return tree;
+            }
+            return decoded.get(index);
+        }
     }
 }
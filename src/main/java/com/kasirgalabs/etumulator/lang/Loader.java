@@ -13,7 +13,7 @@ public class Loader {
     }
 
     public void load(ExecutableCode executablecode) {
-        List<Data> data = executablecode.getData();
+        List<Data> data = executablecode.getDataView();
         data.forEach(item -> {
             String value = item.getValue();
             int address = item.getAddress();
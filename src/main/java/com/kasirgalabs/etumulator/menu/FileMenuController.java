@@ -2,6 +2,7 @@ package com.kasirgalabs.etumulator.menu;
 
 import com.google.inject.Inject;
 import com.kasirgalabs.etumulator.document.Document;
+import com.kasirgalabs.etumulator.document.DocumentIO;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -10,9 +11,7 @@ import javafx.scene.control.MenuItem;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -20,6 +19,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class FileMenuController {
+    private static final DocumentIO.Callback<File> SAVE_CALLBACK
+            = new DocumentIO.Callback<File>() {
+        @Override
+        public void completed(File file) {
+        }
+
+        @Override
+        public void failed(IOException ex) {
+            System.err.println("Could not save " + ex.getMessage());
+        }
+    };
 
     public static int son;
     public final Document document;
@@ -83,7 +93,7 @@ public class FileMenuController {
 
     @FXML
     public void saveOnAction(ActionEvent event) throws IOException {
-        document.saveDocument();
+        document.saveDocument(SAVE_CALLBACK);
     }
 
     @FXML
@@ -96,7 +106,7 @@ public class FileMenuController {
             return;
         }
         document.setTargetFile(file);
-        document.saveDocument();
+        document.saveDocument(SAVE_CALLBACK);
         if (!checkDuplicate(recentFiles, file)) {
             recentFiles.add(file);
         }
@@ -115,19 +125,7 @@ public class FileMenuController {
                 openRecentTab.getItems().add(menuItem);
                 menuItem.setOnAction(new EventHandler<ActionEvent>() {
                     public void handle(ActionEvent t) {
-                        if (file != null) {
-                            StringBuilder text = new StringBuilder(256);
-                            try (BufferedReader bf = new BufferedReader(new FileReader(file))) {
-                                String line;
-                                while ((line = bf.readLine()) != null) {
-                                    text.append(line).append('\n');
-                                }
-                            } catch (Exception e) {
-                                System.out.println(e.getMessage());
-                            }
-                            document.setText(text.toString());
-                            document.setTargetFile(file);
-                        }
+                        takeFileToText(file);
                     }
                 });
             }
@@ -137,28 +135,24 @@ public class FileMenuController {
 
     public void takeFileToText(File file) {
         if (file != null) {
-            StringBuilder text = new StringBuilder(256);
-            try (BufferedReader bf = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = bf.readLine()) != null) {
-                    text.append(line).append('\n');
+            document.loadDocument(file, new DocumentIO.Callback<String>() {
+                @Override
+                public void completed(String text) {
+                    son = 0;
+                    lengthStart = document.getText().length();
+                    if (!checkDuplicate(recentFiles, file)) {
+                        recentFiles.add(file);
+                    }
+                    int b = lengthStart;
+                    setLength(b);
+                    controlRecent = true;
                 }
 
-            } catch (Exception e) {
-                System.err.println("FILE NOT FOUND!");
-            }
-
-            son = 0;
-            document.setText(text.toString());
-            document.setTargetFile(file);
-            lengthStart = document.getText().length();
-            if (!checkDuplicate(recentFiles, file)) {
-                recentFiles.add(file);
-            }
-            controlRecent = true;
-            int b = lengthStart;
-            setLength(b);
-            controlRecent = true;
+                @Override
+                public void failed(IOException ex) {
+                    System.err.println("FILE NOT FOUND!");
+                }
+            });
         }
     }
 
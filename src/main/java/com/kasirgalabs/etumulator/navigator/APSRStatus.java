@@ -19,15 +19,24 @@ public class APSRStatus implements Initializable, Observer {
     @FXML
     private Label overflow;
     private final APSR apsr;
+    private final Navigator navigator;
 
-    @Inject
     public APSRStatus(APSR apsr) {
+        this(apsr, null);
+    }
+
+    @Inject
+    public APSRStatus(APSR apsr, Navigator navigator) {
         this.apsr = apsr;
+        this.navigator = navigator;
     }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         apsr.addObserver(this);
+        if(navigator != null) {
+            navigator.addObserver(this);
+        }
     }
 
     @Override
@@ -5,6 +5,8 @@ import com.kasirgalabs.etumulator.processor.Memory;
 import com.kasirgalabs.etumulator.processor.Memory.Size;
 import com.kasirgalabs.etumulator.util.Observer;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -64,6 +66,18 @@ public class MemoryTab implements Initializable, Observer {
                 data.clear();
             }
         }
+        else if(clazz.equals(Navigator.class)) {
+            if(Navigator.REFRESH.equals(arg)) {
+                List<NavigatorRow> rows = new ArrayList<>();
+                memory.getWrittenBytes().forEach((address, value) -> {
+                    rows.add(new NavigatorRow(address, value));
+                });
+                data.setAll(rows);
+            }
+            else {
+                data.forEach(NavigatorRow::refresh);
+            }
+        }
         table.refresh();
     }
 }
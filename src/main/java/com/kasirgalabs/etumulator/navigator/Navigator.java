@@ -13,6 +13,10 @@ import javafx.scene.control.ComboBox;
 
 @Singleton
 public class Navigator extends BaseDispatcher implements Initializable, Observable {
+    /**
+     * The argument of the notification sent by {@link #refresh()}.
+     */
+    public static final String REFRESH = "refresh";
     @FXML
     private ComboBox<String> valueTypeComboBox;
 
@@ -23,6 +27,14 @@ public class Navigator extends BaseDispatcher implements Initializable, Observab
         valueTypeComboBox.getSelectionModel().select(0);
     }
 
+    /**
+     * Tells the tabs to read the whole state of the processor units again, as after a run which
+     * did not notify its changes one by one. Must be called on the JavaFX thread.
+     */
+    public void refresh() {
+        notifyObservers(Navigator.class, REFRESH);
+    }
+
     @FXML
     private void valueTypeOnAction(ActionEvent event) {
         int type = valueTypeComboBox.getSelectionModel().getSelectedIndex();
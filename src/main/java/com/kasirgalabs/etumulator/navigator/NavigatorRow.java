@@ -1,20 +1,27 @@
 package com.kasirgalabs.etumulator.navigator;
 
 import com.kasirgalabs.etumulator.string.StringUtils;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 
 public class NavigatorRow {
     private static Type type = Type.DECIMAL;
     private final String property;
+    private final ReadOnlyStringWrapper formattedValue;
+    private final ReadOnlyBooleanWrapper changed;
     private int value;
 
     public NavigatorRow(String property, int value) {
         this.property = property;
         this.value = value;
+        formattedValue = new ReadOnlyStringWrapper(this, "value", format(value));
+        changed = new ReadOnlyBooleanWrapper(this, "changed");
     }
 
     public NavigatorRow(int property, int value) {
-        this.property = Integer.toString(property);
-        this.value = value;
+        this(Integer.toString(property), value);
     }
 
     public static void setType(Type type) {
@@ -26,6 +33,61 @@ public class NavigatorRow {
     }
 
     public String getValue() {
+        return format(value);
+    }
+
+    /**
+     * Sets the raw value of this row. The bound {@link #valueProperty()} is only touched when the
+     * value actually differs, so cells showing this row are not invalidated needlessly.
+     *
+     * @param value The value to set.
+     */
+    public void setValue(int value) {
+        if(this.value == value) {
+            return;
+        }
+        this.value = value;
+        formattedValue.set(format(value));
+    }
+
+    /**
+     * @return The raw value of this row.
+     */
+    public int getRawValue() {
+        return value;
+    }
+
+    /**
+     * Re-formats the value with the current {@link Type}. Needs to be called after
+     * {@link #setType(Type)} since the type is shared by all rows.
+     */
+    public void refresh() {
+        formattedValue.set(format(value));
+    }
+
+    /**
+     * @return The formatted value as an observable property, used by the table cells.
+     */
+    public ReadOnlyStringProperty valueProperty() {
+        return formattedValue.getReadOnlyProperty();
+    }
+
+    public boolean isChanged() {
+        return changed.get();
+    }
+
+    public void setChanged(boolean changed) {
+        this.changed.set(changed);
+    }
+
+    /**
+     * @return Whether the row changed in the last step or run segment.
+     */
+    public ReadOnlyBooleanProperty changedProperty() {
+        return changed.getReadOnlyProperty();
+    }
+
+    private static String format(int value) {
         switch(type) {
             case DECIMAL:
                 return Integer.toString(value);
@@ -40,10 +102,6 @@ public class NavigatorRow {
         }
     }
 
-    public void setValue(int value) {
-        this.value = value;
-    }
-
     public enum Type {
         DECIMAL, HEX, ASCII, BINARY;
     }
@@ -6,16 +6,35 @@ import com.kasirgalabs.etumulator.processor.PC;
 import com.kasirgalabs.etumulator.processor.RegisterFile;
 import com.kasirgalabs.etumulator.util.Observer;
 import java.net.URL;
+import java.util.BitSet;
 import java.util.ResourceBundle;
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 
+/**
+ * Shows the general purpose registers, LR and PC. Rows are bound to their register by index, and
+ * register writes only mark the row as dirty. Dirty rows are written to the table at most once
+ * per frame, so a burst of writes costs a few cell updates instead of a table re-layout.
+ * <p>
+ * Rows changed since the beginning of the last step or run segment are highlighted with the
+ * <code>changed</code> pseudo class. A {@link Navigator#refresh()} starts a new segment and reads
+ * every register again, so after a run which did not notify its writes the rows changed by the
+ * whole run are highlighted.
+ */
 public class RegistersTab implements Initializable, Observer {
+    private static final int REGISTER_COUNT = 13;
+    private static final int LR_INDEX = REGISTER_COUNT;
+    private static final int PC_INDEX = REGISTER_COUNT + 1;
+    private static final PseudoClass CHANGED = PseudoClass.getPseudoClass("changed");
     @FXML
     private TableView<NavigatorRow> table;
     @FXML
@@ -27,6 +46,10 @@ public class RegistersTab implements Initializable, Observer {
     private final LR lr;
     private final Navigator navigator;
     private final ObservableList<NavigatorRow> data;
+    private final NavigatorRow[] rows;
+    private final BitSet dirty;
+    private final AnimationTimer flusher;
+    private boolean newSegment;
 
     @Inject
     public RegistersTab(RegisterFile registerFile, PC pc, LR lr, Navigator navigator) {
@@ -35,6 +58,14 @@ public class RegistersTab implements Initializable, Observer {
         this.lr = lr;
         this.navigator = navigator;
         data = FXCollections.observableArrayList();
+        rows = new NavigatorRow[PC_INDEX + 1];
+        dirty = new BitSet(rows.length);
+        flusher = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        };
     }
 
     @Override
@@ -46,34 +77,105 @@ public class RegistersTab implements Initializable, Observer {
         property.setCellValueFactory(new PropertyValueFactory<>("property"));
         property.setComparator(new NavigatorRowComparator());
         value.setCellValueFactory(new PropertyValueFactory<>("value"));
-        for(int i = 0; i < 13; i++) {
+        for(int i = 0; i < REGISTER_COUNT; i++) {
             String registerName = "r" + Integer.toString(i);
-            data.add(new NavigatorRow(registerName, registerFile.getValue(registerName)));
+            rows[i] = new NavigatorRow(registerName, registerFile.getValue(registerName));
         }
-        data.add(new NavigatorRow("LR", lr.getValue()));
-        data.add(new NavigatorRow("PC", pc.getValue()));
+        rows[LR_INDEX] = new NavigatorRow("LR", lr.getValue());
+        rows[PC_INDEX] = new NavigatorRow("PC", pc.getValue());
+        data.addAll(rows);
+        table.setRowFactory(tableView -> new ChangeAwareRow());
         table.setItems(data);
+        flusher.start();
     }
 
     @Override
     public void update(Class<?> clazz, Object arg) {
         if(clazz.equals(RegisterFile.class)) {
-            String registerName = (String) arg;
-            for(int i = 0; i < data.size(); i++) {
-                NavigatorRow navigatorRow = data.get(i);
-                if(navigatorRow.getProperty().equals(registerName)) {
-                    navigatorRow.setValue(registerFile.getValue(registerName));
-                }
+            if("clear".equals(arg)) {
+                newSegment = true;
+                dirty.set(0, REGISTER_COUNT);
+            }
+            else {
+                dirty.set(indexOf((String) arg));
             }
         }
         else if(clazz.equals(PC.class)) {
-            NavigatorRow navigatorRow = data.get(data.size() - 1);
-            navigatorRow.setValue(pc.getValue());
+            dirty.set(PC_INDEX);
         }
         else if(clazz.equals(LR.class)) {
-            NavigatorRow navigatorRow = data.get(data.size() - 2);
-            navigatorRow.setValue(lr.getValue());
+            dirty.set(LR_INDEX);
+        }
+        else if(clazz.equals(Navigator.class)) {
+            for(NavigatorRow row : rows) {
+                row.refresh();
+            }
+            if(Navigator.REFRESH.equals(arg)) {
+                newSegment = true;
+                dirty.set(0, rows.length);
+            }
+        }
+    }
+
+    /**
+     * Applies the register changes collected since the last frame. Only the dirty rows are read
+     * back from the processor units and written to their cells.
+     */
+    void flush() {
+        if(dirty.isEmpty()) {
+            return;
+        }
+        if(newSegment) {
+            newSegment = false;
+            for(NavigatorRow row : rows) {
+                row.setChanged(false);
+            }
+        }
+        for(int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            NavigatorRow row = rows[i];
+            int oldValue = row.getRawValue();
+            row.setValue(valueOf(i));
+            if(oldValue != row.getRawValue()) {
+                row.setChanged(true);
+            }
+        }
+        dirty.clear();
+    }
+
+    private int valueOf(int index) {
+        if(index == PC_INDEX) {
+            return pc.getValue();
+        }
+        if(index == LR_INDEX) {
+            return lr.getValue();
+        }
+        return registerFile.getValue(rows[index].getProperty());
+    }
+
+    private static int indexOf(String registerName) {
+        return Integer.parseInt(registerName.substring(1));
+    }
+
+    private static class ChangeAwareRow extends TableRow<NavigatorRow> {
+        private final InvalidationListener changedListener;
+        private NavigatorRow boundRow;
+
+        ChangeAwareRow() {
+            changedListener = observable -> {
+                pseudoClassStateChanged(CHANGED, boundRow != null && boundRow.isChanged());
+            };
+            itemProperty().addListener((observable, oldRow, newRow) -> bind(newRow));
+        }
+
+        private void bind(NavigatorRow row) {
+            if(boundRow != null) {
+                boundRow.changedProperty().removeListener(changedListener);
+            }
+            boundRow = row;
+            if(row != null) {
+                row.changedProperty().addListener(changedListener);
+            }
+            pseudoClassStateChanged(CHANGED, row != null && row.isChanged());
         }
-        table.refresh();
     }
 }
@@ -4,6 +4,8 @@ import com.google.inject.Inject;
 import com.kasirgalabs.etumulator.processor.Stack;
 import com.kasirgalabs.etumulator.util.Observer;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -63,6 +65,19 @@ public class StackTab implements Initializable, Observer {
                     break;
             }
         }
+        else if(clazz.equals(Navigator.class)) {
+            if(Navigator.REFRESH.equals(arg)) {
+                List<Integer> items = stack.getItems();
+                List<NavigatorRow> rows = new ArrayList<>(items.size());
+                for(int i = 0; i < items.size(); i++) {
+                    rows.add(new NavigatorRow(i, items.get(items.size() - 1 - i)));
+                }
+                data.setAll(rows);
+            }
+            else {
+                data.forEach(NavigatorRow::refresh);
+            }
+        }
         table.refresh();
     }
 }
@@ -1,7 +1,6 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
@@ -20,8 +19,23 @@ import com.kasirgalabs.etumulator.util.Observer;
  * @author Görkem Mülayim
  * @see Dispatcher
  */
-@Singleton
 public class APSR implements Observable {
+    /**
+     * The bit of the negative flag in {@link #getFlags()}.
+     */
+    public static final int NEGATIVE = 8;
+    /**
+     * The bit of the zero flag in {@link #getFlags()}.
+     */
+    public static final int ZERO = 4;
+    /**
+     * The bit of the carry flag in {@link #getFlags()}.
+     */
+    public static final int CARRY = 2;
+    /**
+     * The bit of the overflow flag in {@link #getFlags()}.
+     */
+    public static final int OVERFLOW = 1;
     private boolean negative;
     private boolean zero;
     private boolean carry;
@@ -121,6 +135,28 @@ public class APSR implements Observable {
         dispatcher.notifyObservers(APSR.class);
     }
 
+    /**
+     * @return The flags packed in to the bits {@link #NEGATIVE}, {@link #ZERO}, {@link #CARRY}
+     *         and {@link #OVERFLOW}.
+     */
+    public int getFlags() {
+        return (negative ? NEGATIVE : 0) | (zero ? ZERO : 0) | (carry ? CARRY : 0)
+                | (overflow ? OVERFLOW : 0);
+    }
+
+    /**
+     * Sets all the flags at once.
+     *
+     * @param flags The flags packed as by {@link #getFlags()}.
+     */
+    public void setFlags(int flags) {
+        negative = (flags & NEGATIVE) != 0;
+        zero = (flags & ZERO) != 0;
+        carry = (flags & CARRY) != 0;
+        overflow = (flags & OVERFLOW) != 0;
+        dispatcher.notifyObservers(APSR.class);
+    }
+
     /**
      * Updates negative and zero flag depending on the given value as parameter.
      *
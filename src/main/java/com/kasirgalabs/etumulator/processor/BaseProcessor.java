@@ -13,10 +13,8 @@ import com.kasirgalabs.etumulator.visitor.ShiftVisitor;
 import com.kasirgalabs.etumulator.visitor.SingleDataMemoryVisitor;
 import com.kasirgalabs.etumulator.visitor.StackVisitor;
 import com.kasirgalabs.thumb2.ProcessorBaseVisitor;
-import com.kasirgalabs.thumb2.ProcessorLexer;
 import com.kasirgalabs.thumb2.ProcessorParser;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import java.util.concurrent.CancellationException;
 
 public class BaseProcessor extends ProcessorBaseVisitor<Void> implements Processor {
     private final ArithmeticVisitor arithmeticVisitor;
@@ -29,8 +27,17 @@ public class BaseProcessor extends ProcessorBaseVisitor<Void> implements Process
     private final BranchVisitor branchVisitor;
     private final SingleDataMemoryVisitor singleDataMemoryVisitor;
     private final StackVisitor stackVisitor;
+    private final ProcessorUnits processorUnits;
     private final PC pc;
+    private final Stack stack;
+    private final Breakpoint breakpoint;
     private final BitFieldVisitor bitFieldVisitor;
+    private Profile profile;
+    private CallProfile callProfile;
+    private TraceWriter trace;
+    private UndoLog undoLog;
+    private Watchpoints watchpoints;
+    private LoopDetector loopDetector;
 
     public BaseProcessor(ProcessorUnits processorUnits) {
         arithmeticVisitor = new ArithmeticVisitor(processorUnits.getRegisterFile(),
@@ -51,7 +58,10 @@ public class BaseProcessor extends ProcessorBaseVisitor<Void> implements Process
         stackVisitor = new StackVisitor(processorUnits.getRegisterFile(), processorUnits.getPC(),
                 processorUnits.getLR(), processorUnits.getStack()
         );
+        this.processorUnits = processorUnits;
         pc = processorUnits.getPC();
+        stack = processorUnits.getStack();
+        breakpoint = processorUnits.getBreakpoint();
         bitFieldVisitor=new BitFieldVisitor(processorUnits.getRegisterFile());
     }
 
@@ -92,7 +102,15 @@ public class BaseProcessor extends ProcessorBaseVisitor<Void> implements Process
 
     @Override
     public Void visitBranch(ProcessorParser.BranchContext ctx) {
-        return branchVisitor.visit(ctx);
+        final int branchPC = pc.getValue();
+        branchVisitor.visit(ctx);
+        if(loopDetector != null && pc.getValue() < branchPC) {
+            loopDetector.backwardBranch(branchPC);
+        }
+        if(callProfile != null && ctx.bl() != null && ctx.bl().DECIMAL() != null) {
+            callProfile.enter(pc.getValue());
+        }
+        return null;
     }
 
     @Override
@@ -105,29 +123,270 @@ public class BaseProcessor extends ProcessorBaseVisitor<Void> implements Process
 
     @Override
     public Void visitStack(ProcessorParser.StackContext ctx) {
-        return stackVisitor.visit(ctx);
+        stackVisitor.visit(ctx);
+        if(callProfile != null && ctx.pop() != null && !ctx.pop().regList().PC().isEmpty()) {
+            callProfile.exit();
+        }
+        return null;
+    }
+
+    /**
+     * Attaches a profile which counts the executions of every instruction in later runs.
+     *
+     * @param profile The profile, or null to stop profiling.
+     */
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * @return The attached profile, null if profiling is off.
+     */
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Attaches a call profile which follows the calls and returns of later runs.
+     *
+     * @param callProfile The call profile, or null to stop profiling calls.
+     */
+    public void setCallProfile(CallProfile callProfile) {
+        this.callProfile = callProfile;
+    }
+
+    /**
+     * @return The attached call profile, null if calls are not profiled.
+     */
+    public CallProfile getCallProfile() {
+        return callProfile;
+    }
+
+    /**
+     * Attaches a trace writer which records every instruction of later runs.
+     *
+     * @param trace The trace writer, or null to stop tracing.
+     */
+    public void setTrace(TraceWriter trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * @return The attached trace writer, null if tracing is off.
+     */
+    public TraceWriter getTrace() {
+        return trace;
+    }
+
+    /**
+     * Attaches an undo log which records the changes of every instruction of later runs.
+     *
+     * @param undoLog The undo log, or null to stop logging.
+     */
+    public void setUndoLog(UndoLog undoLog) {
+        this.undoLog = undoLog;
+    }
+
+    /**
+     * @return The attached undo log, null if logging is off.
+     */
+    public UndoLog getUndoLog() {
+        return undoLog;
+    }
+
+    /**
+     * Attaches watchpoints which may stop later runs right after an instruction accesses a
+     * watched address. A run stopped by a watchpoint ends with the breakpoint status.
+     *
+     * @param watchpoints The watchpoints, or null to ignore them.
+     */
+    public void setWatchpoints(Watchpoints watchpoints) {
+        this.watchpoints = watchpoints;
+    }
+
+    /**
+     * @return The attached watchpoints, null if none are attached.
+     */
+    public Watchpoints getWatchpoints() {
+        return watchpoints;
+    }
+
+    /**
+     * Attaches a loop detector which ends later runs whose machine state repeats.
+     *
+     * @param loopDetector The loop detector, or null to stop detecting loops.
+     */
+    public void setLoopDetector(LoopDetector loopDetector) {
+        this.loopDetector = loopDetector;
+    }
+
+    /**
+     * @return The attached loop detector, null if loops are not detected.
+     */
+    public LoopDetector getLoopDetector() {
+        return loopDetector;
+    }
+
+    /**
+     * @return The units the processor runs on.
+     */
+    ProcessorUnits getProcessorUnits() {
+        return processorUnits;
+    }
+
+    @Override
+    public ExecutionSession openSession(ExecutableCode executableCode) {
+        return new ExecutionSession(this, executableCode);
     }
 
     @Override
     public void run(ExecutableCode executableCode) {
+        run(executableCode, RunLimits.NONE);
+    }
+
+    @Override
+    public RunResult run(ExecutableCode executableCode, RunLimits limits) {
+        restart();
+        return resume(executableCode, limits);
+    }
+
+    /**
+     * Moves the PC to the first instruction and starts the hit counts, the call stack and the
+     * undo log over, as a program started from the beginning.
+     */
+    void restart() {
         pc.setValue(0);
-        final String[] instructions = executableCode.getCode();
-        Breakpoint point = Breakpoint.getInstance();
-        while(pc.getValue() < instructions.length && (point.getPoint() != pc.getValue())) {
-            if(pc.getValue() < 0) {
-                throw new IllegalPCException("PC can not be negative.");
+        breakpoint.resetHits();
+        if(callProfile != null) {
+            callProfile.restart();
+        }
+        if(undoLog != null) {
+            undoLog.clear();
+        }
+        if(loopDetector != null) {
+            loopDetector.clear();
+        }
+    }
+
+    @Override
+    public RunResult resume(ExecutableCode executableCode, RunLimits limits) {
+        return resume(executableCode, limits, -1, 0, false);
+    }
+
+    /**
+     * Resumes the program like {@link #resume(ExecutableCode, RunLimits)}, and also pauses in front
+     * of the instruction at the given PC value once the stack is back to the given depth.
+     *
+     * @param executableCode  The code being run.
+     * @param limits          The limits of the run.
+     * @param stopAt          The PC value to pause at, or -1 for none.
+     * @param stopDepth       The most items the stack may hold to pause at <code>stopAt</code>.
+     * @param leaveBreakpoint True to execute the first instruction even if a breakpoint or
+     *                        <code>stopAt</code> is on it, as when continuing from a pause.
+     *
+     * @return The result of the run, {@link RunResult.Status#PAUSED} if it paused at
+     *         <code>stopAt</code>.
+     */
+    RunResult resume(ExecutableCode executableCode, RunLimits limits, int stopAt, int stopDepth,
+            boolean leaveBreakpoint) {
+        final long start = System.nanoTime();
+        long executed = 0;
+        long nextCheck = nextCheck(executed, limits);
+        RunResult.Status status = RunResult.Status.COMPLETED;
+        final int length = executableCode.size();
+        final long[] counts = profile == null ? null : profile.prepare(executableCode);
+        final CallProfile calls = callProfile;
+        if(calls != null) {
+            calls.prepare(executableCode);
+        }
+        final TraceWriter tracer = trace;
+        if(tracer != null) {
+            tracer.prepare();
+        }
+        final UndoLog undo = undoLog;
+        if(undo != null) {
+            undo.prepare();
+        }
+        final Watchpoints watch = watchpoints;
+        if(watch != null) {
+            watch.takeStop();
+        }
+        final LoopDetector loops = loopDetector;
+        try {
+            while(pc.getValue() < length) {
+                if(executed != 0 || !leaveBreakpoint) {
+                    if(breakpoint.hit(pc.getValue(), processorUnits)) {
+                        status = RunResult.Status.BREAKPOINT;
+                        break;
+                    }
+                    if(pc.getValue() == stopAt && stack.size() <= stopDepth) {
+                        status = RunResult.Status.PAUSED;
+                        break;
+                    }
+                }
+                if(executed == nextCheck) {
+                    RunResult.Status exceeded = checkLimits(executed, start, limits);
+                    if(exceeded != null) {
+                        status = exceeded;
+                        break;
+                    }
+                    nextCheck = nextCheck(executed, limits);
+                }
+                if(pc.getValue() < 0) {
+                    throw new IllegalPCException("PC can not be negative.");
+                }
+                if(counts != null) {
+                    counts[pc.getValue()]++;
+                }
+                if(calls != null) {
+                    calls.count();
+                }
+                final int current = pc.getValue();
+                if(tracer != null) {
+                    tracer.before(current);
+                }
+                if(undo != null) {
+                    undo.before();
+                }
+                visit(executableCode.getDecodedInstruction(current));
+                if(tracer != null) {
+                    tracer.after();
+                }
+                if(undo != null) {
+                    undo.after(current);
+                }
+                pc.increment();
+                executed++;
+                if(watch != null && watch.takeStop()) {
+                    status = RunResult.Status.BREAKPOINT;
+                    break;
+                }
+                if(loops != null && loops.isCycleFound()) {
+                    status = RunResult.Status.NON_TERMINATING;
+                    break;
+                }
             }
-            String instruction = instructions[pc.getValue()];
-            execute(instruction);
-            pc.increment();
+        } catch(CancellationException ex) {
+            status = RunResult.Status.CANCELLED;
         }
+        return new RunResult(status, executed, System.nanoTime() - start);
+    }
+
+    private static long nextCheck(long executed, RunLimits limits) {
+        long remaining = limits.getMaxInstructions() - executed;
+        return executed + Math.min(remaining, limits.getCheckInterval());
     }
 
-    private void execute(String instruction) {
-        ProcessorLexer lexer = new ProcessorLexer(CharStreams.fromString(instruction));
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        ProcessorParser parser = new ProcessorParser(tokens);
-        ProcessorParser.ProgContext tree = parser.prog();
-        this.visit(tree);
+    private static RunResult.Status checkLimits(long executed, long start, RunLimits limits) {
+        if(Thread.currentThread().isInterrupted()) {
+            return RunResult.Status.CANCELLED;
+        }
+        if(executed >= limits.getMaxInstructions()) {
+            return RunResult.Status.BUDGET_EXCEEDED;
+        }
+        if(System.nanoTime() - start >= limits.getTimeoutNanos()) {
+            return RunResult.Status.TIMED_OUT;
+        }
+        return null;
     }
 }
@@ -1,5 +1,7 @@
 package com.kasirgalabs.etumulator.processor;
 
+import java.util.Random;
+
 public class BaseProcessorUnits implements ProcessorUnits {
     private RegisterFile registerFile;
     private APSR apsr;
@@ -8,6 +10,7 @@ public class BaseProcessorUnits implements ProcessorUnits {
     private UART uart;
     private PC pc;
     private LR lr;
+    private Breakpoint breakpoint;
 
     public BaseProcessorUnits() {
         registerFile = new RegisterFile();
@@ -17,10 +20,16 @@ public class BaseProcessorUnits implements ProcessorUnits {
         uart = new UART(registerFile);
         pc = new PC();
         lr = new LR();
+        breakpoint = new Breakpoint();
     }
 
     public BaseProcessorUnits(RegisterFile registerFile, APSR apsr, Stack stack, Memory memory,
             UART uart, PC pc, LR lr) {
+        this(registerFile, apsr, stack, memory, uart, pc, lr, new Breakpoint());
+    }
+
+    public BaseProcessorUnits(RegisterFile registerFile, APSR apsr, Stack stack, Memory memory,
+            UART uart, PC pc, LR lr, Breakpoint breakpoint) {
         this.registerFile = registerFile;
         this.apsr = apsr;
         this.stack = stack;
@@ -28,6 +37,7 @@ public class BaseProcessorUnits implements ProcessorUnits {
         this.uart = uart;
         this.pc = pc;
         this.lr = lr;
+        this.breakpoint = breakpoint;
     }
 
     @Override
@@ -100,6 +110,24 @@ public class BaseProcessorUnits implements ProcessorUnits {
         return lr;
     }
 
+    @Override
+    public void setBreakpoint(Breakpoint breakpoint) {
+        this.breakpoint = breakpoint;
+    }
+
+    @Override
+    public Breakpoint getBreakpoint() {
+        return breakpoint;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        Random seeds = new Random(seed);
+        memory.setSeed(seeds.nextLong());
+        stack.setSeed(seeds.nextLong());
+        lr.setSeed(seeds.nextLong());
+    }
+
     @Override
     public void reset() {
         registerFile.reset();
@@ -1,56 +1,256 @@
 package com.kasirgalabs.etumulator.processor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
-  * A breakpoint is similar to program counter (PC).
-  *
-  * Enabling a breakpoint on a given position x assures that
-  * when program counter occurs to be x, program terminates
-  *
-  * Disabling the breakpoint assures that entire program runs
-*/
+ * The code breakpoints of a set of processor units. A processor stops in front of an instruction
+ * whose PC value is a breakpoint, and since the PC value is the line of the instruction in the
+ * source, a breakpoint is simply a line number counted from zero.
+ * <p>
+ * The points are kept in a bit set, so checking the PC costs the same no matter how many points
+ * there are, and next to nothing when there are none. A point may have a
+ * {@link BreakpointCondition}, compiled once when the point is added, and a hit count: the
+ * processor then stops only when the condition holds, and only once it has held as many times as
+ * the hit count. Plain points never touch the conditions.
+ * <p>
+ * Points can be changed from any thread, also while a processor is running. Changes replace the
+ * bit set instead of updating it, so a running processor sees either the old or the new points.
+ * Hits are counted by the thread running the processor.
+ *
+ * @see ProcessorUnits#getBreakpoint()
+ */
 public class Breakpoint {
-  private int point;
-  private static Breakpoint breakpoint;
-
-  /**
-    * Construct a Breakpoint with an infinite point
-  */
-  private Breakpoint() {
-    reset();
-  }
-
-
-  /**
-    * Singleton structure implemented.
-  */
-  public static Breakpoint getInstance() {
-    if(breakpoint==null) {
-      breakpoint = new Breakpoint();
-    } return breakpoint;
-  }
-
-
-  /**
-    * @param point The point value to set the breakpoint
-  */
-  public void setPoint(int point) {
-    this.point = point;
-  }
-
-
-  /**
-    * @return The point where breakpoint is.
-  */
-  public int getPoint() {
-    return point;
-  }
-
-  /**
-    * Sets the breakpoint to an infinite point
-    * to execute the entire program.
-  */
-  public void reset() {
-    point = Integer.MAX_VALUE;
-  }
+    private static final int LIMIT = 1 << 24;
+    private static final long[] EMPTY = new long[0];
+    private volatile long[] bits;
+    private volatile Map<Integer, Spec> specs;
+
+    /**
+     * Constructs a Breakpoint without any points.
+     */
+    public Breakpoint() {
+        reset();
+    }
+
+    /**
+     * Adds a plain point, replacing the condition and hit count the point may have had.
+     *
+     * @param point The PC value to stop at.
+     */
+    public void add(int point) {
+        add(point, null, 1);
+    }
+
+    /**
+     * Adds a point, replacing the condition and hit count the point may have had.
+     *
+     * @param point     The PC value to stop at.
+     * @param condition The condition which must hold to stop, or null to always stop.
+     * @param hitCount  The number of times the point must be reached with the condition holding
+     *                  before the processor stops, at least 1.
+     */
+    public synchronized void add(int point, BreakpointCondition condition, int hitCount) {
+        if(point < 0 || point >= LIMIT) {
+            throw new IllegalArgumentException("Invalid breakpoint: " + point);
+        }
+        if(hitCount < 1) {
+            throw new IllegalArgumentException("Hit count must be at least 1.");
+        }
+        long[] newBits = Arrays.copyOf(bits, Math.max(bits.length, (point >>> 6) + 1));
+        newBits[point >>> 6] |= 1L << point;
+        Map<Integer, Spec> newSpecs = new HashMap<>(specs);
+        if(condition == null && hitCount == 1) {
+            newSpecs.remove(point);
+        }
+        else {
+            newSpecs.put(point, new Spec(condition, hitCount));
+        }
+        specs = newSpecs;
+        bits = newBits;
+    }
+
+    /**
+     * @param point The PC value not to stop at any more.
+     */
+    public synchronized void remove(int point) {
+        if(!contains(point)) {
+            return;
+        }
+        long[] newBits = bits.clone();
+        newBits[point >>> 6] &= ~(1L << point);
+        int length = newBits.length;
+        while(length > 0 && newBits[length - 1] == 0) {
+            length--;
+        }
+        bits = length == 0 ? EMPTY : Arrays.copyOf(newBits, length);
+        if(specs.containsKey(point)) {
+            Map<Integer, Spec> newSpecs = new HashMap<>(specs);
+            newSpecs.remove(point);
+            specs = newSpecs;
+        }
+    }
+
+    /**
+     * Removes the point if it exists, otherwise adds it as a plain point.
+     *
+     * @param point The PC value.
+     *
+     * @return True if the point is added, false if it is removed.
+     */
+    public synchronized boolean toggle(int point) {
+        if(contains(point)) {
+            remove(point);
+            return false;
+        }
+        add(point);
+        return true;
+    }
+
+    /**
+     * @param point The PC value.
+     *
+     * @return True if there is a point at the PC value, whatever its condition, otherwise false.
+     */
+    public boolean contains(int point) {
+        long[] current = bits;
+        int word = point >>> 6;
+        return word < current.length && (current[word] & 1L << point) != 0;
+    }
+
+    /**
+     * Checks whether the processor should stop in front of the instruction at the given PC value.
+     * Reaching a point with a hit count counts as a hit when its condition holds.
+     *
+     * @param pc             The PC value of the next instruction.
+     * @param processorUnits The units the condition is evaluated on.
+     *
+     * @return True if the processor should stop, otherwise false.
+     */
+    public boolean hit(int pc, ProcessorUnits processorUnits) {
+        if(!contains(pc)) {
+            return false;
+        }
+        Spec spec = specs.get(pc);
+        return spec == null || spec.hit(processorUnits);
+    }
+
+    /**
+     * @param point The PC value.
+     *
+     * @return The condition of the point, null if it has none.
+     */
+    public BreakpointCondition getCondition(int point) {
+        Spec spec = specs.get(point);
+        return spec == null ? null : spec.condition;
+    }
+
+    /**
+     * @return The points in increasing order.
+     */
+    public List<Integer> getPoints() {
+        long[] current = bits;
+        List<Integer> points = new ArrayList<>();
+        for(int word = 0; word < current.length; word++) {
+            for(long rest = current[word]; rest != 0; rest &= rest - 1) {
+                points.add(word << 6 | Long.numberOfTrailingZeros(rest));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * @return True if there are no points, otherwise false.
+     */
+    public boolean isEmpty() {
+        return bits.length == 0;
+    }
+
+    /**
+     * Starts counting the hits of every point from zero, as a new run begins.
+     */
+    public void resetHits() {
+        for(Spec spec : specs.values()) {
+            spec.hits = 0;
+        }
+    }
+
+    /**
+     * Replaces the points of this breakpoint with copies of the points of the given one.
+     *
+     * @param other The breakpoint to copy.
+     */
+    public synchronized void copyFrom(Breakpoint other) {
+        Map<Integer, Spec> newSpecs = new HashMap<>();
+        synchronized(other) {
+            other.specs.forEach((point, spec) -> newSpecs.put(point, spec.copy()));
+            specs = newSpecs;
+            bits = other.bits;
+        }
+    }
+
+    /**
+     * Replaces every point with a single plain point. Kept for callers which use a single point.
+     *
+     * @param point The PC value to stop at. A negative value or {@link Integer#MAX_VALUE} removes
+     *              every point.
+     */
+    public synchronized void setPoint(int point) {
+        reset();
+        if(point >= 0 && point != Integer.MAX_VALUE) {
+            add(point);
+        }
+    }
+
+    /**
+     * @return The lowest point, {@link Integer#MAX_VALUE} if there are none.
+     */
+    public int getPoint() {
+        long[] current = bits;
+        for(int word = 0; word < current.length; word++) {
+            if(current[word] != 0) {
+                return word << 6 | Long.numberOfTrailingZeros(current[word]);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Removes every point to execute the entire program.
+     */
+    public synchronized void reset() {
+        specs = Collections.emptyMap();
+        bits = EMPTY;
+    }
+
+    private static final class Spec {
+        private final BreakpointCondition condition;
+        private final int hitCount;
+        private int hits;
+
+        Spec(BreakpointCondition condition, int hitCount) {
+            this.condition = condition;
+            this.hitCount = hitCount;
+        }
+
+        boolean hit(ProcessorUnits processorUnits) {
+            if(condition != null && !condition.test(processorUnits)) {
+                return false;
+            }
+            if(hits < hitCount) {
+                hits++;
+            }
+            return hits >= hitCount;
+        }
+
+        Spec copy() {
+            Spec spec = new Spec(condition, hitCount);
+            spec.hits = hits;
+            return spec;
+        }
+    }
 }
@@ -0,0 +1,222 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Condition of a {@link Breakpoint}, compiled once from text in to a tree of small evaluators.
+ * A condition compares registers, <code>lr</code> and numbers, tests the flags <code>n</code>,
+ * <code>z</code>, <code>c</code> and <code>v</code>, and combines them:
+ * <pre>
+ * r0 == 5
+ * r1 &gt;= r2 &amp;&amp; !z
+ * (c || v) &amp;&amp; lr != 0x10
+ * </pre>
+ * Comparisons are signed and the operators are <code>==</code>, <code>!=</code>,
+ * <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code>. Names are not
+ * case sensitive.
+ */
+public final class BreakpointCondition {
+    private final String source;
+    private final Predicate<ProcessorUnits> predicate;
+
+    private BreakpointCondition(String source, Predicate<ProcessorUnits> predicate) {
+        this.source = source;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Compiles a condition.
+     *
+     * @param source The text of the condition.
+     *
+     * @return The compiled condition.
+     *
+     * @throws IllegalArgumentException If the text is not a valid condition.
+     */
+    public static BreakpointCondition compile(String source) {
+        Parser parser = new Parser(tokenize(source));
+        Predicate<ProcessorUnits> predicate = parser.or();
+        if(parser.position != parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected \"" + parser.peek() + "\" in \""
+                    + source + "\".");
+        }
+        return new BreakpointCondition(source.trim(), predicate);
+    }
+
+    /**
+     * @param processorUnits The units the condition is evaluated on.
+     *
+     * @return True if the condition holds, otherwise false.
+     */
+    public boolean test(ProcessorUnits processorUnits) {
+        return predicate.test(processorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static List<String> tokenize(String source) {
+        List<String> tokens = new ArrayList<>();
+        String text = source.toLowerCase(Locale.ENGLISH);
+        int i = 0;
+        while(i < text.length()) {
+            char c = text.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+            }
+            else if(Character.isLetterOrDigit(c)) {
+                int start = i;
+                while(i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            }
+            else if(text.startsWith("&&", i) || text.startsWith("||", i)
+                    || text.startsWith("==", i) || text.startsWith("!=", i)
+                    || text.startsWith("<=", i) || text.startsWith(">=", i)) {
+                tokens.add(text.substring(i, i + 2));
+                i += 2;
+            }
+            else if("()<>!-".indexOf(c) >= 0) {
+                tokens.add(Character.toString(c));
+                i++;
+            }
+            else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in \"" + source
+                        + "\".");
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private final List<String> tokens;
+        private int position;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        Predicate<ProcessorUnits> or() {
+            Predicate<ProcessorUnits> left = and();
+            while(accept("||")) {
+                left = left.or(and());
+            }
+            return left;
+        }
+
+        Predicate<ProcessorUnits> and() {
+            Predicate<ProcessorUnits> left = unary();
+            while(accept("&&")) {
+                left = left.and(unary());
+            }
+            return left;
+        }
+
+        Predicate<ProcessorUnits> unary() {
+            if(accept("!")) {
+                return unary().negate();
+            }
+            if(accept("(")) {
+                Predicate<ProcessorUnits> inner = or();
+                expect(")");
+                return inner;
+            }
+            Predicate<ProcessorUnits> flag = flag(peek());
+            if(flag != null) {
+                position++;
+                return flag;
+            }
+            ToIntFunction<ProcessorUnits> left = operand();
+            String operator = next();
+            ToIntFunction<ProcessorUnits> right = operand();
+            switch(operator) {
+                case "==":
+                    return units -> left.applyAsInt(units) == right.applyAsInt(units);
+                case "!=":
+                    return units -> left.applyAsInt(units) != right.applyAsInt(units);
+                case "<":
+                    return units -> left.applyAsInt(units) < right.applyAsInt(units);
+                case "<=":
+                    return units -> left.applyAsInt(units) <= right.applyAsInt(units);
+                case ">":
+                    return units -> left.applyAsInt(units) > right.applyAsInt(units);
+                case ">=":
+                    return units -> left.applyAsInt(units) >= right.applyAsInt(units);
+                default:
+                    throw new IllegalArgumentException("Expected a comparison instead of \""
+                            + operator + "\".");
+            }
+        }
+
+        ToIntFunction<ProcessorUnits> operand() {
+            boolean negative = accept("-");
+            String token = next();
+            if(!negative && token.matches("r([0-9]|1[0-2])")) {
+                return units -> units.getRegisterFile().getValue(token);
+            }
+            if(!negative && "lr".equals(token)) {
+                return units -> units.getLR().read();
+            }
+            int value;
+            try {
+                value = token.startsWith("0x") ? Integer.parseUnsignedInt(token.substring(2), 16)
+                        : Integer.parseInt(token);
+            } catch(NumberFormatException ex) {
+                throw new IllegalArgumentException("Expected a register or a number instead of \""
+                        + token + "\".");
+            }
+            int constant = negative ? -value : value;
+            return units -> constant;
+        }
+
+        private static Predicate<ProcessorUnits> flag(String token) {
+            if(token == null) {
+                return null;
+            }
+            switch(token) {
+                case "n":
+                    return units -> units.getAPSR().isNegative();
+                case "z":
+                    return units -> units.getAPSR().isZero();
+                case "c":
+                    return units -> units.getAPSR().isCarry();
+                case "v":
+                    return units -> units.getAPSR().isOverflow();
+                default:
+                    return null;
+            }
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private String next() {
+            if(position == tokens.size()) {
+                throw new IllegalArgumentException("Condition ends unexpectedly.");
+            }
+            return tokens.get(position++);
+        }
+
+        private boolean accept(String token) {
+            if(token.equals(peek())) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if(!accept(token)) {
+                throw new IllegalArgumentException("Expected \"" + token + "\".");
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruction counts per call stack, collected by a {@link BaseProcessor} the profile is attached
+ * to. The processor keeps a shadow call stack: a <code>bl</code> to a label enters the routine
+ * starting at that label and a <code>pop</code> which loads the PC returns from it. Calls to
+ * <code>uart_read</code> and <code>uart_write</code> are not routines of the program and are
+ * ignored.
+ * <p>
+ * Every distinct call stack is a node of a tree, and each executed instruction is counted on the
+ * node of the stack it runs in, so counting costs one array increment per instruction and a map
+ * lookup per call. The instructions outside of any call are counted on the root, named
+ * <code>main</code>. From the tree the profile derives the inclusive and exclusive counts of every
+ * routine, and the collapsed stacks read by flame graph tools such as <code>flamegraph.pl</code>.
+ * <p>
+ * Counts accumulate over runs of the same executable code and start over when a different code is
+ * run. A profile is not thread safe and should only be read when the processor is not running.
+ */
+public class CallProfile {
+    private static final String ROOT = "main";
+    private ExecutableCode executableCode;
+    private Map<Long, Integer> children;
+    private int[] parents;
+    private int[] entries;
+    private long[] counts;
+    private int size;
+    private int current;
+
+    /**
+     * Constructs an empty CallProfile.
+     */
+    public CallProfile() {
+        clear();
+    }
+
+    /**
+     * Starts over if the given code differs from the code of the previous run.
+     *
+     * @param executableCode The code about to be run.
+     */
+    void prepare(ExecutableCode executableCode) {
+        if(this.executableCode != executableCode) {
+            this.executableCode = executableCode;
+            clear();
+        }
+    }
+
+    /**
+     * Returns to the root, as the program starts from the beginning.
+     */
+    void restart() {
+        current = 0;
+    }
+
+    /**
+     * Counts an instruction on the current call stack.
+     */
+    void count() {
+        counts[current]++;
+    }
+
+    /**
+     * Enters the routine which starts at the given PC value.
+     *
+     * @param entry The PC value of the routine label.
+     */
+    void enter(int entry) {
+        long key = (long) current << 32 | entry & 0xFFFFFFFFL;
+        Integer child = children.get(key);
+        if(child == null) {
+            child = add(current, entry);
+            children.put(key, child);
+        }
+        current = child;
+    }
+
+    /**
+     * Returns from the current routine. A return outside of any call is ignored.
+     */
+    void exit() {
+        if(current != 0) {
+            current = parents[current];
+        }
+    }
+
+    /**
+     * Clears the counts.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0, size, 0);
+    }
+
+    /**
+     * @return The number of instructions executed.
+     */
+    public long getTotal() {
+        long total = 0;
+        for(int node = 0; node < size; node++) {
+            total += counts[node];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the routines, the most expensive first. The inclusive count of a recursive routine
+     * counts every instruction once, no matter how many times the routine is on the stack.
+     *
+     * @return The routines, ordered by inclusive count and then by name.
+     */
+    public List<Routine> getRoutines() {
+        long[] totals = Arrays.copyOf(counts, size);
+        for(int node = size - 1; node > 0; node--) {
+            totals[parents[node]] += totals[node];
+        }
+        Map<Integer, Routine> routines = new LinkedHashMap<>();
+        for(int node = 0; node < size; node++) {
+            Routine routine = routines.computeIfAbsent(entries[node],
+                    entry -> new Routine(name(entry)));
+            routine.exclusive += counts[node];
+            if(!isRecursive(node)) {
+                routine.inclusive += totals[node];
+            }
+        }
+        List<Routine> sorted = new ArrayList<>(routines.values());
+        sorted.sort((first, second) -> {
+            int compare = Long.compare(second.inclusive, first.inclusive);
+            return compare != 0 ? compare : first.name.compareTo(second.name);
+        });
+        return sorted;
+    }
+
+    /**
+     * Writes the collapsed stacks, one line per call stack with at least one instruction:
+     * the routine names from the root separated by semicolons, a space and the count.
+     *
+     * @param writer The writer the stacks are written to.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeCollapsedStacks(Writer writer) throws IOException {
+        Map<Integer, String> paths = new HashMap<>();
+        for(int node = 0; node < size; node++) {
+            String path = node == 0 ? ROOT : paths.get(parents[node]) + ";" + name(entries[node]);
+            paths.put(node, path);
+            if(counts[node] != 0) {
+                writer.write(path + " " + counts[node] + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+    private boolean isRecursive(int node) {
+        for(int ancestor = parents[node]; ancestor >= 0; ancestor = parents[ancestor]) {
+            if(entries[ancestor] == entries[node]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String name(int entry) {
+        if(entry < 0) {
+            return ROOT;
+        }
+        String label = executableCode.getLabels().get(entry);
+        return label != null ? label : "pc_" + entry;
+    }
+
+    private int add(int parent, int entry) {
+        if(size == counts.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            entries = Arrays.copyOf(entries, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        parents[size] = parent;
+        entries[size] = entry;
+        counts[size] = 0;
+        return size++;
+    }
+
+    private void clear() {
+        children = new HashMap<>();
+        parents = new int[16];
+        entries = new int[16];
+        counts = new long[16];
+        size = 0;
+        add(-1, -1);
+        current = 0;
+    }
+
+    /**
+     * A routine of the program and the instructions spent in it.
+     */
+    public static final class Routine {
+        private final String name;
+        private long inclusive;
+        private long exclusive;
+
+        Routine(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The label the routine starts at, or <code>main</code> for the code outside of
+         *         any call.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The number of instructions executed in the routine and the routines it calls.
+         */
+        public long getInclusive() {
+            return inclusive;
+        }
+
+        /**
+         * @return The number of instructions executed in the routine itself.
+         */
+        public long getExclusive() {
+            return exclusive;
+        }
+    }
+}
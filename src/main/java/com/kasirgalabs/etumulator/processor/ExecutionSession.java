@@ -0,0 +1,164 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.util.BaseDispatcher;
+import com.kasirgalabs.etumulator.util.Dispatcher;
+import com.kasirgalabs.etumulator.util.Observable;
+import com.kasirgalabs.etumulator.util.Observer;
+import com.kasirgalabs.thumb2.ProcessorBaseVisitor;
+import com.kasirgalabs.thumb2.ProcessorParser;
+
+/**
+ * A program run by a {@link BaseProcessor} in steps. Unlike
+ * {@link Processor#run(ExecutableCode, RunLimits)}, reaching a breakpoint only pauses the session,
+ * and the next call continues from there, executing the breakpoint instruction first.
+ * <p>
+ * The first call starts the program from the beginning. Between pauses the processor runs at full
+ * speed; observers of the session are told once per pause, with the {@link RunResult} of the call
+ * as the argument, so they can read the whole state at once instead of following every change. A
+ * session must only be used by one thread at a time.
+ *
+ * @see Processor#openSession(ExecutableCode)
+ */
+public class ExecutionSession implements Observable {
+    private static final CallDetector CALL_DETECTOR = new CallDetector();
+    private final BaseProcessor processor;
+    private final ExecutableCode executableCode;
+    private final PC pc;
+    private final Stack stack;
+    private final Dispatcher dispatcher;
+    private RunResult lastResult;
+    private boolean started;
+
+    ExecutionSession(BaseProcessor processor, ExecutableCode executableCode) {
+        this.processor = processor;
+        this.executableCode = executableCode;
+        pc = processor.getProcessorUnits().getPC();
+        stack = processor.getProcessorUnits().getStack();
+        dispatcher = new BaseDispatcher();
+    }
+
+    @Override
+    public void addObserver(Observer observer) {
+        dispatcher.addObserver(observer);
+    }
+
+    /**
+     * Starts the program over from the first instruction and runs until it pauses.
+     *
+     * @return The result of the run.
+     */
+    public RunResult restart() {
+        started = false;
+        return resume();
+    }
+
+    /**
+     * Executes a single instruction. A call is stepped in to.
+     *
+     * @return The result of the step.
+     */
+    public RunResult step() {
+        return run(1);
+    }
+
+    /**
+     * Executes a single instruction, or a whole call when the instruction is a <code>bl</code> to
+     * a label: the session then pauses when the call returns to the next instruction, or earlier
+     * at a breakpoint inside it.
+     *
+     * @return The result of the step.
+     */
+    public RunResult stepOver() {
+        int current = pc.getValue();
+        if(current < 0 || current >= executableCode.size()
+                || !CALL_DETECTOR.visit(executableCode.getDecodedInstruction(current))) {
+            return step();
+        }
+        return execute(RunLimits.NONE, current + 1, stack.size());
+    }
+
+    /**
+     * Runs until the PC reaches the given value, as for a run to the cursor line, or until a
+     * breakpoint or the end of the program.
+     *
+     * @param target The PC value to pause in front of.
+     *
+     * @return The result of the run.
+     */
+    public RunResult runUntil(int target) {
+        return execute(RunLimits.NONE, target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Executes the given number of instructions, fewer if a breakpoint or the end of the program
+     * comes first.
+     *
+     * @param instructions The number of instructions.
+     *
+     * @return The result of the run.
+     */
+    public RunResult run(long instructions) {
+        return execute(new RunLimits(instructions), -1, 0);
+    }
+
+    /**
+     * Runs until a breakpoint or the end of the program.
+     *
+     * @return The result of the run.
+     */
+    public RunResult resume() {
+        return execute(RunLimits.NONE, -1, 0);
+    }
+
+    /**
+     * @return True if the PC left the program, otherwise false.
+     */
+    public boolean isFinished() {
+        return started && pc.getValue() >= executableCode.size();
+    }
+
+    /**
+     * @return The result of the last call, null if the session did not run yet.
+     */
+    public RunResult getLastResult() {
+        return lastResult;
+    }
+
+    private RunResult execute(RunLimits limits, int stopAt, int stopDepth) {
+        boolean leaveBreakpoint = started;
+        if(!started) {
+            processor.restart();
+            started = true;
+        }
+        RunResult result = processor.resume(executableCode, limits, stopAt, stopDepth,
+                leaveBreakpoint);
+        if(result.getStatus() == RunResult.Status.BUDGET_EXCEEDED) {
+            result = new RunResult(RunResult.Status.PAUSED, result.getInstructions(),
+                    result.getElapsedNanos());
+        }
+        lastResult = result;
+        dispatcher.notifyObservers(ExecutionSession.class, result);
+        return result;
+    }
+
+    /**
+     * Tells whether an instruction calls a routine of the program.
+     */
+    private static final class CallDetector extends ProcessorBaseVisitor<Boolean> {
+        @Override
+        public Boolean visitBranch(ProcessorParser.BranchContext ctx) {
+            return ctx.bl() != null && ctx.bl().DECIMAL() != null;
+        }
+
+        @Override
+        protected Boolean defaultResult() {
+            return false;
+        }
+
+        @Override
+        protected Boolean aggregateResult(Boolean aggregate, Boolean nextResult) {
+            return aggregate || nextResult;
+        }
+    }
+}
@@ -3,6 +3,10 @@ package com.kasirgalabs.etumulator.processor;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.util.BaseDispatcher;
+import com.kasirgalabs.etumulator.util.Dispatcher;
+import com.kasirgalabs.etumulator.util.GUISafeDispatcher;
+import com.kasirgalabs.etumulator.util.Observer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -11,32 +15,148 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import javafx.application.Platform;
 
+/**
+ * Runs programs for the GUI on a background thread. Programs run in an {@link ExecutionSession}
+ * at full speed: the processor units do not notify their observers of the changes a session call
+ * or a step back makes, and the observers of the session are told once the call pauses or
+ * finishes instead.
+ */
 @Singleton
 public class GUISafeProcessor extends BaseProcessor implements Callable<Void> {
     private final ExecutorService executor;
+    private final Dispatcher sessionDispatcher;
     private Future<Void> future;
-    private ExecutableCode executableCode;
+    private ExecutionSession session;
+    private Runnable onFinished;
 
     @Inject
     public GUISafeProcessor(GUISafeProcessorUnits processorUnits) {
         super(processorUnits);
         executor = Executors.newSingleThreadExecutor();
+        sessionDispatcher = new BaseDispatcher();
+        setProfile(new Profile());
+        setUndoLog(new UndoLog(processorUnits));
     }
 
-    @Override
-    public void run(ExecutableCode executableCode) {
-        this.executableCode = executableCode;
-        if(future == null) {
-            future = executor.submit(this);
+    /**
+     * Undoes the last executed instruction, unless a program is running.
+     */
+    public void stepBack() {
+        undo(UndoLog::stepBack);
+    }
+
+    /**
+     * Steps back to the breakpoint or to the oldest logged instruction, unless a program is
+     * running.
+     */
+    public void reverseContinue() {
+        undo(UndoLog::reverseContinue);
+    }
+
+    /**
+     * Executes the next instruction of the last program, unless a program is running.
+     */
+    public void step() {
+        debug(ExecutionSession::step);
+    }
+
+    /**
+     * Executes the next instruction of the last program, or the whole call if it is a call,
+     * unless a program is running.
+     */
+    public void stepOver() {
+        debug(ExecutionSession::stepOver);
+    }
+
+    /**
+     * Runs the last program until the PC reaches the given value, unless a program is running.
+     *
+     * @param target The PC value to pause in front of.
+     */
+    public void runUntil(int target) {
+        debug(session -> session.runUntil(target));
+    }
+
+    /**
+     * Continues the last program from where it paused, unless a program is running.
+     */
+    public void resume() {
+        debug(ExecutionSession::resume);
+    }
+
+    private void debug(Consumer<ExecutionSession> action) {
+        if(session == null) {
+            System.err.println("No program to continue, run one first.");
             return;
         }
-        if(future.isDone()) {
-            future = executor.submit(this);
+        ExecutionSession current = session;
+        submit(() -> execute(() -> action.accept(current)));
+    }
+
+    private void undo(Consumer<UndoLog> action) {
+        UndoLog undoLog = getUndoLog();
+        submit(() -> {
+            if(execute(() -> action.accept(undoLog))) {
+                notifySessionObservers(null);
+            }
+        });
+    }
+
+    private void submit(Runnable action) {
+        if(future != null && !future.isDone()) {
+            System.err.println("Processor is busy running previous task.");
+            return;
         }
-        else {
+        future = executor.submit(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds an observer told on the JavaFX thread every time a session call pauses or finishes,
+     * with the {@link RunResult} of the call as the argument, or null if the call failed or
+     * stepped back. It should read the whole state of the processor units then.
+     *
+     * @param observer The observer.
+     */
+    public void addSessionObserver(Observer observer) {
+        sessionDispatcher.addObserver(observer);
+    }
+
+    /**
+     * Sets the action run on the JavaFX thread after every run, including stopped and failed
+     * ones.
+     *
+     * @param onFinished The action, or null for none.
+     */
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    public void run(ExecutableCode executableCode) {
+        if(future != null && !future.isDone()) {
             System.err.println("Processor is busy running previous task.");
+            return;
+        }
+        session = openSession(executableCode);
+        session.addObserver((clazz, arg) -> notifySessionObservers(arg));
+        future = executor.submit(this);
+    }
+
+    @Override
+    public void runWhenIdle(Runnable action) throws InterruptedException {
+        try {
+            executor.submit(action).get();
+        } catch(ExecutionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw (Error) ex.getCause();
         }
     }
 
@@ -56,8 +176,17 @@ public class GUISafeProcessor extends BaseProcessor implements Callable<Void> {
     }
     @Override
     public Void call() {
+        ExecutionSession current = session;
+        execute(current::restart);
+        return null;
+    }
+
+    private boolean execute(Runnable action) {
+        boolean completed = false;
+        GUISafeDispatcher.suspendNotifications();
         try {
-            super.run(executableCode);
+            action.run();
+            completed = true;
         } catch (CancellationException ex) {
         } catch (Exception ex) {
             PopUp p = new PopUp();
@@ -65,7 +194,20 @@ public class GUISafeProcessor extends BaseProcessor implements Callable<Void> {
             Platform.runLater(() -> {
                 p.createPopup();
             });
+        } finally {
+            GUISafeDispatcher.resumeNotifications();
+            if(!completed) {
+                notifySessionObservers(null);
+            }
+            Runnable finished = onFinished;
+            if(finished != null) {
+                Platform.runLater(finished);
+            }
         }
-        return null;
+        return completed;
+    }
+
+    private void notifySessionObservers(Object result) {
+        Platform.runLater(() -> sessionDispatcher.notifyObservers(ExecutionSession.class, result));
     }
 }
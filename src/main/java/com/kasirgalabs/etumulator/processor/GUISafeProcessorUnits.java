@@ -19,7 +19,7 @@ public class GUISafeProcessorUnits extends BaseProcessorUnits {
 
     @Inject
     public GUISafeProcessorUnits(RegisterFile registerFile, APSR apsr, Stack stack, Memory memory,
-            UART uart, PC pc, LR lr) {
-        super(registerFile, apsr, stack, memory, uart, pc, lr);
+            UART uart, PC pc, LR lr, Breakpoint breakpoint) {
+        super(registerFile, apsr, stack, memory, uart, pc, lr, breakpoint);
     }
 }
@@ -1,11 +1,11 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
 import com.kasirgalabs.etumulator.util.Observer;
+import java.util.Random;
 
 /**
  * A link register is a special-purpose register which holds the address to return to when a
@@ -22,10 +22,12 @@ import com.kasirgalabs.etumulator.util.Observer;
  * @author Görkem Mülayim
  * @see PC
  */
-@Singleton
 public class LR implements Observable {
     private int lr;
     private final Dispatcher dispatcher;
+    private final Random random = new Random();
+    private boolean randomUnread;
+    private long randomReads;
 
     /**
      * Construct a LR with {@link BaseDispatcher}.
@@ -65,6 +67,7 @@ public class LR implements Observable {
      */
     public void setValue(int value) {
         lr = value;
+        randomUnread = false;
         dispatcher.notifyObservers(LR.class);
     }
 
@@ -75,11 +78,47 @@ public class LR implements Observable {
         return lr;
     }
 
+    /**
+     * @return The value of LR for an instruction which uses it. The first such read of a value
+     *         set by {@link #randomize()} is counted as a random read.
+     */
+    public int read() {
+        if(randomUnread) {
+            randomUnread = false;
+            randomReads++;
+        }
+        return lr;
+    }
+
+    /**
+     * Sets LR to an unpredictable value, which is what a call to a UART routine leaves behind.
+     */
+    public void randomize() {
+        setValue(random.nextInt(Integer.MAX_VALUE));
+        randomUnread = true;
+    }
+
+    /**
+     * @return The number of values set by {@link #randomize()} which were read by an instruction
+     *         so far.
+     */
+    long getRandomReads() {
+        return randomReads;
+    }
+
+    /**
+     * @param seed The seed of the values set by {@link #randomize()}.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     /**
      * Sets LR value to zero.
      */
     public void reset() {
         lr = 0;
+        randomUnread = false;
         dispatcher.notifyObservers(LR.class);
     }
 }
@@ -0,0 +1,554 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.visitor.NumberVisitor;
+import com.kasirgalabs.thumb2.ProcessorBaseVisitor;
+import com.kasirgalabs.thumb2.ProcessorParser;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Experimental engine which runs one program on many lanes in a single interpreter pass. Every
+ * lane is a set of processor units, typically a fork of the same loaded program with different
+ * registers or UART input.
+ * <p>
+ * Registers, flags and PCs of all lanes are kept in struct-of-arrays form. At each step the lanes
+ * sharing the lowest PC form a group and the instruction at that PC is executed across the whole
+ * group at once, so fetching and dispatching it is paid once per group instead of once per lane.
+ * Lanes that take different sides of a conditional branch simply end up in different groups, and
+ * lanes that arrive at the same PC again are merged back.
+ * <p>
+ * Moves, additions, subtractions and comparisons with register or immediate operands and all
+ * branches run as array kernels. Every other instruction falls back to a scalar
+ * {@link BaseProcessor} per lane, which sees the lane's own registers, memory, stack and UART.
+ * <p>
+ * A lane stops at every point of its breakpoint. Conditions and hit counts are not evaluated,
+ * since the registers of a lane only live in the arrays while it runs.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @see BaseProcessor
+ */
+public class LockstepProcessor {
+    private static final int REGISTER_COUNT = 13;
+    private final List<ProcessorUnits> lanes;
+    private final BaseProcessor[] processors;
+    private final int[][] registers;
+    private final boolean[] negative;
+    private final boolean[] zero;
+    private final boolean[] carry;
+    private final boolean[] overflow;
+    private final int[] pc;
+    private final long[] executed;
+    private final RunResult[] results;
+    private final RuntimeException[] errors;
+    private final int[] running;
+    private final int[] group;
+    private int runningCount;
+    private long dispatches;
+
+    /**
+     * Constructs a LockstepProcessor.
+     *
+     * @param lanes The processor units of every lane. They must not be shared between lanes.
+     */
+    public LockstepProcessor(List<ProcessorUnits> lanes) {
+        this.lanes = new ArrayList<>(lanes);
+        int count = lanes.size();
+        processors = new BaseProcessor[count];
+        registers = new int[REGISTER_COUNT][count];
+        negative = new boolean[count];
+        zero = new boolean[count];
+        carry = new boolean[count];
+        overflow = new boolean[count];
+        pc = new int[count];
+        executed = new long[count];
+        results = new RunResult[count];
+        errors = new RuntimeException[count];
+        running = new int[count];
+        group = new int[count];
+    }
+
+    /**
+     * Runs the given code on every lane, starting from the current registers and flags of the
+     * lanes. The final state is written back to the processor units of the lanes.
+     *
+     * @param executableCode The code to be run.
+     * @param limits         The limits of the run. The instruction budget applies to each lane,
+     *                       the timeout to the whole pass.
+     *
+     * @return The result of each lane, in lane order. The result of a lane that raised an error is
+     *         null.
+     */
+    public List<RunResult> run(ExecutableCode executableCode, RunLimits limits) {
+        final long start = System.nanoTime();
+        final int length = executableCode.size();
+        Kernel[] kernels = new Kernel[length];
+        dispatches = 0;
+        runningCount = 0;
+        for(int lane = 0; lane < lanes.size(); lane++) {
+            load(lane);
+            pc[lane] = 0;
+            executed[lane] = 0;
+            results[lane] = null;
+            errors[lane] = null;
+            if(!retire(lane, length, limits, start)) {
+                running[runningCount++] = lane;
+            }
+        }
+        long nextCheck = limits.getCheckInterval();
+        try {
+            while(runningCount > 0) {
+                if(dispatches == nextCheck) {
+                    RunResult.Status exceeded = checkDeadline(start, limits);
+                    if(exceeded != null) {
+                        retireAll(exceeded, start);
+                        break;
+                    }
+                    nextCheck += limits.getCheckInterval();
+                }
+                int size = formGroup();
+                int index = pc[group[0]];
+                Kernel kernel = kernels[index];
+                if(kernel == null) {
+                    kernel = new KernelDecoder(executableCode.getDecodedInstruction(index))
+                            .decode();
+                    kernels[index] = kernel;
+                }
+                kernel.execute(group, size);
+                dispatches++;
+                boolean retired = false;
+                for(int i = 0; i < size; i++) {
+                    int lane = group[i];
+                    pc[lane]++;
+                    executed[lane]++;
+                    retired |= retire(lane, length, limits, start);
+                }
+                if(retired) {
+                    compact();
+                }
+            }
+        } catch(CancellationException ex) {
+            retireAll(RunResult.Status.CANCELLED, start);
+        }
+        for(int lane = 0; lane < lanes.size(); lane++) {
+            store(lane);
+        }
+        return Collections.unmodifiableList(Arrays.asList(results.clone()));
+    }
+
+    /**
+     * @param lane The index of the lane.
+     *
+     * @return The error raised by the lane during the last run, null if there is none.
+     */
+    public RuntimeException getError(int lane) {
+        return errors[lane];
+    }
+
+    /**
+     * @return The number of instructions dispatched to a group of lanes during the last run. It
+     *         equals the instruction count of a single lane as long as no lane diverges.
+     */
+    public long getDispatches() {
+        return dispatches;
+    }
+
+    private int formGroup() {
+        int min = Integer.MAX_VALUE;
+        int size = 0;
+        for(int i = 0; i < runningCount; i++) {
+            int lane = running[i];
+            if(pc[lane] < min) {
+                min = pc[lane];
+                size = 0;
+            }
+            if(pc[lane] == min) {
+                group[size++] = lane;
+            }
+        }
+        return size;
+    }
+
+    private void compact() {
+        int count = 0;
+        for(int i = 0; i < runningCount; i++) {
+            int lane = running[i];
+            if(results[lane] == null && errors[lane] == null) {
+                running[count++] = lane;
+            }
+        }
+        runningCount = count;
+    }
+
+    private boolean retire(int lane, int length, RunLimits limits, long start) {
+        if(errors[lane] != null) {
+            return true;
+        }
+        RunResult.Status status;
+        if(pc[lane] >= length) {
+            status = RunResult.Status.COMPLETED;
+        }
+        else if(lanes.get(lane).getBreakpoint().contains(pc[lane])) {
+            status = RunResult.Status.BREAKPOINT;
+        }
+        else if(executed[lane] >= limits.getMaxInstructions()) {
+            status = RunResult.Status.BUDGET_EXCEEDED;
+        }
+        else if(pc[lane] < 0) {
+            errors[lane] = new IllegalPCException("PC can not be negative.");
+            return true;
+        }
+        else {
+            return false;
+        }
+        results[lane] = new RunResult(status, executed[lane], System.nanoTime() - start);
+        return true;
+    }
+
+    private void retireAll(RunResult.Status status, long start) {
+        for(int i = 0; i < runningCount; i++) {
+            int lane = running[i];
+            if(errors[lane] == null) {
+                results[lane] = new RunResult(status, executed[lane], System.nanoTime() - start);
+            }
+        }
+        runningCount = 0;
+    }
+
+    private static RunResult.Status checkDeadline(long start, RunLimits limits) {
+        if(Thread.currentThread().isInterrupted()) {
+            return RunResult.Status.CANCELLED;
+        }
+        if(System.nanoTime() - start >= limits.getTimeoutNanos()) {
+            return RunResult.Status.TIMED_OUT;
+        }
+        return null;
+    }
+
+    private void load(int lane) {
+        ProcessorUnits processorUnits = lanes.get(lane);
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        for(int i = 0; i < REGISTER_COUNT; i++) {
+            registers[i][lane] = registerFile.getValue("r" + i);
+        }
+        APSR apsr = processorUnits.getAPSR();
+        negative[lane] = apsr.isNegative();
+        zero[lane] = apsr.isZero();
+        carry[lane] = apsr.isCarry();
+        overflow[lane] = apsr.isOverflow();
+        pc[lane] = processorUnits.getPC().getValue();
+    }
+
+    private void store(int lane) {
+        ProcessorUnits processorUnits = lanes.get(lane);
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        for(int i = 0; i < REGISTER_COUNT; i++) {
+            registerFile.setValue("r" + i, registers[i][lane]);
+        }
+        APSR apsr = processorUnits.getAPSR();
+        apsr.setNegative(negative[lane]);
+        apsr.setZero(zero[lane]);
+        apsr.setCarry(carry[lane]);
+        apsr.setOverflow(overflow[lane]);
+        processorUnits.getPC().setValue(pc[lane]);
+    }
+
+    private void fallback(ProcessorParser.ProgContext tree, int[] lanes, int size) {
+        for(int i = 0; i < size; i++) {
+            int lane = lanes[i];
+            if(processors[lane] == null) {
+                processors[lane] = new BaseProcessor(this.lanes.get(lane));
+            }
+            store(lane);
+            try {
+                processors[lane].visit(tree);
+            } catch(CancellationException ex) {
+                throw ex;
+            } catch(RuntimeException ex) {
+                errors[lane] = ex;
+            }
+            load(lane);
+        }
+    }
+
+    private void arithmetic(int[] lanes, int size, int rd, int rn, int rm, int imm,
+            boolean subtract, boolean setFlags) {
+        int[] dest = rd < 0 ? null : registers[rd];
+        int[] left = registers[rn];
+        int[] right = rm < 0 ? null : registers[rm];
+        for(int i = 0; i < size; i++) {
+            int lane = lanes[i];
+            int operand = right == null ? imm : right[lane];
+            if(subtract) {
+                operand = -operand;
+            }
+            int result = left[lane] + operand;
+            if(setFlags) {
+                updateFlags(lane, left[lane], operand, result);
+            }
+            if(dest != null) {
+                dest[lane] = result;
+            }
+        }
+    }
+
+    private void updateFlags(int lane, int left, int right, int result) {
+        overflow[lane] = ((left ^ result) & (right ^ result)) < 0;
+        negative[lane] = result < 0;
+        zero[lane] = result == 0;
+    }
+
+    private interface Kernel {
+        void execute(int[] lanes, int size);
+    }
+
+    private interface Condition {
+        boolean test(int lane);
+    }
+
+    /**
+     * Turns a decoded instruction into a kernel. Instructions without an array kernel decode to
+     * the scalar fallback.
+     */
+    private final class KernelDecoder extends ProcessorBaseVisitor<Kernel> {
+        private final ProcessorParser.ProgContext tree;
+        private final NumberVisitor numberVisitor;
+
+        KernelDecoder(ProcessorParser.ProgContext tree) {
+            this.tree = tree;
+            numberVisitor = new NumberVisitor();
+        }
+
+        Kernel decode() {
+            Kernel kernel = visit(tree);
+            if(kernel == null) {
+                return (lanes, size) -> fallback(tree, lanes, size);
+            }
+            return kernel;
+        }
+
+        @Override
+        protected Kernel aggregateResult(Kernel aggregate, Kernel nextResult) {
+            return nextResult != null ? nextResult : aggregate;
+        }
+
+        @Override
+        public Kernel visitLabel(ProcessorParser.LabelContext ctx) {
+            return (lanes, size) -> {
+            };
+        }
+
+        @Override
+        public Kernel visitMov(ProcessorParser.MovContext ctx) {
+            int rd = register(ctx.rd().REGISTER());
+            if(ctx.imm16() != null) {
+                int imm = number(ctx.imm16().number());
+                return (lanes, size) -> move(lanes, size, rd, -1, imm, false);
+            }
+            return move(rd, ctx.operand2(), false);
+        }
+
+        @Override
+        public Kernel visitMovs(ProcessorParser.MovsContext ctx) {
+            return move(register(ctx.rd().REGISTER()), ctx.operand2(), true);
+        }
+
+        @Override
+        public Kernel visitAdd(ProcessorParser.AddContext ctx) {
+            return arithmetic(ctx.rd(), ctx.rn(), ctx.imm12(), ctx.operand2(), false, false);
+        }
+
+        @Override
+        public Kernel visitAdds(ProcessorParser.AddsContext ctx) {
+            return arithmetic(ctx.rd(), ctx.rn(), null, ctx.operand2(), false, true);
+        }
+
+        @Override
+        public Kernel visitSub(ProcessorParser.SubContext ctx) {
+            return arithmetic(ctx.rd(), ctx.rn(), ctx.imm12(), ctx.operand2(), true, false);
+        }
+
+        @Override
+        public Kernel visitSubs(ProcessorParser.SubsContext ctx) {
+            return arithmetic(ctx.rd(), ctx.rn(), null, ctx.operand2(), true, true);
+        }
+
+        @Override
+        public Kernel visitCmp(ProcessorParser.CmpContext ctx) {
+            return arithmetic(null, ctx.rn(), null, ctx.operand2(), true, true);
+        }
+
+        @Override
+        public Kernel visitCmn(ProcessorParser.CmnContext ctx) {
+            return arithmetic(null, ctx.rn(), null, ctx.operand2(), false, true);
+        }
+
+        @Override
+        public Kernel visitB(ProcessorParser.BContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> true);
+        }
+
+        @Override
+        public Kernel visitBal(ProcessorParser.BalContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> true);
+        }
+
+        @Override
+        public Kernel visitBeq(ProcessorParser.BeqContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> zero[lane]);
+        }
+
+        @Override
+        public Kernel visitBne(ProcessorParser.BneContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !zero[lane]);
+        }
+
+        @Override
+        public Kernel visitBcs(ProcessorParser.BcsContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> carry[lane]);
+        }
+
+        @Override
+        public Kernel visitBhs(ProcessorParser.BhsContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> carry[lane]);
+        }
+
+        @Override
+        public Kernel visitBcc(ProcessorParser.BccContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !carry[lane]);
+        }
+
+        @Override
+        public Kernel visitBlo(ProcessorParser.BloContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !carry[lane]);
+        }
+
+        @Override
+        public Kernel visitBmi(ProcessorParser.BmiContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> negative[lane]);
+        }
+
+        @Override
+        public Kernel visitBpl(ProcessorParser.BplContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !negative[lane]);
+        }
+
+        @Override
+        public Kernel visitBvs(ProcessorParser.BvsContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> overflow[lane]);
+        }
+
+        @Override
+        public Kernel visitBvc(ProcessorParser.BvcContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !overflow[lane]);
+        }
+
+        @Override
+        public Kernel visitBhi(ProcessorParser.BhiContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> carry[lane] && !zero[lane]);
+        }
+
+        @Override
+        public Kernel visitBls(ProcessorParser.BlsContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> !carry[lane] || zero[lane]);
+        }
+
+        @Override
+        public Kernel visitBge(ProcessorParser.BgeContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> negative[lane] == overflow[lane]);
+        }
+
+        @Override
+        public Kernel visitBlt(ProcessorParser.BltContext ctx) {
+            return branch(ctx.DECIMAL().getText(), lane -> negative[lane] != overflow[lane]);
+        }
+
+        @Override
+        public Kernel visitBgt(ProcessorParser.BgtContext ctx) {
+            return branch(ctx.DECIMAL().getText(),
+                    lane -> !zero[lane] && negative[lane] == overflow[lane]);
+        }
+
+        @Override
+        public Kernel visitBle(ProcessorParser.BleContext ctx) {
+            return branch(ctx.DECIMAL().getText(),
+                    lane -> zero[lane] || negative[lane] != overflow[lane]);
+        }
+
+        private Kernel move(int rd, ProcessorParser.Operand2Context operand2, boolean setFlags) {
+            if(operand2.rm() != null) {
+                int rm = register(operand2.rm().REGISTER());
+                return (lanes, size) -> move(lanes, size, rd, rm, 0, setFlags);
+            }
+            if(operand2.imm8m() != null) {
+                int imm = number(operand2.imm8m().number());
+                return (lanes, size) -> move(lanes, size, rd, -1, imm, setFlags);
+            }
+            return null;
+        }
+
+        private void move(int[] lanes, int size, int rd, int rm, int imm, boolean setFlags) {
+            int[] dest = registers[rd];
+            int[] source = rm < 0 ? null : registers[rm];
+            for(int i = 0; i < size; i++) {
+                int lane = lanes[i];
+                int value = source == null ? imm : source[lane];
+                if(setFlags) {
+                    negative[lane] = value < 0;
+                    zero[lane] = value == 0;
+                }
+                dest[lane] = value;
+            }
+        }
+
+        private Kernel arithmetic(ProcessorParser.RdContext rdContext,
+                ProcessorParser.RnContext rnContext, ProcessorParser.Imm12Context imm12,
+                ProcessorParser.Operand2Context operand2, boolean subtract, boolean setFlags) {
+            int rd = rdContext == null ? -1 : register(rdContext.REGISTER());
+            int rn = register(rnContext.REGISTER());
+            int rm = -1;
+            int imm = 0;
+            if(imm12 != null) {
+                imm = number(imm12.number());
+            }
+            else if(operand2.rm() != null) {
+                rm = register(operand2.rm().REGISTER());
+            }
+            else if(operand2.imm8m() != null) {
+                imm = number(operand2.imm8m().number());
+            }
+            else {
+                return null;
+            }
+            final int register = rm;
+            final int value = imm;
+            return (lanes, size) -> LockstepProcessor.this.arithmetic(lanes, size, rd, rn,
+                    register, value, subtract, setFlags);
+        }
+
+        private Kernel branch(String target, Condition condition) {
+            int destination = Integer.parseInt(target);
+            return (lanes, size) -> {
+                for(int i = 0; i < size; i++) {
+                    int lane = lanes[i];
+                    if(condition.test(lane)) {
+                        pc[lane] = destination;
+                    }
+                }
+            };
+        }
+
+        private int register(TerminalNode register) {
+            return Integer.parseInt(register.getText().substring(1));
+        }
+
+        private int number(ProcessorParser.NumberContext ctx) {
+            return numberVisitor.visitNumber(ctx);
+        }
+    }
+}
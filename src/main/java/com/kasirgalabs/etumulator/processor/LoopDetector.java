@@ -0,0 +1,168 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds programs which never end because their machine state repeats. Attached to a
+ * {@link BaseProcessor}, the detector is told about every taken backward branch and samples the
+ * state at every {@value #DEFAULT_INTERVAL}th one by default: PC, registers, flags, stack, memory,
+ * the number of UART bytes read and the number of random values read. The processor is
+ * deterministic except for those random values, which are read from uninitialized memory, popped
+ * from an empty stack or left in the link register by a UART routine. So a sampled state seen
+ * before, with no random value read since, means the program loops forever, and the run ends with
+ * {@link RunResult.Status#NON_TERMINATING}. A loop which reads a random value in every iteration
+ * is never taken as one, since it may still end with the next value.
+ * <p>
+ * Samples are compared against a single saved state which moves forward at exponentially growing
+ * distances, as in Brent's cycle detection, so a cycle of any length is found within a few times
+ * its length and the detector keeps a single state. Every part of the state is compared exactly.
+ * The memory is first compared by a hash of its pages, computed again only for the pages written
+ * since the previous sample, and byte for byte against a copy of the saved pages only when the
+ * hashes match. Output written by the loop is not part of the state, so a program printing
+ * forever is found as well. The link register itself is left out: every <code>bl</code> to a UART
+ * routine fills it with a new random value, which only counts once an instruction reads it, and
+ * a program can only read it by pushing it, which puts it on the compared stack.
+ * <p>
+ * Between samples a backward branch costs a single decrement, and other instructions nothing.
+ * A detector must only be used by the thread running its processor.
+ */
+public class LoopDetector {
+    /**
+     * The default number of taken backward branches between two samples.
+     */
+    public static final int DEFAULT_INTERVAL = 64;
+    private final RegisterFile registerFile;
+    private final APSR apsr;
+    private final PC pc;
+    private final Stack stack;
+    private final Memory memory;
+    private final UART uart;
+    private final LR lr;
+    private final int interval;
+    private final int[] registers;
+    private int flags;
+    private int statePC;
+    private List<Integer> stackItems;
+    private long memoryHash;
+    private Map<Integer, Memory.Page> memoryPages;
+    private long readBytes;
+    private long randomReads;
+    private boolean anchored;
+    private int countdown;
+    private long samples;
+    private long distance;
+    private int cyclePC;
+
+    /**
+     * Constructs a LoopDetector which samples every {@value #DEFAULT_INTERVAL}th taken backward
+     * branch.
+     *
+     * @param processorUnits The units of the processor the detector is attached to.
+     */
+    public LoopDetector(ProcessorUnits processorUnits) {
+        this(processorUnits, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructs a LoopDetector.
+     *
+     * @param processorUnits The units of the processor the detector is attached to.
+     * @param interval       The number of taken backward branches between two samples.
+     */
+    public LoopDetector(ProcessorUnits processorUnits, int interval) {
+        if(interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        registerFile = processorUnits.getRegisterFile();
+        apsr = processorUnits.getAPSR();
+        pc = processorUnits.getPC();
+        stack = processorUnits.getStack();
+        memory = processorUnits.getMemory();
+        uart = processorUnits.getUART();
+        lr = processorUnits.getLR();
+        this.interval = interval;
+        registers = new int[RegisterFile.REGISTERS.length];
+        clear();
+    }
+
+    /**
+     * @return True if a repeated state was found since the program started, otherwise false.
+     */
+    public boolean isCycleFound() {
+        return cyclePC >= 0;
+    }
+
+    /**
+     * @return The PC value of the backward branch at which the state repeated, -1 if none did.
+     */
+    public int getCyclePC() {
+        return cyclePC;
+    }
+
+    /**
+     * Forgets the saved state, as the program starts from the beginning.
+     */
+    void clear() {
+        anchored = false;
+        stackItems = null;
+        memoryPages = null;
+        countdown = interval;
+        samples = 0;
+        distance = 1;
+        cyclePC = -1;
+    }
+
+    /**
+     * Counts a taken backward branch and samples the state if it is time to.
+     *
+     * @param branchPC The PC value of the branch instruction.
+     */
+    void backwardBranch(int branchPC) {
+        if(--countdown > 0) {
+            return;
+        }
+        countdown = interval;
+        if(anchored && isSaved()) {
+            cyclePC = branchPC;
+            return;
+        }
+        if(++samples >= distance) {
+            save();
+            samples = 0;
+            distance <<= 1;
+        }
+    }
+
+    private boolean isSaved() {
+        if(pc.getValue() != statePC || apsr.getFlags() != flags || uart.getReadBytes() != readBytes
+                || randomReads() != randomReads || stack.size() != stackItems.size()) {
+            return false;
+        }
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            if(registerFile.getValue(RegisterFile.REGISTERS[i]) != registers[i]) {
+                return false;
+            }
+        }
+        return memory.fingerprint() == memoryHash && stack.copyItems().equals(stackItems)
+                && memory.hasContent(memoryPages);
+    }
+
+    private void save() {
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            registers[i] = registerFile.getValue(RegisterFile.REGISTERS[i]);
+        }
+        flags = apsr.getFlags();
+        statePC = pc.getValue();
+        stackItems = stack.copyItems();
+        memoryHash = memory.fingerprint();
+        memoryPages = memory.copyPages();
+        readBytes = uart.getReadBytes();
+        randomReads = randomReads();
+        anchored = true;
+    }
+
+    private long randomReads() {
+        return memory.getRandomReads() + stack.getRandomPops() + lr.getRandomReads();
+    }
+}
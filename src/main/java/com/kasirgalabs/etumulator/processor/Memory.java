@@ -1,18 +1,44 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
 import com.kasirgalabs.etumulator.util.Observer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-@Singleton
+/**
+ * Byte addressable memory. Bytes are kept in fixed size pages which are created on the first write
+ * to them. Since the linker scatters data all over the address space, pages are kept small.
+ * <p>
+ * Pages can be shared between memories copy-on-write through {@link Snapshot}: a shared page is
+ * never modified, a memory writing to it replaces it with a private copy first. Reading shared
+ * pages from many threads is therefore safe, while a single memory must still be used by one
+ * thread at a time.
+ * <p>
+ * Pages holding an address range watched by {@link Watchpoints} are flagged in a bit set by page
+ * number. Only loads and stores touching a flagged page are reported to the watchpoints, every
+ * other access pays a single length check.
+ */
 public class Memory implements Observable {
-    private final Map<Integer, Byte> memory = new HashMap<>(16);
+    static final int PAGE_BITS = 8;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int OFFSET_MASK = PAGE_SIZE - 1;
+    private static final long[] NO_WATCHED_PAGES = new long[0];
+    private final Map<Integer, Page> pages = new HashMap<>(16);
     private final Dispatcher dispatcher;
+    private final Random random = new Random();
+    private long randomReads;
+    private AccessListener accessListener;
+    private UndoLog undoLog;
+    private Watchpoints watchpoints;
+    private long[] watchedPages = NO_WATCHED_PAGES;
+    private int firstWatchedPage;
 
     public Memory() {
         this.dispatcher = new BaseDispatcher();
@@ -28,81 +54,392 @@ public class Memory implements Observable {
         dispatcher.addObserver(observer);
     }
 
+    /**
+     * Sets the listener told about every load and store, or null for none. Unlike observers, the
+     * listener receives the accessed value without any boxing.
+     *
+     * @param accessListener The listener.
+     */
+    void setAccessListener(AccessListener accessListener) {
+        this.accessListener = accessListener;
+    }
+
+    /**
+     * Sets the undo log told about the old value of every byte before it is written, or null for
+     * none.
+     *
+     * @param undoLog The undo log.
+     */
+    void setUndoLog(UndoLog undoLog) {
+        this.undoLog = undoLog;
+    }
+
+    /**
+     * Sets the watchpoints told about the accesses to the watched pages, or null for none.
+     *
+     * @param watchpoints The watchpoints.
+     */
+    void setWatchpoints(Watchpoints watchpoints) {
+        this.watchpoints = watchpoints;
+        watchPages(0, NO_WATCHED_PAGES);
+    }
+
+    /**
+     * Flags the watched pages.
+     *
+     * @param firstPage The number of the page the first bit stands for.
+     * @param pages     The bit set of the watched pages, empty for none.
+     */
+    void watchPages(int firstPage, long[] pages) {
+        firstWatchedPage = firstPage;
+        watchedPages = pages;
+    }
+
+    /**
+     * Puts back the old value of a byte without telling the undo log.
+     *
+     * @param address The address of the byte.
+     * @param value   The old value of the byte, or -1 if the byte was never written.
+     */
+    void restore(int address, int value) {
+        Page page = writablePage(address >> PAGE_BITS);
+        int offset = address & OFFSET_MASK;
+        if(value < 0) {
+            page.present[offset >>> 6] &= ~(1L << offset);
+        }
+        else {
+            page.data[offset] = (byte) value;
+            page.present[offset >>> 6] |= 1L << offset;
+        }
+        page.hashed = false;
+        dispatcher.notifyObservers(Memory.class, address);
+    }
+
     public int get(int address, Size size) {
+        int value = load(address, size);
+        if(accessListener != null) {
+            accessListener.accessed(address, value, size, false);
+        }
+        if(watchedPages.length != 0 && isWatched(address, size)) {
+            watchpoints.accessed(address, value, value, size, false);
+        }
+        return value;
+    }
+
+    private int load(int address, Size size) {
         if(isAddressEmpty(address, size)) {
-            return (int) (Math.random() * Integer.MAX_VALUE);
+            randomReads++;
+            return random.nextInt(Integer.MAX_VALUE);
         }
         int value;
         int temp;
         switch(size) {
             case BYTE:
-                return 0x0000_00ff & memory.get(address);
+                return 0x0000_00ff & read(address);
             case HALFWORD:
-                value = memory.get(address);
-                temp = memory.get(address + 1);
+                value = read(address);
+                temp = read(address + 1);
                 temp <<= 8;
                 value |= temp;
                 return 0x0000_ffff & value;
             case WORD:
-                value = memory.get(address);
-                temp = memory.get(address + 1);
+                value = read(address);
+                temp = read(address + 1);
                 temp <<= 8;
                 value |= temp;
-                temp = memory.get(address + 2);
+                temp = read(address + 2);
                 temp <<= 16;
                 value |= temp;
-                temp = memory.get(address + 3);
+                temp = read(address + 3);
                 temp <<= 16;
                 value |= temp;
                 return value;
             default:
-                return memory.get(address);
+                return read(address);
         }
     }
 
     public void set(int address, int value, Size size) {
+        boolean watched = watchedPages.length != 0 && isWatched(address, size);
+        int oldValue = watched ? peek(address, size) : 0;
         switch(size) {
             case BYTE:
-                memory.put(address, (byte) value);
+                write(address, (byte) value);
                 dispatcher.notifyObservers(Memory.class, address);
                 break;
             case HALFWORD:
-                memory.put(address, (byte) value);
+                write(address, (byte) value);
                 dispatcher.notifyObservers(Memory.class, address);
-                memory.put(address + 1, (byte) (value >>> 8));
+                write(address + 1, (byte) (value >>> 8));
                 dispatcher.notifyObservers(Memory.class, address);
                 break;
             case WORD:
-                memory.put(address, (byte) value);
+                write(address, (byte) value);
                 dispatcher.notifyObservers(Memory.class, address);
-                memory.put(address + 1, (byte) (value >>> 8));
+                write(address + 1, (byte) (value >>> 8));
                 dispatcher.notifyObservers(Memory.class, address);
-                memory.put(address + 2, (byte) (value >>> 16));
+                write(address + 2, (byte) (value >>> 16));
                 dispatcher.notifyObservers(Memory.class, address);
-                memory.put(address + 3, (byte) (value >>> 24));
+                write(address + 3, (byte) (value >>> 24));
                 dispatcher.notifyObservers(Memory.class, address);
         }
+        if(accessListener != null) {
+            accessListener.accessed(address, value, size, true);
+        }
+        if(watched) {
+            watchpoints.accessed(address, oldValue, peek(address, size), size, true);
+        }
     }
 
     public boolean isAddressEmpty(int address, Size size) {
-        boolean empty = false;
-        for(int i = 0; i <= size.ordinal(); i++) {
-            if(!memory.containsKey(address + i)) {
-                empty = true;
+        int length = lengthOf(size);
+        for(int i = 0; i < length; i++) {
+            Page page = pages.get((address + i) >> PAGE_BITS);
+            if(page == null || !page.isPresent((address + i) & OFFSET_MASK)) {
+                return true;
             }
         }
-        if(size == Size.WORD) {
-            return empty || !memory.containsKey(address + 3);
-        }
-        return empty;
+        return false;
+    }
+
+    /**
+     * @return The number of random values read from uninitialized addresses so far.
+     */
+    long getRandomReads() {
+        return randomReads;
+    }
+
+    /**
+     * @param seed The seed of the values read from uninitialized addresses.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Reads every byte written so far, without telling the trace or the watchpoints.
+     *
+     * @return The unsigned value of every written byte, keyed by address in increasing order.
+     */
+    public SortedMap<Integer, Integer> getWrittenBytes() {
+        SortedMap<Integer, Integer> bytes = new TreeMap<>();
+        pages.forEach((number, page) -> {
+            for(int offset = 0; offset < PAGE_SIZE; offset++) {
+                if(page.isPresent(offset)) {
+                    bytes.put(number << PAGE_BITS | offset, page.data[offset] & 0xFF);
+                }
+            }
+        });
+        return bytes;
     }
 
     public void reset() {
-        memory.clear();
+        pages.clear();
         dispatcher.notifyObservers(Memory.class);
     }
 
+    /**
+     * Marks every page as shared and returns them. Later writes to those pages, by this memory or
+     * by any memory adopting them, go to private copies.
+     *
+     * @return A copy of the page table.
+     */
+    Map<Integer, Page> sharePages() {
+        pages.values().forEach(page -> page.shared = true);
+        return new HashMap<>(pages);
+    }
+
+    /**
+     * Replaces the content of this memory with the given shared pages.
+     *
+     * @param sharedPages Pages returned by {@link #sharePages()}.
+     */
+    void adoptPages(Map<Integer, Page> sharedPages) {
+        pages.clear();
+        pages.putAll(sharedPages);
+        dispatcher.notifyObservers(Memory.class);
+    }
+
+    /**
+     * Hashes the content of every page, including which bytes were ever written. The hash of a
+     * private page is kept until the page is written again, so only the pages written since the
+     * last call are read.
+     *
+     * @return The hash of the memory.
+     */
+    long fingerprint() {
+        long hash = pages.size();
+        for(Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            Page page = entry.getValue();
+            long pageHash;
+            if(page.shared) {
+                pageHash = page.hash();
+            }
+            else {
+                if(!page.hashed) {
+                    page.hashCache = page.hash();
+                    page.hashed = true;
+                }
+                pageHash = page.hashCache;
+            }
+            hash += mix(pageHash ^ entry.getKey());
+        }
+        return hash;
+    }
+
+    /**
+     * @return Private copies of every page, for a later {@link #hasContent(Map)}.
+     */
+    Map<Integer, Page> copyPages() {
+        Map<Integer, Page> copies = new HashMap<>();
+        pages.forEach((number, page) -> copies.put(number, new Page(page)));
+        return copies;
+    }
+
+    /**
+     * @param copies Pages returned by {@link #copyPages()}.
+     *
+     * @return True if the content of this memory equals the copied content, byte for byte and
+     *         including which bytes were ever written, otherwise false.
+     */
+    boolean hasContent(Map<Integer, Page> copies) {
+        if(pages.size() != copies.size()) {
+            return false;
+        }
+        for(Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            Page copy = copies.get(entry.getKey());
+            if(copy == null || !entry.getValue().equals(copy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of pages this memory does not share with any other memory.
+     */
+    int getPrivatePageCount() {
+        int count = 0;
+        for(Page page : pages.values()) {
+            if(!page.shared) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long mix(long value) {
+        long mixed = (value ^ value >>> 33) * 0xFF51_AFD7_ED55_8CCDL;
+        mixed = (mixed ^ mixed >>> 33) * 0xC4CE_B9FE_1A85_EC53L;
+        return mixed ^ mixed >>> 33;
+    }
+
+    static int lengthOf(Size size) {
+        return size == Size.WORD ? 4 : size.ordinal() + 1;
+    }
+
+    private boolean isWatched(int address, Size size) {
+        return isWatchedPage(address >>> PAGE_BITS)
+                || isWatchedPage((address + lengthOf(size) - 1) >>> PAGE_BITS);
+    }
+
+    private boolean isWatchedPage(int number) {
+        int bit = number - firstWatchedPage;
+        return bit >= 0 && bit >>> 6 < watchedPages.length
+                && (watchedPages[bit >>> 6] & 1L << bit) != 0;
+    }
+
+    /**
+     * Reads the bytes as they are, taking the bytes never written as zero.
+     */
+    private int peek(int address, Size size) {
+        int value = 0;
+        for(int i = lengthOf(size) - 1; i >= 0; i--) {
+            Page page = pages.get((address + i) >> PAGE_BITS);
+            value = value << 8 | (page == null ? 0 : page.data[(address + i) & OFFSET_MASK] & 0xFF);
+        }
+        return value;
+    }
+
+    private byte read(int address) {
+        return pages.get(address >> PAGE_BITS).data[address & OFFSET_MASK];
+    }
+
+    private void write(int address, byte value) {
+        int offset = address & OFFSET_MASK;
+        Page page = writablePage(address >> PAGE_BITS);
+        if(undoLog != null) {
+            undoLog.memoryWritten(address, page.isPresent(offset) ? page.data[offset] & 0xFF : -1);
+        }
+        page.data[offset] = value;
+        page.present[offset >>> 6] |= 1L << offset;
+        page.hashed = false;
+    }
+
+    private Page writablePage(int number) {
+        Page page = pages.get(number);
+        if(page == null) {
+            page = new Page();
+            pages.put(number, page);
+        }
+        else if(page.shared) {
+            page = new Page(page);
+            pages.put(number, page);
+        }
+        return page;
+    }
+
     public enum Size {
         BYTE, HALFWORD, WORD
     }
+
+    /**
+     * Receives the loads and stores of a memory.
+     */
+    interface AccessListener {
+        /**
+         * @param address The accessed address.
+         * @param value   The loaded or stored value.
+         * @param size    The size of the access.
+         * @param store   True for a store, false for a load.
+         */
+        void accessed(int address, int value, Size size, boolean store);
+    }
+
+    static final class Page {
+        private final byte[] data;
+        private final long[] present;
+        private boolean shared;
+        private boolean hashed;
+        private long hashCache;
+
+        Page() {
+            data = new byte[PAGE_SIZE];
+            present = new long[PAGE_SIZE / Long.SIZE];
+        }
+
+        Page(Page page) {
+            data = page.data.clone();
+            present = page.present.clone();
+        }
+
+        long hash() {
+            long hash = 0xCBF2_9CE4_8422_2325L;
+            for(byte value : data) {
+                hash = (hash ^ (value & 0xFF)) * 0x100_0000_01B3L;
+            }
+            for(long bits : present) {
+                hash = (hash ^ bits) * 0x100_0000_01B3L;
+            }
+            return hash;
+        }
+
+        boolean isPresent(int offset) {
+            return (present[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        boolean equals(Page other) {
+            return Arrays.equals(present, other.present) && Arrays.equals(data, other.data);
+        }
+    }
 }
@@ -1,7 +1,6 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
@@ -20,7 +19,6 @@ import com.kasirgalabs.etumulator.util.Observer;
  *
  * @author Görkem Mülayim
  */
-@Singleton
 public class PC implements Observable {
     private int pc;
     private final Dispatcher dispatcher;
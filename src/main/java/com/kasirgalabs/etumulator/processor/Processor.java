@@ -4,4 +4,32 @@ import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
 
 public interface Processor {
     void run(ExecutableCode executableCode);
+
+    RunResult run(ExecutableCode executableCode, RunLimits limits);
+
+    RunResult resume(ExecutableCode executableCode, RunLimits limits);
+
+    /**
+     * Opens a session which runs the given code in steps and pauses instead of ending at
+     * breakpoints.
+     *
+     * @param executableCode The code to be run.
+     *
+     * @return The session.
+     */
+    ExecutionSession openSession(ExecutableCode executableCode);
+
+    /**
+     * Runs the given action on the thread of the programs started by
+     * {@link #run(ExecutableCode)}, once the program in progress, if any, has ended. A program
+     * which is stopped still runs until it notices, so the processor units must only be reset
+     * and loaded through this method.
+     *
+     * @param action The action.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting for the action.
+     */
+    default void runWhenIdle(Runnable action) throws InterruptedException {
+        action.run();
+    }
 }
@@ -29,5 +29,17 @@ public interface ProcessorUnits {
 
     LR getLR();
 
+    void setBreakpoint(Breakpoint breakpoint);
+
+    Breakpoint getBreakpoint();
+
+    /**
+     * Seeds the random sources of the units, so uninitialized memory, empty stack pops and LR
+     * after UART calls read the same values on every run.
+     *
+     * @param seed The seed.
+     */
+    void setSeed(long seed);
+
     void reset();
 }
@@ -0,0 +1,169 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Execution counts per PC value, collected by a {@link BaseProcessor} the profile is attached to.
+ * Since every line of a program takes one PC value, the counts map directly to source lines, and
+ * the branch labels known by the linker tell which part of the program each line belongs to.
+ * <p>
+ * The counts are kept in a primitive array sized to the program, so profiling costs one array
+ * increment per instruction and can be left on. Counts accumulate over runs of the same
+ * executable code and start over when a different code is run. A profile is not thread safe and
+ * should only be read when the processor is not running.
+ */
+public class Profile {
+    private ExecutableCode executableCode;
+    private long[] counts;
+
+    /**
+     * Constructs an empty Profile.
+     */
+    public Profile() {
+        counts = new long[0];
+    }
+
+    /**
+     * Returns the array the processor increments while running the given code. A new, zeroed
+     * array is used if the code differs from the code of the previous run.
+     *
+     * @param executableCode The code about to be run.
+     *
+     * @return The counts indexed by PC value.
+     */
+    long[] prepare(ExecutableCode executableCode) {
+        if(this.executableCode != executableCode) {
+            this.executableCode = executableCode;
+            counts = new long[executableCode.size()];
+        }
+        return counts;
+    }
+
+    /**
+     * Clears the counts.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * @return The code the counts belong to, null if nothing is profiled yet.
+     */
+    public ExecutableCode getExecutableCode() {
+        return executableCode;
+    }
+
+    /**
+     * @param pc The PC value.
+     *
+     * @return The number of times the instruction at the given PC value is executed.
+     */
+    public long getCount(int pc) {
+        return pc >= 0 && pc < counts.length ? counts[pc] : 0;
+    }
+
+    /**
+     * @return A copy of the counts, indexed by PC value.
+     */
+    public long[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /**
+     * @return The number of instructions executed.
+     */
+    public long getTotal() {
+        long total = 0;
+        for(long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the executed lines, hottest first. Empty lines and label definitions, which the
+     * processor passes through without doing any work, are left out.
+     *
+     * @return The hot lines, ordered by count and then by line.
+     */
+    public List<HotLine> getHotLines() {
+        List<HotLine> hotLines = new ArrayList<>();
+        if(executableCode == null) {
+            return hotLines;
+        }
+        NavigableMap<Integer, String> labels = executableCode.getLabels();
+        long total = getTotal();
+        for(int line = 0; line < counts.length; line++) {
+            if(counts[line] == 0 || labels.containsKey(line) || isEmpty(line)) {
+                continue;
+            }
+            Map.Entry<Integer, String> label = labels.floorEntry(line);
+            hotLines.add(new HotLine(line, label == null ? null : label.getValue(), counts[line],
+                    (double) counts[line] / total));
+        }
+        hotLines.sort((first, second) -> {
+            int compare = Long.compare(second.count, first.count);
+            return compare != 0 ? compare : Integer.compare(first.line, second.line);
+        });
+        return hotLines;
+    }
+
+    private boolean isEmpty(int line) {
+        String instruction = executableCode.getInstruction(line);
+        int comment = instruction.indexOf("//");
+        if(comment >= 0) {
+            instruction = instruction.substring(0, comment);
+        }
+        return instruction.trim().isEmpty();
+    }
+
+    /**
+     * A source line and the number of times it is executed.
+     */
+    public static final class HotLine {
+        private final int line;
+        private final String label;
+        private final long count;
+        private final double share;
+
+        HotLine(int line, String label, long count, double share) {
+            this.line = line;
+            this.label = label;
+            this.count = count;
+            this.share = share;
+        }
+
+        /**
+         * @return The line, starting from zero, which is also the PC value of the instruction.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return The closest label defined above the line, null if there is none.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return The number of times the line is executed.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return The fraction of all executed instructions spent on the line.
+         */
+        public double getShare() {
+            return share;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
@@ -9,8 +8,13 @@ import com.kasirgalabs.etumulator.util.Observer;
 import java.util.HashMap;
 import java.util.Map;
 
-@Singleton
 public class RegisterFile implements Observable {
+    /**
+     * The names of the general purpose registers, indexed by their number.
+     */
+    static final String[] REGISTERS = {
+        "r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7", "r8", "r9", "r10", "r11", "r12"
+    };
     private final Map<String, Integer> registers = new HashMap<>(14);
     private final Dispatcher dispatcher;
 
@@ -0,0 +1,110 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of a single run of the processor. The processor checks them, together with the interrupt
+ * status of the running thread, once every {@link #getCheckInterval()} instructions so checking
+ * costs almost nothing; the instruction budget is still honoured exactly.
+ *
+ * @see Processor#run(com.kasirgalabs.etumulator.lang.Linker.ExecutableCode, RunLimits)
+ */
+public final class RunLimits {
+    /**
+     * Limits which never stop a run. The run can still be cancelled by interrupting its thread.
+     */
+    public static final RunLimits NONE = new RunLimits(Long.MAX_VALUE, Long.MAX_VALUE);
+    private static final int DEFAULT_CHECK_INTERVAL = 1024;
+    private final long maxInstructions;
+    private final long timeoutNanos;
+    private final int checkInterval;
+    private final long maxOutputBytes;
+
+    /**
+     * Constructs limits with an instruction budget and no deadline.
+     *
+     * @param maxInstructions The maximum number of instructions to execute.
+     */
+    public RunLimits(long maxInstructions) {
+        this(maxInstructions, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs limits with an instruction budget and a wall-clock deadline.
+     *
+     * @param maxInstructions The maximum number of instructions to execute.
+     * @param timeout         The maximum time the run may take.
+     * @param unit            The unit of the timeout.
+     */
+    public RunLimits(long maxInstructions, long timeout, TimeUnit unit) {
+        this(maxInstructions, unit.toNanos(timeout));
+    }
+
+    private RunLimits(long maxInstructions, long timeoutNanos) {
+        this(maxInstructions, timeoutNanos, DEFAULT_CHECK_INTERVAL, Long.MAX_VALUE);
+    }
+
+    private RunLimits(long maxInstructions, long timeoutNanos, int checkInterval,
+            long maxOutputBytes) {
+        if(maxInstructions < 0 || timeoutNanos < 0 || checkInterval < 1 || maxOutputBytes < 0) {
+            throw new IllegalArgumentException("Run limits can not be negative.");
+        }
+        this.maxInstructions = maxInstructions;
+        this.timeoutNanos = timeoutNanos;
+        this.checkInterval = checkInterval;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * @param checkInterval The number of instructions executed between two checks.
+     *
+     * @return Limits which are checked with the given interval.
+     */
+    public RunLimits withCheckInterval(int checkInterval) {
+        return new RunLimits(maxInstructions, timeoutNanos, checkInterval, maxOutputBytes);
+    }
+
+    /**
+     * The output limit is not checked by the processor itself but by the UART output channel the
+     * runner attaches.
+     *
+     * @param maxOutputBytes The maximum number of bytes the program may write to the UART.
+     *
+     * @return Limits with the given output limit.
+     *
+     * @see UART#setOutput(java.io.OutputStream, long)
+     */
+    public RunLimits withMaxOutputBytes(long maxOutputBytes) {
+        return new RunLimits(maxInstructions, timeoutNanos, checkInterval, maxOutputBytes);
+    }
+
+    /**
+     * @return The maximum number of instructions to execute.
+     */
+    public long getMaxInstructions() {
+        return maxInstructions;
+    }
+
+    /**
+     * @return The maximum time the run may take in nanoseconds, {@link Long#MAX_VALUE} if there is
+     *         no deadline.
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * @return The number of instructions executed between two checks.
+     */
+    public int getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * @return The maximum number of bytes the program may write to the UART,
+     *         {@link Long#MAX_VALUE} if there is no limit.
+     */
+    public long getMaxOutputBytes() {
+        return maxOutputBytes;
+    }
+}
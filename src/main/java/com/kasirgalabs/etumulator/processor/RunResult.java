@@ -0,0 +1,87 @@
+package com.kasirgalabs.etumulator.processor;
+
+/**
+ * Outcome of a single run of the processor.
+ *
+ * @see RunLimits
+ */
+public final class RunResult {
+    private final Status status;
+    private final long instructions;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a RunResult.
+     *
+     * @param status       The reason the run ended.
+     * @param instructions The number of instructions executed.
+     * @param elapsedNanos The time the run took in nanoseconds.
+     */
+    public RunResult(Status status, long instructions, long elapsedNanos) {
+        this.status = status;
+        this.instructions = instructions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The reason the run ended.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The number of instructions executed.
+     */
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return The time the run took in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return status + " after " + instructions + " instructions in "
+                + elapsedNanos / 1000000 + " ms";
+    }
+
+    /**
+     * The reason a run ended.
+     */
+    public enum Status {
+        /**
+         * PC left the program.
+         */
+        COMPLETED,
+        /**
+         * PC reached the breakpoint.
+         */
+        BREAKPOINT,
+        /**
+         * The instruction budget ran out before the program completed.
+         */
+        BUDGET_EXCEEDED,
+        /**
+         * The deadline passed before the program completed.
+         */
+        TIMED_OUT,
+        /**
+         * The running thread was interrupted.
+         */
+        CANCELLED,
+        /**
+         * An {@link ExecutionSession} reached the instruction or the number of instructions it
+         * was asked to run to.
+         */
+        PAUSED,
+        /**
+         * A {@link LoopDetector} found the machine state repeating, so the program never ends.
+         */
+        NON_TERMINATING
+    }
+}
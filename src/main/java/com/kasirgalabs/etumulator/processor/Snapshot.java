@@ -0,0 +1,90 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the state of a set of processor units: registers, flags, PC, LR, stack,
+ * breakpoint and memory. Memory pages are not copied but shared copy-on-write, so taking a
+ * snapshot and forking it are cheap and every fork only pays for the pages it writes.
+ * <p>
+ * A snapshot can be forked from many threads at the same time. Typical use is to assemble and
+ * load a program once, take a snapshot and run every test vector in its own fork.
+ *
+ * @see Memory
+ */
+public final class Snapshot {
+    private static final int REGISTER_COUNT = 13;
+    private final int[] registers;
+    private final boolean negative;
+    private final boolean zero;
+    private final boolean carry;
+    private final boolean overflow;
+    private final int pc;
+    private final int lr;
+    private final List<Integer> stack;
+    private final Breakpoint breakpoint;
+    private final Map<Integer, Memory.Page> pages;
+
+    private Snapshot(ProcessorUnits processorUnits) {
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        registers = new int[REGISTER_COUNT];
+        for(int i = 0; i < REGISTER_COUNT; i++) {
+            registers[i] = registerFile.getValue("r" + i);
+        }
+        APSR apsr = processorUnits.getAPSR();
+        negative = apsr.isNegative();
+        zero = apsr.isZero();
+        carry = apsr.isCarry();
+        overflow = apsr.isOverflow();
+        pc = processorUnits.getPC().getValue();
+        lr = processorUnits.getLR().getValue();
+        stack = processorUnits.getStack().copyItems();
+        breakpoint = new Breakpoint();
+        breakpoint.copyFrom(processorUnits.getBreakpoint());
+        pages = processorUnits.getMemory().sharePages();
+    }
+
+    /**
+     * Takes a snapshot of the given processor units. The units can still be used afterwards;
+     * their memory pages simply become copy-on-write.
+     *
+     * @param processorUnits The processor units.
+     *
+     * @return The snapshot.
+     */
+    public static Snapshot of(ProcessorUnits processorUnits) {
+        return new Snapshot(processorUnits);
+    }
+
+    /**
+     * Restores this snapshot in to the given processor units.
+     *
+     * @param processorUnits The processor units to be overwritten.
+     */
+    public void restore(ProcessorUnits processorUnits) {
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        for(int i = 0; i < REGISTER_COUNT; i++) {
+            registerFile.setValue("r" + i, registers[i]);
+        }
+        APSR apsr = processorUnits.getAPSR();
+        apsr.setNegative(negative);
+        apsr.setZero(zero);
+        apsr.setCarry(carry);
+        apsr.setOverflow(overflow);
+        processorUnits.getPC().setValue(pc);
+        processorUnits.getLR().setValue(lr);
+        processorUnits.getStack().restoreItems(stack);
+        processorUnits.getBreakpoint().copyFrom(breakpoint);
+        processorUnits.getMemory().adoptPages(pages);
+    }
+
+    /**
+     * @return New processor units holding the state of this snapshot.
+     */
+    public ProcessorUnits fork() {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        restore(processorUnits);
+        return processorUnits;
+    }
+}
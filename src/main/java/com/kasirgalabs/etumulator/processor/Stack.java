@@ -1,17 +1,22 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
 import com.kasirgalabs.etumulator.util.Observer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 
-@Singleton
 public class Stack implements Observable {
     private final LinkedList<Integer> list = new LinkedList<>();
     private final Dispatcher dispatcher;
+    private final Random random = new Random();
+    private UndoLog undoLog;
+    private long randomPops;
 
     public Stack() {
         this.dispatcher = new BaseDispatcher();
@@ -27,16 +32,32 @@ public class Stack implements Observable {
         dispatcher.addObserver(observer);
     }
 
+    /**
+     * Sets the undo log told about every push and pop, or null for none.
+     *
+     * @param undoLog The undo log.
+     */
+    void setUndoLog(UndoLog undoLog) {
+        this.undoLog = undoLog;
+    }
+
     public void push(Integer item) {
+        if(undoLog != null) {
+            undoLog.stackPushed();
+        }
         list.push(item);
         dispatcher.notifyObservers(Stack.class, "push");
     }
 
     public int pop() {
         if(list.isEmpty()) {
-            return (int) (Math.random() * Integer.MAX_VALUE);
+            randomPops++;
+            return random.nextInt(Integer.MAX_VALUE);
         }
         int result = list.pop();
+        if(undoLog != null) {
+            undoLog.stackPopped(result);
+        }
         dispatcher.notifyObservers(Stack.class, "pop");
         return result;
     }
@@ -45,6 +66,62 @@ public class Stack implements Observable {
         return list.peek();
     }
 
+    /**
+     * @return The items on the stack, the last pushed one first.
+     */
+    public List<Integer> getItems() {
+        return Collections.unmodifiableList(copyItems());
+    }
+
+    /**
+     * @return The number of items on the stack.
+     */
+    public int size() {
+        return list.size();
+    }
+
+    /**
+     * @return The number of random values popped from an empty stack so far.
+     */
+    long getRandomPops() {
+        return randomPops;
+    }
+
+    /**
+     * @param seed The seed of the values popped from an empty stack.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Removes the last pushed item without telling the undo log.
+     */
+    void undoPush() {
+        list.pop();
+        dispatcher.notifyObservers(Stack.class, "pop");
+    }
+
+    /**
+     * Pushes back a popped item without telling the undo log.
+     *
+     * @param item The popped item.
+     */
+    void undoPop(int item) {
+        list.push(item);
+        dispatcher.notifyObservers(Stack.class, "push");
+    }
+
+    List<Integer> copyItems() {
+        return new ArrayList<>(list);
+    }
+
+    void restoreItems(List<Integer> items) {
+        list.clear();
+        list.addAll(items);
+        dispatcher.notifyObservers(Stack.class, "clear");
+    }
+
     public void reset() {
         list.clear();
         dispatcher.notifyObservers(Stack.class, "clear");
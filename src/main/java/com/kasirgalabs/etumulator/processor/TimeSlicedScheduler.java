@@ -0,0 +1,260 @@
+package com.kasirgalabs.etumulator.processor;
+
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multiplexes many emulated processors onto a fixed number of threads. Every submitted job runs
+ * for a quantum of instructions and then goes back to a shared ready queue, so a handful of
+ * threads can host thousands of programs and a long or runaway program never holds a thread for
+ * more than one quantum at a time.
+ * <p>
+ * The ready queue is ordered with stride scheduling: after each quantum a job's pass is advanced
+ * by the instructions it executed divided by its priority, and the job with the lowest pass runs
+ * next. Over time every job therefore receives a share of the threads proportional to its
+ * priority. New jobs start at the current virtual time, so they neither starve nor overtake the
+ * jobs that are already waiting. Instructions are accounted to the tenant of each job.
+ * <p>
+ * Jobs should not block inside a quantum, for example on UART input which is not yet available,
+ * as a blocked job keeps its thread busy.
+ */
+public class TimeSlicedScheduler {
+    private static final long STRIDE = 1 << 16;
+    private final int quantum;
+    private final PriorityBlockingQueue<Job> readyQueue;
+    private final Thread[] workers;
+    private final Map<String, LongAdder> tenants;
+    private final AtomicLong virtualTime;
+    private final AtomicLong sequence;
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a TimeSlicedScheduler and starts its threads.
+     *
+     * @param threads The number of threads running the jobs.
+     * @param quantum The number of instructions a job runs before it yields.
+     */
+    public TimeSlicedScheduler(int threads, int quantum) {
+        if(threads < 1 || quantum < 1) {
+            throw new IllegalArgumentException("Threads and quantum must be positive.");
+        }
+        this.quantum = quantum;
+        readyQueue = new PriorityBlockingQueue<>();
+        tenants = new ConcurrentHashMap<>();
+        virtualTime = new AtomicLong();
+        sequence = new AtomicLong();
+        workers = new Thread[threads];
+        for(int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "time-sliced-scheduler-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Submits a program to be run from the beginning on the given processor units.
+     *
+     * @param tenant         The tenant the executed instructions are accounted to.
+     * @param priority       The share of the threads the job receives relative to other jobs, at
+     *                       least 1.
+     * @param processorUnits The processor units of the job. They must not be shared between jobs.
+     * @param executableCode The code to be run.
+     * @param limits         The limits of the whole run of the job.
+     *
+     * @return The job.
+     */
+    public Job submit(String tenant, int priority, ProcessorUnits processorUnits,
+            ExecutableCode executableCode, RunLimits limits) {
+        if(priority < 1) {
+            throw new IllegalArgumentException("Priority must be positive.");
+        }
+        if(shutdown) {
+            throw new IllegalStateException("Scheduler is shut down.");
+        }
+        Job job = new Job(tenant, priority, processorUnits, executableCode, limits);
+        tenants.computeIfAbsent(tenant, key -> new LongAdder());
+        readyQueue.add(job);
+        return job;
+    }
+
+    /**
+     * @param tenant The tenant.
+     *
+     * @return The number of instructions executed by the jobs of the tenant so far.
+     */
+    public long getInstructions(String tenant) {
+        LongAdder instructions = tenants.get(tenant);
+        return instructions == null ? 0 : instructions.sum();
+    }
+
+    /**
+     * @return The number of instructions executed so far, keyed by tenant.
+     */
+    public Map<String, Long> getInstructions() {
+        Map<String, Long> instructions = new HashMap<>();
+        tenants.forEach((tenant, count) -> instructions.put(tenant, count.sum()));
+        return Collections.unmodifiableMap(instructions);
+    }
+
+    /**
+     * Stops the threads. Jobs which have not finished yet complete as cancelled.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for(Thread worker : workers) {
+            worker.interrupt();
+        }
+        cancelQueued();
+    }
+
+    private void cancelQueued() {
+        Job job;
+        while((job = readyQueue.poll()) != null) {
+            job.finish(RunResult.Status.CANCELLED);
+        }
+    }
+
+    private void work() {
+        while(!shutdown) {
+            Job job;
+            try {
+                job = readyQueue.take();
+            } catch(InterruptedException ex) {
+                break;
+            }
+            virtualTime.accumulateAndGet(job.pass, Math::max);
+            if(runQuantum(job)) {
+                readyQueue.add(job);
+                if(shutdown) {
+                    // The queue may have been emptied before the job went back to it.
+                    cancelQueued();
+                }
+            }
+        }
+    }
+
+    private boolean runQuantum(Job job) {
+        if(shutdown || job.cancelled) {
+            job.finish(RunResult.Status.CANCELLED);
+            return false;
+        }
+        long timeLeft = job.limits.getTimeoutNanos();
+        if(timeLeft != Long.MAX_VALUE) {
+            timeLeft -= System.nanoTime() - job.start;
+            if(timeLeft <= 0) {
+                job.finish(RunResult.Status.TIMED_OUT);
+                return false;
+            }
+        }
+        long slice = Math.min(quantum, job.limits.getMaxInstructions() - job.executed);
+        RunLimits limits = new RunLimits(slice, timeLeft, TimeUnit.NANOSECONDS)
+                .withCheckInterval(job.limits.getCheckInterval());
+        RunResult result;
+        try {
+            result = job.processor.resume(job.executableCode, limits);
+        } catch(Throwable ex) {
+            job.future.completeExceptionally(ex);
+            return false;
+        }
+        job.executed += result.getInstructions();
+        job.pass += result.getInstructions() * job.stride;
+        tenants.get(job.tenant).add(result.getInstructions());
+        switch(result.getStatus()) {
+            case BUDGET_EXCEEDED:
+                if(job.executed < job.limits.getMaxInstructions()) {
+                    return true;
+                }
+                job.finish(RunResult.Status.BUDGET_EXCEEDED);
+                return false;
+            case CANCELLED:
+                if(!shutdown && !job.cancelled) {
+                    return true;
+                }
+                job.finish(RunResult.Status.CANCELLED);
+                return false;
+            default:
+                job.finish(result.getStatus());
+                return false;
+        }
+    }
+
+    /**
+     * A program submitted to the scheduler.
+     */
+    public final class Job implements Comparable<Job> {
+        private final String tenant;
+        private final long stride;
+        private final long order;
+        private final ProcessorUnits processorUnits;
+        private final BaseProcessor processor;
+        private final ExecutableCode executableCode;
+        private final RunLimits limits;
+        private final CompletableFuture<RunResult> future;
+        private final long start;
+        private long pass;
+        private long executed;
+        private volatile boolean cancelled;
+
+        private Job(String tenant, int priority, ProcessorUnits processorUnits,
+                ExecutableCode executableCode, RunLimits limits) {
+            this.tenant = tenant;
+            this.processorUnits = processorUnits;
+            this.executableCode = executableCode;
+            this.limits = limits;
+            stride = Math.max(1, STRIDE / priority);
+            order = sequence.getAndIncrement();
+            processor = new BaseProcessor(processorUnits);
+            future = new CompletableFuture<>();
+            start = System.nanoTime();
+            pass = virtualTime.get();
+            processorUnits.getPC().setValue(0);
+        }
+
+        /**
+         * @return The tenant of the job.
+         */
+        public String getTenant() {
+            return tenant;
+        }
+
+        /**
+         * @return The processor units of the job.
+         */
+        public ProcessorUnits getProcessorUnits() {
+            return processorUnits;
+        }
+
+        /**
+         * @return The future result of the whole run. It completes exceptionally if the program
+         *         raises an error, which only ends this job.
+         */
+        public CompletableFuture<RunResult> getResult() {
+            return future;
+        }
+
+        /**
+         * Cancels the job. A running job stops at the end of its current quantum.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void finish(RunResult.Status status) {
+            future.complete(new RunResult(status, executed, System.nanoTime() - start));
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int compare = Long.compare(pass, other.pass);
+            return compare != 0 ? compare : Long.compare(order, other.order);
+        }
+    }
+}
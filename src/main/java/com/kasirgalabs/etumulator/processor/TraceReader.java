@@ -0,0 +1,125 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a trace written by {@link TraceWriter}. The chunks are memory-mapped, so any instruction
+ * of a long run can be read directly by its number without going through the ones before it.
+ * Closing the reader releases the mappings, so the chunks can be deleted by a later
+ * {@link TraceWriter} on every platform.
+ */
+public class TraceReader implements Closeable, Iterable<TraceRecord> {
+    private final List<MappedByteBuffer> chunks;
+    private final long chunkRecords;
+    private final long size;
+    private boolean closed;
+
+    /**
+     * Constructs a TraceReader.
+     *
+     * @param directory The directory the trace is written to.
+     *
+     * @throws IOException If the chunks can not be read.
+     */
+    public TraceReader(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                TraceWriter.CHUNK_GLOB)) {
+            files.forEach(paths::add);
+        }
+        Collections.sort(paths);
+        chunks = new ArrayList<>(paths.size());
+        long records = 0;
+        for(Path path : paths) {
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                records += channel.size() / TraceWriter.RECORD_SIZE;
+            }
+        }
+        size = records;
+        chunkRecords = chunks.isEmpty() ? 1
+                : Math.max(1, chunks.get(0).capacity() / TraceWriter.RECORD_SIZE);
+    }
+
+    /**
+     * @return The number of instructions in the trace.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param instruction The number of the instruction, starting from zero.
+     *
+     * @return The record of the instruction.
+     *
+     * @throws IndexOutOfBoundsException If the trace has no such instruction.
+     * @throws IllegalStateException     If the reader is closed.
+     */
+    public TraceRecord get(long instruction) {
+        if(closed) {
+            throw new IllegalStateException("Trace reader is closed.");
+        }
+        if(instruction < 0 || instruction >= size) {
+            throw new IndexOutOfBoundsException("Instruction: " + instruction + ", size: " + size);
+        }
+        MappedByteBuffer chunk = chunks.get((int) (instruction / chunkRecords));
+        int offset = (int) (instruction % chunkRecords) * TraceWriter.RECORD_SIZE;
+        return new TraceRecord(instruction, chunk, offset);
+    }
+
+    /**
+     * Releases the mappings of the chunks. The records read before stay valid.
+     */
+    @Override
+    public void close() {
+        if(!closed) {
+            closed = true;
+            for(MappedByteBuffer chunk : chunks) {
+                TraceWriter.unmap(chunk);
+            }
+            chunks.clear();
+        }
+    }
+
+    @Override
+    public Iterator<TraceRecord> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * @param from The number of the first instruction.
+     *
+     * @return An iterator over the records, starting from the given instruction.
+     */
+    public Iterator<TraceRecord> iterator(long from) {
+        return new Iterator<TraceRecord>() {
+            private long next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public TraceRecord next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+}
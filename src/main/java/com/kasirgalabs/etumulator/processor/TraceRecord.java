@@ -0,0 +1,160 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * A single instruction of a trace written by {@link TraceWriter}. A record is
+ * {@value TraceWriter#RECORD_SIZE} bytes, big-endian:
+ * <pre>
+ *  0  int   PC value
+ *  4  int   new value of the changed register
+ *  8  int   accessed memory address
+ * 12  int   loaded or stored value
+ * 16  byte  changed register, 0 to 12 for r0 to r12, 13 for lr, -1 for none
+ * 17  byte  flags changed (high nibble) and flags after the instruction (low nibble), NZCV
+ * 18  byte  memory access (bits 0-1, 0 none, 1 load, 2 store) and its size (bits 2-3)
+ * 19  byte  reserved
+ * </pre>
+ */
+public final class TraceRecord {
+    /**
+     * The bit of the negative flag in {@link #getFlags()} and {@link #getChangedFlags()}.
+     */
+    public static final int NEGATIVE = APSR.NEGATIVE;
+    /**
+     * The bit of the zero flag in {@link #getFlags()} and {@link #getChangedFlags()}.
+     */
+    public static final int ZERO = APSR.ZERO;
+    /**
+     * The bit of the carry flag in {@link #getFlags()} and {@link #getChangedFlags()}.
+     */
+    public static final int CARRY = APSR.CARRY;
+    /**
+     * The bit of the overflow flag in {@link #getFlags()} and {@link #getChangedFlags()}.
+     */
+    public static final int OVERFLOW = APSR.OVERFLOW;
+    static final int LOAD = 1;
+    static final int STORE = 2;
+    private final long instruction;
+    private final int pc;
+    private final int registerValue;
+    private final int address;
+    private final int memoryValue;
+    private final int register;
+    private final int flags;
+    private final int access;
+
+    TraceRecord(long instruction, ByteBuffer buffer, int offset) {
+        this.instruction = instruction;
+        pc = buffer.getInt(offset);
+        registerValue = buffer.getInt(offset + 4);
+        address = buffer.getInt(offset + 8);
+        memoryValue = buffer.getInt(offset + 12);
+        register = buffer.get(offset + 16);
+        flags = buffer.get(offset + 17) & 0xFF;
+        access = buffer.get(offset + 18);
+    }
+
+    /**
+     * @return The number of the instruction in the run, starting from zero.
+     */
+    public long getInstruction() {
+        return instruction;
+    }
+
+    /**
+     * @return The PC value of the instruction.
+     */
+    public int getPC() {
+        return pc;
+    }
+
+    /**
+     * @return The name of the register the instruction changed, null if it changed none.
+     */
+    public String getRegister() {
+        if(register < 0) {
+            return null;
+        }
+        return register == TraceWriter.LR ? "lr" : RegisterFile.REGISTERS[register];
+    }
+
+    /**
+     * @return The new value of the changed register.
+     */
+    public int getRegisterValue() {
+        return registerValue;
+    }
+
+    /**
+     * @return True if the instruction loaded from the memory, otherwise false.
+     */
+    public boolean isLoad() {
+        return (access & 3) == LOAD;
+    }
+
+    /**
+     * @return True if the instruction stored to the memory, otherwise false.
+     */
+    public boolean isStore() {
+        return (access & 3) == STORE;
+    }
+
+    /**
+     * @return The size of the memory access, null if the instruction did not access the memory.
+     */
+    public Memory.Size getSize() {
+        return (access & 3) == 0 ? null : Memory.Size.values()[access >> 2 & 3];
+    }
+
+    /**
+     * @return The accessed memory address.
+     */
+    public int getAddress() {
+        return address;
+    }
+
+    /**
+     * @return The value loaded from or stored to the memory.
+     */
+    public int getMemoryValue() {
+        return memoryValue;
+    }
+
+    /**
+     * @return The flags after the instruction, made of {@link #NEGATIVE}, {@link #ZERO},
+     *         {@link #CARRY} and {@link #OVERFLOW}.
+     */
+    public int getFlags() {
+        return flags & 0xF;
+    }
+
+    /**
+     * @return The flags the instruction changed, in the same bits as {@link #getFlags()}.
+     */
+    public int getChangedFlags() {
+        return flags >> 4;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('#').append(instruction).append(" pc=").append(pc);
+        if(register >= 0) {
+            builder.append(' ').append(getRegister()).append('=').append(registerValue);
+        }
+        if(getSize() != null) {
+            builder.append(isLoad() ? " load " : " store ")
+                    .append(getSize().name().toLowerCase(Locale.ENGLISH))
+                    .append(" [").append(address).append("]=").append(memoryValue);
+        }
+        builder.append(" flags=");
+        String names = "NZCV";
+        for(int i = 0; i < names.length(); i++) {
+            char name = names.charAt(i);
+            builder.append((getFlags() & 8 >> i) != 0 ? name : Character.toLowerCase(name));
+        }
+        return builder.toString();
+    }
+}
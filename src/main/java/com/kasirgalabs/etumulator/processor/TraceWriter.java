@@ -0,0 +1,239 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every instruction executed by a {@link BaseProcessor} the writer is attached to. Each
+ * instruction gives one fixed width record of {@value #RECORD_SIZE} bytes: its PC value, the
+ * register it changed and the new value, the memory address it loaded from or stored to and the
+ * value, and the flags with the ones it changed. See {@link TraceRecord} for the layout.
+ * <p>
+ * Records are put straight in to memory-mapped chunk files of the trace directory, named
+ * <code>trace-00000.bin</code>, <code>trace-00001.bin</code> and so on. A new chunk is started
+ * when the current one is full, so no single file or mapping grows with the run, and recording
+ * allocates nothing per instruction. {@link TraceReader} reads the chunks back.
+ * <p>
+ * Registers are compared before and after each instruction, so a register written with the value
+ * it already had is not recorded. If an instruction changes several registers, like a
+ * <code>pop</code> of a register list, or accesses memory more than once, the record holds the
+ * highest numbered register and the last access. The stack is not part of the memory and its
+ * pushes and pops are not recorded as accesses.
+ */
+public class TraceWriter implements Closeable, Memory.AccessListener {
+    /**
+     * The size of a record in bytes.
+     */
+    public static final int RECORD_SIZE = 20;
+    /**
+     * The default number of records in a chunk.
+     */
+    public static final int DEFAULT_CHUNK_RECORDS = 1 << 20;
+    static final String CHUNK_GLOB = "trace-*.bin";
+    static final int LR = RegisterFile.REGISTERS.length;
+    private final RegisterFile registerFile;
+    private final LR lr;
+    private final APSR apsr;
+    private final Memory memory;
+    private final Path directory;
+    private final int chunkRecords;
+    private final int[] registers;
+    private int flags;
+    private int pc;
+    private int access;
+    private int address;
+    private int value;
+    private long records;
+    private int chunk;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Constructs a TraceWriter with chunks of {@value #DEFAULT_CHUNK_RECORDS} records.
+     *
+     * @param processorUnits The units of the processor the writer is attached to.
+     * @param directory      The directory of the chunks. Chunks of an earlier trace in it are
+     *                       deleted.
+     *
+     * @throws IOException If the directory can not be prepared.
+     */
+    public TraceWriter(ProcessorUnits processorUnits, Path directory) throws IOException {
+        this(processorUnits, directory, DEFAULT_CHUNK_RECORDS);
+    }
+
+    /**
+     * Constructs a TraceWriter.
+     *
+     * @param processorUnits The units of the processor the writer is attached to.
+     * @param directory      The directory of the chunks. Chunks of an earlier trace in it are
+     *                       deleted.
+     * @param chunkRecords   The number of records in a chunk.
+     *
+     * @throws IOException If the directory can not be prepared.
+     */
+    public TraceWriter(ProcessorUnits processorUnits, Path directory, int chunkRecords)
+            throws IOException {
+        if(chunkRecords < 1 || chunkRecords > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkRecords);
+        }
+        registerFile = processorUnits.getRegisterFile();
+        lr = processorUnits.getLR();
+        apsr = processorUnits.getAPSR();
+        memory = processorUnits.getMemory();
+        this.directory = directory;
+        this.chunkRecords = chunkRecords;
+        registers = new int[RegisterFile.REGISTERS.length + 1];
+        Files.createDirectories(directory);
+        try(DirectoryStream<Path> chunks = Files.newDirectoryStream(directory, CHUNK_GLOB)) {
+            for(Path path : chunks) {
+                Files.delete(path);
+            }
+        }
+        memory.setAccessListener(this);
+    }
+
+    /**
+     * @return The number of records written.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Takes the current registers and flags as the state the next instruction starts from.
+     */
+    void prepare() {
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            registers[i] = registerFile.getValue(RegisterFile.REGISTERS[i]);
+        }
+        registers[LR] = lr.getValue();
+        flags = apsr.getFlags();
+    }
+
+    /**
+     * Starts the record of an instruction.
+     *
+     * @param pc The PC value of the instruction.
+     */
+    void before(int pc) {
+        this.pc = pc;
+        access = 0;
+    }
+
+    /**
+     * Completes and writes the record of the instruction started by {@link #before(int)}.
+     */
+    void after() {
+        int register = -1;
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            int current = registerFile.getValue(RegisterFile.REGISTERS[i]);
+            if(current != registers[i]) {
+                registers[i] = current;
+                register = i;
+            }
+        }
+        if(lr.getValue() != registers[LR]) {
+            registers[LR] = lr.getValue();
+            register = LR;
+        }
+        int current = apsr.getFlags();
+        int changed = current ^ flags;
+        flags = current;
+        if(buffer == null || !buffer.hasRemaining()) {
+            nextChunk();
+        }
+        buffer.putInt(pc);
+        buffer.putInt(register < 0 ? 0 : registers[register]);
+        buffer.putInt(access == 0 ? 0 : address);
+        buffer.putInt(access == 0 ? 0 : value);
+        buffer.put((byte) register);
+        buffer.put((byte) (changed << 4 | current));
+        buffer.put((byte) access);
+        buffer.put((byte) 0);
+        records++;
+    }
+
+    @Override
+    public void accessed(int address, int value, Memory.Size size, boolean store) {
+        this.address = address;
+        this.value = value;
+        access = (store ? TraceRecord.STORE : TraceRecord.LOAD) | size.ordinal() << 2;
+    }
+
+    /**
+     * Detaches the writer from the memory, releases the mapping of the last chunk and truncates
+     * it to the records written.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        memory.setAccessListener(null);
+        if(channel != null) {
+            int used = buffer.position();
+            buffer.force();
+            unmap(buffer);
+            buffer = null;
+            channel.truncate(used);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void nextChunk() {
+        try {
+            if(channel != null) {
+                unmap(buffer);
+                buffer = null;
+                channel.close();
+            }
+            Path path = directory.resolve(String.format("trace-%05d.bin", chunk++));
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) chunkRecords * RECORD_SIZE);
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Releases the mapping of the given buffer right away instead of when it is garbage
+     * collected, which Windows needs before the file can be truncated or deleted. The buffer must
+     * not be used afterwards. Nothing is done if the runtime offers no way to do it.
+     *
+     * @param buffer The buffer to release.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch(ReflectiveOperationException | RuntimeException ex) {
+            // Not Java 9 or later.
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if(cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch(ReflectiveOperationException | RuntimeException ex) {
+            // Left to the garbage collector.
+        }
+    }
+}
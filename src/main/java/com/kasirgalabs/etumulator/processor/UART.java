@@ -1,29 +1,58 @@
 package com.kasirgalabs.etumulator.processor;
 
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.kasirgalabs.etumulator.util.BaseDispatcher;
 import com.kasirgalabs.etumulator.util.Dispatcher;
 import com.kasirgalabs.etumulator.util.Observable;
 import com.kasirgalabs.etumulator.util.Observer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.concurrent.CountDownLatch;
 
-@Singleton
+/**
+ * Serial port of the processor, driven by <code>bl uart_read</code> and
+ * <code>bl uart_write</code>.
+ * <p>
+ * By default the UART is interactive: a read notifies the observers and waits until a character
+ * is fed, and every written character is sent to the observers. Input and output channels can be
+ * attached instead. A read then takes the next byte of the input stream and a write appends a byte
+ * to the output stream, both through buffers and without any notification or synchronization per
+ * character. The output is flushed before a read which may wait for input, so prompts appear
+ * before the program waits, while a program echoing input which is already there writes its
+ * output in whole buffers.
+ *
+ * @see EndOfInput
+ */
 public class UART implements Observable {
     private RegisterFile registerFile;
     private char input;
     private final Dispatcher dispatcher;
+    private final Dispatcher directDispatcher;
     private CountDownLatch latch;
+    private InputStream inputChannel;
+    private EndOfInput endOfInput;
+    private OutputStream outputChannel;
+    private long outputLimit;
+    private long written;
+    private long read;
 
     public UART(RegisterFile registerFile) {
         this.registerFile = registerFile;
         this.dispatcher = new BaseDispatcher();
+        this.directDispatcher = new BaseDispatcher();
     }
 
     @Inject
     public UART(RegisterFile registerFile, Dispatcher dispatcher) {
         this.registerFile = registerFile;
         this.dispatcher = dispatcher;
+        this.directDispatcher = new BaseDispatcher();
     }
 
     public void setRegisterFile(RegisterFile registerFile) {
@@ -35,19 +64,181 @@ public class UART implements Observable {
         dispatcher.addObserver(observer);
     }
 
+    /**
+     * Adds an observer which is notified on the thread that drives the UART, bypassing the
+     * dispatcher. Such observers receive the same notifications as the regular ones, so they must
+     * be thread safe and must not block.
+     *
+     * @param observer The observer to be added.
+     */
+    public void addDirectObserver(Observer observer) {
+        directDispatcher.addObserver(observer);
+    }
+
+    /**
+     * Attaches an input channel which is read until its end, after which reads give zero.
+     *
+     * @param input The stream reads take their bytes from, null to make reads interactive again.
+     */
+    public void setInput(InputStream input) {
+        setInput(input, EndOfInput.ZERO);
+    }
+
+    /**
+     * Attaches an input channel.
+     *
+     * @param input      The stream reads take their bytes from, null to make reads interactive
+     *                   again.
+     * @param endOfInput What reads give once the stream has ended.
+     */
+    public void setInput(InputStream input, EndOfInput endOfInput) {
+        if(input == null || input instanceof BufferedInputStream
+                || input instanceof ByteArrayInputStream) {
+            inputChannel = input;
+        }
+        else {
+            inputChannel = new BufferedInputStream(input);
+        }
+        this.endOfInput = endOfInput;
+        read = 0;
+    }
+
+    /**
+     * Attaches an output channel without a limit.
+     *
+     * @param output The stream writes go to, null to make writes interactive again.
+     */
+    public void setOutput(OutputStream output) {
+        setOutput(output, Long.MAX_VALUE);
+    }
+
+    /**
+     * Attaches an output channel. Any output which is still buffered for the previous channel is
+     * flushed first.
+     *
+     * @param output The stream writes go to, null to make writes interactive again.
+     * @param limit  The number of bytes that may be written before a write fails.
+     */
+    public void setOutput(OutputStream output, long limit) {
+        flush();
+        if(output == null || output instanceof BufferedOutputStream
+                || output instanceof ByteArrayOutputStream) {
+            outputChannel = output;
+        }
+        else {
+            outputChannel = new BufferedOutputStream(output);
+        }
+        outputLimit = limit;
+        written = 0;
+    }
+
+    /**
+     * @return The number of bytes written to the output channel since it was attached.
+     */
+    public long getWrittenBytes() {
+        return written;
+    }
+
+    /**
+     * @return The number of bytes read from the input since it was attached, not counting the
+     *         reads past its end.
+     */
+    public long getReadBytes() {
+        return read;
+    }
+
+    /**
+     * Flushes the output channel, if any.
+     */
+    public void flush() {
+        if(outputChannel == null) {
+            return;
+        }
+        try {
+            outputChannel.flush();
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     public void read() throws InterruptedException {
+        if(inputChannel != null) {
+            registerFile.setValue("r0", readChannel());
+            return;
+        }
         latch = new CountDownLatch(1);
+        directDispatcher.notifyObservers(UART.class, "read");
         dispatcher.notifyObservers(UART.class, "read");
         latch.await();
+        read++;
         registerFile.setValue("r0", input);
     }
 
     public void write() {
-        dispatcher.notifyObservers(UART.class, (char) registerFile.getValue("r0"));
+        if(outputChannel != null) {
+            writeChannel(registerFile.getValue("r0"));
+            return;
+        }
+        char data = (char) registerFile.getValue("r0");
+        directDispatcher.notifyObservers(UART.class, data);
+        dispatcher.notifyObservers(UART.class, data);
     }
 
     public void feed(char input) {
         this.input = input;
         latch.countDown();
     }
+
+    private int readChannel() {
+        try {
+            if(inputChannel.available() == 0) {
+                flush();
+            }
+            int data = inputChannel.read();
+            if(data >= 0) {
+                read++;
+                return data;
+            }
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        switch(endOfInput) {
+            case MINUS_ONE:
+                return -1;
+            case ERROR:
+                throw new UARTException("Read past the end of the input.");
+            default:
+                return 0;
+        }
+    }
+
+    private void writeChannel(int data) {
+        if(written >= outputLimit) {
+            throw new UARTException("Output exceeds the limit of " + outputLimit + " bytes.");
+        }
+        try {
+            outputChannel.write(data);
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        written++;
+    }
+
+    /**
+     * What a read from an input channel gives once the channel has ended.
+     */
+    public enum EndOfInput {
+        /**
+         * The read gives zero.
+         */
+        ZERO,
+        /**
+         * The read gives -1, like <code>getchar</code> in C.
+         */
+        MINUS_ONE,
+        /**
+         * The read raises a {@link UARTException}, which stops the program.
+         */
+        ERROR
+    }
 }
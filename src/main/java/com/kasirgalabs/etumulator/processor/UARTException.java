@@ -0,0 +1,7 @@
+package com.kasirgalabs.etumulator.processor;
+
+public class UARTException extends IllegalStateException {
+    public UARTException(String message) {
+        super(message);
+    }
+}
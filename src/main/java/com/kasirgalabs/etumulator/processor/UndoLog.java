@@ -0,0 +1,259 @@
+package com.kasirgalabs.etumulator.processor;
+
+/**
+ * Bounded log of the state changes made by the instructions a {@link BaseProcessor} executes,
+ * which lets the processor step backwards without running the program again from the start.
+ * <p>
+ * For every instruction the log keeps the old values of the registers, the link register and the
+ * flags it changed, the old value of every memory byte it wrote, its stack operations and its PC
+ * value. Entries are three ints in a ring buffer with a fixed memory cap, so logging allocates
+ * nothing per instruction. When the ring is full the oldest instructions are dropped and can no
+ * longer be undone.
+ * <p>
+ * The log is cleared when the processor starts a program from the beginning. Memory which is
+ * reset or replaced by other means than the instructions, such as loading or restoring a
+ * {@link Snapshot}, is not logged, so the log should be cleared then as well. A log is not thread
+ * safe and must only be used by the thread running its processor.
+ */
+public class UndoLog {
+    /**
+     * The default memory cap of the ring in bytes.
+     */
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int ENTRY = 3;
+    private static final int REGISTER = 0;
+    private static final int FLAGS = 1;
+    private static final int MEMORY = 2;
+    private static final int PUSH = 3;
+    private static final int POP = 4;
+    private static final int END = 5;
+    private static final int LR = RegisterFile.REGISTERS.length;
+    private final RegisterFile registerFile;
+    private final LR lr;
+    private final APSR apsr;
+    private final PC pc;
+    private final Stack stack;
+    private final Memory memory;
+    private final Breakpoint breakpoint;
+    private final int[] ring;
+    private final int[] registers;
+    private int flags;
+    private long head;
+    private long tail;
+    private long lastEnd;
+    private int steps;
+    private boolean logging;
+
+    /**
+     * Constructs an UndoLog with a cap of {@value #DEFAULT_CAPACITY} bytes.
+     *
+     * @param processorUnits The units of the processor the log is attached to.
+     */
+    public UndoLog(ProcessorUnits processorUnits) {
+        this(processorUnits, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an UndoLog.
+     *
+     * @param processorUnits The units of the processor the log is attached to.
+     * @param capacity       The memory cap of the ring in bytes, at least
+     *                       {@value #MIN_CAPACITY}.
+     */
+    public UndoLog(ProcessorUnits processorUnits, int capacity) {
+        if(capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be at least " + MIN_CAPACITY
+                    + " bytes.");
+        }
+        registerFile = processorUnits.getRegisterFile();
+        lr = processorUnits.getLR();
+        apsr = processorUnits.getAPSR();
+        pc = processorUnits.getPC();
+        stack = processorUnits.getStack();
+        memory = processorUnits.getMemory();
+        breakpoint = processorUnits.getBreakpoint();
+        ring = new int[capacity / Integer.BYTES / ENTRY * ENTRY];
+        registers = new int[RegisterFile.REGISTERS.length + 1];
+        memory.setUndoLog(this);
+        stack.setUndoLog(this);
+    }
+
+    /**
+     * @return The number of instructions which can be undone.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Forgets every instruction logged so far.
+     */
+    public void clear() {
+        head = 0;
+        tail = 0;
+        lastEnd = 0;
+        steps = 0;
+    }
+
+    /**
+     * Undoes the last executed instruction, restoring the state before it, including its PC value.
+     *
+     * @return True if an instruction is undone, false if the log is empty.
+     */
+    public boolean stepBack() {
+        if(steps == 0) {
+            return false;
+        }
+        head -= ENTRY;
+        int oldPc = ring[index(head) + 1];
+        while(head > tail && ring[index(head - ENTRY)] != END) {
+            head -= ENTRY;
+            undo(index(head));
+        }
+        lastEnd = head;
+        steps--;
+        pc.setValue(oldPc);
+        prepare();
+        return true;
+    }
+
+    /**
+     * Steps back until the PC reaches a breakpoint of the processor units or the log is empty.
+     * Like a forward run, it stops in front of the breakpoint instruction. Conditions and hit
+     * counts of the breakpoints are not evaluated, since they describe the forward run.
+     *
+     * @return The number of instructions undone.
+     */
+    public int reverseContinue() {
+        int undone = 0;
+        while(stepBack()) {
+            undone++;
+            if(breakpoint.contains(pc.getValue())) {
+                break;
+            }
+        }
+        return undone;
+    }
+
+    /**
+     * Takes the current registers and flags as the state the next instruction starts from.
+     */
+    void prepare() {
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            registers[i] = registerFile.getValue(RegisterFile.REGISTERS[i]);
+        }
+        registers[LR] = lr.getValue();
+        flags = apsr.getFlags();
+    }
+
+    /**
+     * Starts logging an instruction. Entries left by an instruction which did not complete are
+     * discarded.
+     */
+    void before() {
+        head = lastEnd;
+        logging = true;
+    }
+
+    /**
+     * Completes the entries of the instruction started by {@link #before()}.
+     *
+     * @param oldPc The PC value of the instruction.
+     */
+    void after(int oldPc) {
+        for(int i = 0; i < RegisterFile.REGISTERS.length; i++) {
+            int current = registerFile.getValue(RegisterFile.REGISTERS[i]);
+            if(current != registers[i]) {
+                append(REGISTER, i, registers[i]);
+                registers[i] = current;
+            }
+        }
+        if(lr.getValue() != registers[LR]) {
+            append(REGISTER, LR, registers[LR]);
+            registers[LR] = lr.getValue();
+        }
+        int current = apsr.getFlags();
+        if(current != flags) {
+            append(FLAGS, flags, 0);
+            flags = current;
+        }
+        append(END, oldPc, 0);
+        lastEnd = head;
+        steps++;
+        logging = false;
+    }
+
+    void memoryWritten(int address, int oldValue) {
+        if(logging) {
+            append(MEMORY, address, oldValue);
+        }
+    }
+
+    void stackPushed() {
+        if(logging) {
+            append(PUSH, 0, 0);
+        }
+    }
+
+    void stackPopped(int item) {
+        if(logging) {
+            append(POP, item, 0);
+        }
+    }
+
+    private void append(int type, int first, int second) {
+        while(head + ENTRY - tail > ring.length) {
+            dropOldest();
+        }
+        int index = index(head);
+        ring[index] = type;
+        ring[index + 1] = first;
+        ring[index + 2] = second;
+        head += ENTRY;
+    }
+
+    private void dropOldest() {
+        if(steps == 0) {
+            throw new IllegalStateException("An instruction does not fit in the undo log.");
+        }
+        while(ring[index(tail)] != END) {
+            tail += ENTRY;
+        }
+        tail += ENTRY;
+        steps--;
+    }
+
+    private void undo(int index) {
+        int first = ring[index + 1];
+        int second = ring[index + 2];
+        switch(ring[index]) {
+            case REGISTER:
+                if(first == LR) {
+                    lr.setValue(second);
+                }
+                else {
+                    registerFile.setValue(RegisterFile.REGISTERS[first], second);
+                }
+                break;
+            case FLAGS:
+                apsr.setFlags(first);
+                break;
+            case MEMORY:
+                memory.restore(first, second);
+                break;
+            case PUSH:
+                stack.undoPush();
+                break;
+            case POP:
+                stack.undoPop(first);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % ring.length);
+    }
+}
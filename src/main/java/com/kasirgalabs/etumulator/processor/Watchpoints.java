@@ -0,0 +1,261 @@
+package com.kasirgalabs.etumulator.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Data breakpoints on the memory of a set of processor units. A watch covers an address range and
+ * reports the loads, the stores or both which touch any byte of it. Every report is kept as a
+ * {@link Hit} with the PC value of the instruction and the old and new value, and a watch may also
+ * stop the {@link BaseProcessor} the watchpoints are attached to, right after the instruction.
+ * <p>
+ * The memory flags the pages holding a watched range and only accesses to those pages reach the
+ * watchpoints, so runs are not slowed down by accesses elsewhere. Stack pushes and pops do not go
+ * through the memory and are not watched. At most {@value #MAX_HITS} hits are kept; later ones
+ * are counted but dropped.
+ * <p>
+ * Watchpoints are not thread safe and must only be changed while the processor is not running.
+ */
+public class Watchpoints {
+    /**
+     * The maximum number of hits kept.
+     */
+    public static final int MAX_HITS = 10_000;
+    private final PC pc;
+    private final Memory memory;
+    private final List<Watch> watches;
+    private final List<Hit> hits;
+    private long dropped;
+    private boolean stopRequested;
+
+    /**
+     * Constructs Watchpoints without any watch and attaches them to the memory of the units.
+     *
+     * @param processorUnits The units whose memory is watched.
+     */
+    public Watchpoints(ProcessorUnits processorUnits) {
+        pc = processorUnits.getPC();
+        memory = processorUnits.getMemory();
+        watches = new ArrayList<>();
+        hits = new ArrayList<>();
+        memory.setWatchpoints(this);
+    }
+
+    /**
+     * Watches an address range.
+     *
+     * @param address The first address of the range.
+     * @param length  The number of bytes in the range, at least 1.
+     * @param access  The accesses reported.
+     * @param stop    True to stop the processor when the range is accessed, false to only keep
+     *                the hit.
+     */
+    public void add(int address, int length, Access access, boolean stop) {
+        if(length < 1 || address + (long) length - 1 > Integer.MAX_VALUE || address < 0) {
+            throw new IllegalArgumentException("Invalid range: " + address + ", " + length);
+        }
+        watches.add(new Watch(address, length, access, stop));
+        flagPages();
+    }
+
+    /**
+     * Removes the watches of the ranges starting at the given address.
+     *
+     * @param address The first address of the range.
+     */
+    public void remove(int address) {
+        watches.removeIf(watch -> watch.address == address);
+        flagPages();
+    }
+
+    /**
+     * Removes every watch. The hits are kept.
+     */
+    public void reset() {
+        watches.clear();
+        flagPages();
+    }
+
+    /**
+     * @return The hits in the order they occurred.
+     */
+    public List<Hit> getHits() {
+        return Collections.unmodifiableList(hits);
+    }
+
+    /**
+     * @return The number of hits dropped since {@value #MAX_HITS} hits were already kept.
+     */
+    public long getDroppedHits() {
+        return dropped;
+    }
+
+    /**
+     * Forgets the hits.
+     */
+    public void clearHits() {
+        hits.clear();
+        dropped = 0;
+    }
+
+    /**
+     * Tells whether a watch asked to stop since the last call, and clears the request.
+     *
+     * @return True if the processor should stop, otherwise false.
+     */
+    boolean takeStop() {
+        boolean stop = stopRequested;
+        stopRequested = false;
+        return stop;
+    }
+
+    /**
+     * Checks an access to a watched page against the watches. An access matching several
+     * overlapping watches is kept once, and stops the processor if any of them stops it.
+     *
+     * @param address  The accessed address.
+     * @param oldValue The value before the access.
+     * @param newValue The value after the access.
+     * @param size     The size of the access.
+     * @param store    True for a store, false for a load.
+     */
+    void accessed(int address, int oldValue, int newValue, Memory.Size size, boolean store) {
+        long end = address + (long) Memory.lengthOf(size);
+        boolean matched = false;
+        for(Watch watch : watches) {
+            if(address < watch.address + (long) watch.length && watch.address < end
+                    && watch.access.matches(store)) {
+                matched = true;
+                stopRequested |= watch.stop;
+            }
+        }
+        if(!matched) {
+            return;
+        }
+        if(hits.size() < MAX_HITS) {
+            hits.add(new Hit(pc.getValue(), address, size, store, oldValue, newValue));
+        }
+        else {
+            dropped++;
+        }
+    }
+
+    private void flagPages() {
+        if(watches.isEmpty()) {
+            memory.watchPages(0, new long[0]);
+            return;
+        }
+        int first = Integer.MAX_VALUE;
+        int last = 0;
+        for(Watch watch : watches) {
+            first = Math.min(first, watch.address >>> Memory.PAGE_BITS);
+            last = Math.max(last, (watch.address + watch.length - 1) >>> Memory.PAGE_BITS);
+        }
+        long[] pages = new long[((last - first) >>> 6) + 1];
+        for(Watch watch : watches) {
+            int end = (watch.address + watch.length - 1) >>> Memory.PAGE_BITS;
+            for(int page = watch.address >>> Memory.PAGE_BITS; page <= end; page++) {
+                int bit = page - first;
+                pages[bit >>> 6] |= 1L << bit;
+            }
+        }
+        memory.watchPages(first, pages);
+    }
+
+    /**
+     * The accesses a watch reports.
+     */
+    public enum Access {
+        READ, WRITE, READ_WRITE;
+
+        boolean matches(boolean store) {
+            return this == READ_WRITE || (this == WRITE) == store;
+        }
+    }
+
+    private static final class Watch {
+        private final int address;
+        private final int length;
+        private final Access access;
+        private final boolean stop;
+
+        Watch(int address, int length, Access access, boolean stop) {
+            this.address = address;
+            this.length = length;
+            this.access = access;
+            this.stop = stop;
+        }
+    }
+
+    /**
+     * A watched access.
+     */
+    public static final class Hit {
+        private final int pc;
+        private final int address;
+        private final Memory.Size size;
+        private final boolean store;
+        private final int oldValue;
+        private final int newValue;
+
+        Hit(int pc, int address, Memory.Size size, boolean store, int oldValue, int newValue) {
+            this.pc = pc;
+            this.address = address;
+            this.size = size;
+            this.store = store;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return The PC value of the instruction which accessed the memory.
+         */
+        public int getPC() {
+            return pc;
+        }
+
+        /**
+         * @return The accessed address.
+         */
+        public int getAddress() {
+            return address;
+        }
+
+        /**
+         * @return The size of the access.
+         */
+        public Memory.Size getSize() {
+            return size;
+        }
+
+        /**
+         * @return True for a store, false for a load.
+         */
+        public boolean isStore() {
+            return store;
+        }
+
+        /**
+         * @return The value before the access. Bytes never written are taken as zero.
+         */
+        public int getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return The value after the access, the loaded value for a load.
+         */
+        public int getNewValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "pc=%d %s %s [%d] 0x%x -> 0x%x", pc,
+                    store ? "store" : "load", size.name().toLowerCase(Locale.ENGLISH), address,
+                    oldValue, newValue);
+        }
+    }
+}
@@ -22,6 +22,13 @@ public class BaseDispatcher implements Dispatcher {
         }
     }
 
+    /**
+     * @return True if at least one observer is registered, otherwise false.
+     */
+    protected boolean hasObservers() {
+        return !observers.isEmpty();
+    }
+
     @Override
     public void notifyObservers(Class<?> clazz) {
         notifyObservers(clazz, null);
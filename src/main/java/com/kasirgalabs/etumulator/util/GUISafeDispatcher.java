@@ -4,9 +4,33 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import javafx.application.Platform;
 
+/**
+ * Notifies the observers on the JavaFX thread and waits until they are done. A thread running a
+ * long task can suspend its notifications, so it does not wait for the JavaFX thread on every
+ * change; the observers must then read the whole state once the task is over.
+ */
 public class GUISafeDispatcher extends BaseDispatcher {
+    private static final ThreadLocal<Boolean> SUSPENDED = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Drops the notifications sent by the calling thread until {@link #resumeNotifications()}.
+     */
+    public static void suspendNotifications() {
+        SUSPENDED.set(true);
+    }
+
+    /**
+     * Sends the notifications of the calling thread again.
+     */
+    public static void resumeNotifications() {
+        SUSPENDED.set(false);
+    }
+
     @Override
     public void notifyObservers(Class<?> clazz, Object arg) {
+        if(!hasObservers() || SUSPENDED.get()) {
+            return;
+        }
         final CountDownLatch latch = new CountDownLatch(1);
         Platform.runLater(() -> {
             super.notifyObservers(clazz, arg);
@@ -163,7 +163,7 @@ public class BranchVisitor extends ProcessorBaseVisitor<Void> {
 
     @Override
     public Void visitBl(ProcessorParser.BlContext ctx) {
-        lr.setValue((int) (Math.random() * Integer.MAX_VALUE));
+        lr.randomize();
         if(ctx.LABEL() != null) {
             String label = ctx.LABEL().getText();
             if("uart_read".equalsIgnoreCase(label)) {
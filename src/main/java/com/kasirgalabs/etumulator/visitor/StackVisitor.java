@@ -32,7 +32,7 @@ public class StackVisitor extends ProcessorBaseVisitor<Void> {
                 stack.push(pc.getValue());
             }
             else if("LR".equalsIgnoreCase(registerName)) {
-                stack.push(lr.getValue());
+                stack.push(lr.read());
             }
             else {
                 stack.push(registerFile.getValue(registerName));
@@ -0,0 +1,51 @@
+package com.kasirgalabs.etumulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.AssemblyTimings;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.BaseProcessor;
+import com.kasirgalabs.etumulator.processor.BaseProcessorUnits;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class RunPipelineTest {
+    /**
+     * Test of run method, of class RunPipeline.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRun() throws Exception {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        RunPipeline runPipeline = new RunPipeline(new BaseProcessor(processorUnits),
+                processorUnits, Runnable::run);
+        AtomicReference<Object> result = new AtomicReference<>();
+        RunPipeline.Callback callback = new RunPipeline.Callback() {
+            @Override
+            public void completed(AssemblyTimings timings) {
+                result.set(timings);
+            }
+
+            @Override
+            public void failed(Throwable error) {
+                result.set(error);
+            }
+        };
+
+        processorUnits.getRegisterFile().setValue("r1", 3);
+        runPipeline.run("mov r0, #5\n", callback).get(5, TimeUnit.SECONDS);
+        assertTrue("RunPipeline does not work properly.",
+                result.get() instanceof AssemblyTimings);
+        assertEquals("RunPipeline does not work properly.", 5,
+                processorUnits.getRegisterFile().getValue("r0"));
+        assertEquals("Processor units are not reset.", 0,
+                processorUnits.getRegisterFile().getValue("r1"));
+
+        runPipeline.run("INTENTIONAL_SYNTAX_ERROR\n", callback).get(5, TimeUnit.SECONDS);
+        assertTrue("RunPipeline does not work properly.", result.get() instanceof SyntaxError);
+    }
+}
@@ -0,0 +1,103 @@
+package com.kasirgalabs.etumulator.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchGraderTest {
+    private static final String ECHO = "bl uart_read\n"
+            + "bl uart_write\n";
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("BatchGraderTest");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.toFile().listFiles();
+        if(files != null) {
+            for(File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes("US-ASCII"));
+    }
+
+    /**
+     * Test of grade method, of class BatchGrader.
+     *
+     * @throws java.io.IOException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testGrade() throws IOException, InterruptedException {
+        List<Path> programs = new ArrayList<>();
+        programs.add(write("passed.s", ECHO));
+        write("passed.in", "x");
+        write("passed.out", "x");
+        programs.add(write("failed.s", ECHO));
+        write("failed.in", "x");
+        write("failed.out", "y");
+        programs.add(write("completed.s", "mov r0, #1\n"));
+        programs.add(write("loop.s", "loop:\nb loop\n"));
+        programs.add(write("error.s", "INTENTIONAL_SYNTAX_ERROR\n"));
+
+        StringWriter out = new StringWriter();
+        BatchGrader grader = new BatchGrader(2, new RunLimits(1000), BatchGrader.Format.NDJSON);
+        int failures = grader.grade(programs, out);
+        assertEquals("Number of failures is wrong.", 3, failures);
+
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+        assertEquals("Number of results is wrong.", programs.size(), lines.size());
+        assertContains(lines, "passed.s", "\"verdict\":\"PASSED\"");
+        assertContains(lines, "failed.s", "\"verdict\":\"FAILED\"");
+        assertContains(lines, "completed.s", "\"verdict\":\"COMPLETED\"");
+        assertContains(lines, "loop.s", "\"verdict\":\"BUDGET_EXCEEDED\"");
+        assertContains(lines, "error.s", "\"verdict\":\"ASSEMBLY_ERROR\"");
+    }
+
+    /**
+     * Test of grade method, of class BatchGrader.
+     *
+     * @throws java.io.IOException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testGradeCSV() throws IOException, InterruptedException {
+        List<Path> programs = Arrays.asList(write("completed.s", "mov r0, #1\n"));
+        StringWriter out = new StringWriter();
+        new BatchGrader(1, RunLimits.NONE, BatchGrader.Format.CSV).grade(programs, out);
+        String[] lines = out.toString().split("\n");
+        assertEquals("CSV header is wrong.",
+                "file,verdict,status,instructions,elapsed_ms,message", lines[0]);
+        assertTrue("CSV row is wrong.", lines[1].contains(",COMPLETED,COMPLETED,1,"));
+    }
+
+    private static void assertContains(List<String> lines, String file, String field) {
+        for(String line : lines) {
+            if(line.contains(file + "\"")) {
+                assertTrue("Result of " + file + " is wrong: " + line, line.contains(field));
+                return;
+            }
+        }
+        throw new AssertionError("Result of " + file + " is missing.");
+    }
+}
@@ -0,0 +1,113 @@
+package com.kasirgalabs.etumulator.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ETUmulatorCLITest {
+    private File file;
+    private ByteArrayOutputStream output;
+    private ByteArrayOutputStream error;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("ETUmulatorCLITest", ".s");
+        output = new ByteArrayOutputStream();
+        error = new ByteArrayOutputStream();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private int run(String code, String input, String... args) throws IOException {
+        Files.write(file.toPath(), code.getBytes("US-ASCII"));
+        return ETUmulatorCLI.run(args, new ByteArrayInputStream(input.getBytes("US-ASCII")),
+                output, new PrintStream(error, true));
+    }
+
+    /**
+     * Test of run method, of class ETUmulatorCLI.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRunEcho() throws IOException {
+        String code = "bl uart_read\n"
+                + "add r0, r0, #1\n"
+                + "bl uart_write\n"
+                + "mov r0, #10\n"
+                + "bl uart_write\n";
+        int status = run(code, "a", "--stats", file.getPath());
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_OK, status);
+        assertEquals("UART output is wrong.", "b\n", output.toString("US-ASCII"));
+        String report = error.toString("US-ASCII");
+        assertTrue("Final state is not printed.", report.contains("r0  = 0x0000000a (10)"));
+        assertTrue("Statistics are not printed.", report.contains("instructions: 5"));
+    }
+
+    /**
+     * Test of run method, of class ETUmulatorCLI.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRunExitStatus() throws IOException {
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_USAGE,
+                run("nop\n", "", "--unknown", file.getPath()));
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_USAGE,
+                run("nop\n", "", "--timeout", "-1", file.getPath()));
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_ASSEMBLY_ERROR,
+                run("INTENTIONAL_SYNTAX_ERROR\n", "", file.getPath()));
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_LIMIT_EXCEEDED,
+                run("loop:\nb loop\n", "", "--max-instructions", "100", file.getPath()));
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_IO_ERROR,
+                run("nop\n", "", file.getPath() + ".missing"));
+    }
+
+    /**
+     * Test of run method, of class ETUmulatorCLI, with an output limit.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRunMaxOutput() throws IOException {
+        String code = "mov r0, #65\n"
+                + "loop:\n"
+                + "bl uart_write\n"
+                + "b loop\n";
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_RUNTIME_ERROR,
+                run(code, "", "--max-output", "10", file.getPath()));
+        assertEquals("UART output is wrong.", "AAAAAAAAAA", output.toString("US-ASCII"));
+        assertTrue("Error is not printed.", error.toString("US-ASCII").contains("limit of 10"));
+    }
+
+    /**
+     * Test of run method with --profile, of class ETUmulatorCLI.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRunProfile() throws IOException {
+        String code = "mov r0, #3\n"
+                + "loop:\n"
+                + "subs r0, r0, #1\n"
+                + "bne loop\n";
+        assertEquals("Exit status is wrong.", ETUmulatorCLI.EXIT_OK,
+                run(code, "", "--profile", file.getPath()));
+        String report = error.toString("US-ASCII");
+        assertTrue("Hot lines are not printed.", report.contains("hot lines:"));
+        assertTrue("Hot line is wrong.",
+                report.matches("(?s).*\\s3 loop\\s+3\\s+37\\.5%  subs r0, r0, #1.*"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.kasirgalabs.etumulator.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SessionHostTest {
+    private static final String ECHO = "loop:\n"
+            + "bl uart_read\n"
+            + "bl uart_write\n"
+            + "cmp r0, #0\n"
+            + "bne loop\n";
+
+    /**
+     * Test of open method, of class SessionHost.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOpen() throws Exception {
+        SessionHost host = new SessionHost();
+        List<SessionHost.Session> sessions = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            sessions.add(host.open(ECHO, RunLimits.NONE));
+        }
+        for(SessionHost.Session session : sessions) {
+            waitUntilWaiting(session);
+        }
+        assertEquals("Sessions are not running.", sessions.size(), host.getActiveSessions());
+        for(int i = 0; i < sessions.size(); i++) {
+            sessions.get(i).write("session " + i);
+        }
+        for(int i = 0; i < sessions.size(); i++) {
+            SessionHost.Session session = sessions.get(i);
+            session.closeInput();
+            RunResult result = session.getResult().get(10, TimeUnit.SECONDS);
+            assertEquals("Session does not work properly.", RunResult.Status.COMPLETED,
+                    result.getStatus());
+            assertEquals("Session does not work properly.", "session " + i + "\0",
+                    new String(session.read(), StandardCharsets.UTF_8));
+        }
+        assertEquals("Sessions are not finished.", 0, host.getActiveSessions());
+    }
+
+    /**
+     * Test of cancel method, of class SessionHost.Session.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCancel() throws Exception {
+        SessionHost.Session session = new SessionHost().open(ECHO, RunLimits.NONE);
+        session.write("ab");
+        waitUntilWaiting(session);
+        assertEquals("Session does not work properly.", "ab",
+                new String(session.read(), StandardCharsets.UTF_8));
+        session.cancel();
+        assertEquals("Session is not cancelled.", RunResult.Status.CANCELLED,
+                session.getResult().get(10, TimeUnit.SECONDS).getStatus());
+    }
+
+    private static void waitUntilWaiting(SessionHost.Session session)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(!session.isWaiting()) {
+            assertTrue("Session does not wait for input.", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.kasirgalabs.etumulator.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.kasirgalabs.etumulator.processor.Memory;
+import com.kasirgalabs.etumulator.processor.ProcessorUnits;
+import com.kasirgalabs.etumulator.processor.RunLimits;
+import com.kasirgalabs.etumulator.processor.RunResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class TestVectorRunnerTest {
+    /**
+     * Test of runAll method, of class TestVectorRunner.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testRunAll() throws InterruptedException {
+        String code = "ldr r2, =buffer\n"
+                + "bl uart_read\n"
+                + "add r0, r0, r1\n"
+                + "strb r0, [r2]\n"
+                + "ldrb r0, [r2]\n"
+                + "bl uart_write\n"
+                + "buffer: .asciz \"X\"\n";
+        TestVectorRunner runner = new TestVectorRunner(code);
+        List<TestVectorRunner.TestVector> vectors = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            vectors.add(new TestVectorRunner.TestVector(Collections.singletonMap("r1", i),
+                    new byte[]{'a'}));
+        }
+        List<TestVectorRunner.Outcome> outcomes = runner.runAll(vectors, RunLimits.NONE, 4);
+        assertEquals("Number of outcomes is wrong.", vectors.size(), outcomes.size());
+        for(int i = 0; i < outcomes.size(); i++) {
+            TestVectorRunner.Outcome outcome = outcomes.get(i);
+            assertEquals("TestVectorRunner does not work properly.",
+                    RunResult.Status.COMPLETED, outcome.getResult().getStatus());
+            assertArrayEquals("TestVectorRunner does not work properly.",
+                    new byte[]{(byte) ('a' + i)}, outcome.getOutput());
+        }
+
+        List<TestVectorRunner.Outcome> lockstep = runner.runLockstep(vectors, RunLimits.NONE);
+        for(int i = 0; i < lockstep.size(); i++) {
+            assertEquals("Lockstep run does not work properly.",
+                    RunResult.Status.COMPLETED, lockstep.get(i).getResult().getStatus());
+            assertArrayEquals("Lockstep run does not work properly.",
+                    outcomes.get(i).getOutput(), lockstep.get(i).getOutput());
+        }
+
+        ProcessorUnits last = outcomes.get(outcomes.size() - 1).getProcessorUnits();
+        int buffer = last.getRegisterFile().getValue("r2");
+        TestVectorRunner.Outcome fresh = runner.run(
+                new TestVectorRunner.TestVector(new byte[0]), new RunLimits(1));
+        assertEquals("Forks modify the loaded image.", 'X',
+                fresh.getProcessorUnits().getMemory().get(buffer, Memory.Size.BYTE));
+    }
+}
@@ -0,0 +1,47 @@
+package com.kasirgalabs.etumulator.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConsoleBufferTest {
+    /**
+     * Test of write and flush methods, of class ConsoleBuffer.
+     */
+    @Test
+    public void testWriteAndFlush() {
+        ConsoleBuffer buffer = new ConsoleBuffer("> ", 10);
+        assertEquals("ConsoleBuffer does not work properly.", "> ", buffer.reset());
+        assertTrue("ConsoleBuffer does not work properly.", buffer.isEmpty());
+
+        buffer.write('a');
+        buffer.write("b\nc");
+        ConsoleBuffer.Chunk chunk = buffer.flush();
+        assertEquals("ConsoleBuffer does not work properly.", 0, chunk.getTrimmed());
+        assertEquals("ConsoleBuffer does not work properly.", "ab\n> c", chunk.getAppended());
+        assertTrue("ConsoleBuffer does not work properly.", buffer.isEmpty());
+    }
+
+    /**
+     * Test of flush method, of class ConsoleBuffer.
+     */
+    @Test
+    public void testFlushTrimsScrollback() {
+        ConsoleBuffer buffer = new ConsoleBuffer("> ", 2);
+        StringBuilder text = new StringBuilder(buffer.reset());
+        String[] outputs = {"a\n", "bc\n", "d", "\n\n", "e\nf\ng\nh"};
+        for(String output : outputs) {
+            buffer.write(output);
+            ConsoleBuffer.Chunk chunk = buffer.flush();
+            text.delete(0, chunk.getTrimmed());
+            text.append(chunk.getAppended());
+        }
+        assertEquals("ConsoleBuffer does not work properly.", "> g\n> h", text.toString());
+
+        buffer.write("i\n");
+        ConsoleBuffer.Chunk chunk = buffer.flush();
+        assertEquals("ConsoleBuffer does not work properly.", 4, chunk.getTrimmed());
+        assertEquals("ConsoleBuffer does not work properly.", "i\n> ", chunk.getAppended());
+    }
+}
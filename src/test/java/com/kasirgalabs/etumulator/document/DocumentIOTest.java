@@ -0,0 +1,124 @@
+package com.kasirgalabs.etumulator.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DocumentIOTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("DocumentIOTest").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test of read and write methods, of class DocumentIO.
+     *
+     * @throws java.lang.InterruptedException
+     * @throws java.util.concurrent.ExecutionException
+     * @throws java.util.concurrent.TimeoutException
+     */
+    @Test
+    public void testReadAndWrite() throws InterruptedException, ExecutionException,
+            TimeoutException {
+        DocumentIO documentIO = new DocumentIO();
+        File file = new File(directory, "program.s");
+        String text = "mov r0, #1\nadd r0, r0, r0\n";
+        AtomicReference<Object> result = new AtomicReference<>();
+        documentIO.write(file, text, new RecordingCallback<>(result)).get(5, TimeUnit.SECONDS);
+        assertEquals("Saved file is wrong.", file, result.get());
+        assertEquals("Temporary file is not removed.", 1, directory.listFiles().length);
+
+        documentIO.write(file, "nop\n", new RecordingCallback<>(result)).get(5, TimeUnit.SECONDS);
+        documentIO.read(file, progress -> {
+        }, new RecordingCallback<>(result)).get(5, TimeUnit.SECONDS);
+        assertEquals("Read text is wrong.", "nop\n", result.get());
+
+        documentIO.read(new File(directory, "missing"), progress -> {
+        }, new RecordingCallback<>(result)).get(5, TimeUnit.SECONDS);
+        assertTrue("Read error is not reported.", result.get() instanceof IOException);
+    }
+
+    /**
+     * Test of read method, of class DocumentIO.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testReadNormalizesLineTerminators() throws IOException {
+        File file = new File(directory, "crlf.s");
+        Files.write(file.toPath(), "mov r0, #1\r\nnop\rb end".getBytes("US-ASCII"));
+        double[] lastProgress = new double[1];
+        String text = DocumentIO.read(file.toPath(), progress -> lastProgress[0] = progress);
+        assertEquals("Line terminators are not normalized.", "mov r0, #1\nnop\nb end\n", text);
+        assertEquals("Progress is not completed.", 1.0, lastProgress[0], 0.0);
+    }
+
+    /**
+     * Test of write method, of class DocumentIO, with a symbolic link and permissions.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testWriteKeepsLinkAndPermissions() throws IOException {
+        Path file = directory.toPath().resolve("program.s");
+        Path link = directory.toPath().resolve("link.s");
+        Files.write(file, "nop\n".getBytes("US-ASCII"));
+        try {
+            Files.createSymbolicLink(link, file.getFileName());
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-r--"));
+        } catch(UnsupportedOperationException ex) {
+            Assume.assumeNoException(ex);
+        }
+        DocumentIO.write(link, "mov r0, #1\n");
+        assertTrue("Symbolic link is replaced.", Files.isSymbolicLink(link));
+        assertEquals("Saved text is wrong.", "mov r0, #1\n",
+                new String(Files.readAllBytes(file), "US-ASCII"));
+        assertEquals("Permissions are not kept.", "rw-rw-r--",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        assertEquals("Temporary file is not removed.", 2, directory.listFiles().length);
+    }
+
+    private static class RecordingCallback<T> implements DocumentIO.Callback<T> {
+        private final AtomicReference<Object> result;
+
+        RecordingCallback(AtomicReference<Object> result) {
+            this.result = result;
+        }
+
+        @Override
+        public void completed(T value) {
+            result.set(value);
+        }
+
+        @Override
+        public void failed(IOException ex) {
+            result.set(ex);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kasirgalabs.etumulator.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.document.SyntaxHighlighter.ParagraphStyle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.junit.Test;
+
+public class SyntaxHighlighterTest {
+    private final SyntaxHighlighter syntaxHighlighter = new SyntaxHighlighter();
+
+    /**
+     * Test of highlight method for a single paragraph, of class SyntaxHighlighter.
+     */
+    @Test
+    public void testHighlightParagraph() {
+        ParagraphStyle style = syntaxHighlighter.highlight("loop: add r0, r0, #1 // inc", false);
+        assertFalse("Comment state is wrong.", style.isInComment());
+        assertEquals("Style spans do not cover the paragraph.",
+                27,
+                style.getStyleSpans().length());
+        assertEquals("Label is not highlighted.",
+                Collections.singleton("label"),
+                style.getStyleSpans().getStyleSpan(0).getStyle());
+
+        style = syntaxHighlighter.highlight("mov r0, #1 /* starts here", false);
+        assertTrue("Block comment start is not tracked.", style.isInComment());
+
+        style = syntaxHighlighter.highlight("still inside", true);
+        assertTrue("Block comment state is lost.", style.isInComment());
+        assertEquals("Paragraph inside comment is not highlighted.",
+                Collections.singleton("comment"),
+                style.getStyleSpans().getStyleSpan(0).getStyle());
+
+        style = syntaxHighlighter.highlight("ends */ mov r1, #2", true);
+        assertFalse("Block comment end is not tracked.", style.isInComment());
+
+        style = syntaxHighlighter.highlight("/**/ mov r1, #2", false);
+        assertFalse("Empty block comment is not closed.", style.isInComment());
+    }
+
+    /**
+     * Test of highlight method for consecutive paragraphs, of class SyntaxHighlighter.
+     */
+    @Test
+    public void testHighlightParagraphs() {
+        List<String> paragraphs = Arrays.asList("/* first", "second", "third */", "nop");
+        boolean[] states = new boolean[paragraphs.size() + 1];
+        StyleSpans<Collection<String>> styleSpans
+                = syntaxHighlighter.highlight(paragraphs, false, states);
+        assertEquals("Style spans do not cover the paragraphs.", 8 + 6 + 8 + 3 + 3,
+                styleSpans.length());
+        assertFalse("Comment state is wrong.", states[0]);
+        assertTrue("Comment state is wrong.", states[1]);
+        assertTrue("Comment state is wrong.", states[2]);
+        assertFalse("Comment state is wrong.", states[3]);
+        assertFalse("Comment state is wrong.", states[4]);
+    }
+}
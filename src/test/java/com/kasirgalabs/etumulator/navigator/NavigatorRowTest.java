@@ -48,4 +48,25 @@ public class NavigatorRowTest {
                 "0x" + String.format("%0" + 8 + "d", 1),
                 navigatorRow.getValue());
     }
+
+    /**
+     * Test of valueProperty and refresh methods, of class NavigatorRow.
+     */
+    @Test
+    public void testValuePropertyAndRefresh() {
+        NavigatorRow.setType(NavigatorRow.Type.DECIMAL);
+        NavigatorRow navigatorRow = new NavigatorRow("r1", 10);
+        assertEquals("NavigatorRow result is wrong.", "10", navigatorRow.valueProperty().get());
+
+        navigatorRow.setValue(255);
+        assertEquals("NavigatorRow result is wrong.", "255", navigatorRow.valueProperty().get());
+
+        NavigatorRow.setType(NavigatorRow.Type.HEX);
+        assertEquals("NavigatorRow result is wrong.", "255", navigatorRow.valueProperty().get());
+        navigatorRow.refresh();
+        assertEquals("NavigatorRow result is wrong.",
+                "0x000000ff",
+                navigatorRow.valueProperty().get());
+        NavigatorRow.setType(NavigatorRow.Type.DECIMAL);
+    }
 }
@@ -0,0 +1,127 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class BaseProcessorTest {
+    private static final String INFINITE_LOOP = "loop:\n"
+            + "add r0, r0, #1\n"
+            + "b loop\n";
+    private final ProcessorUnits processorUnits;
+    private final Processor processor;
+    private final Assembler assembler;
+
+    public BaseProcessorTest() {
+        processorUnits = new BaseProcessorUnits();
+        processor = new BaseProcessor(processorUnits);
+        assembler = new Assembler(null);
+    }
+
+    /**
+     * Test of run method, of class BaseProcessor.
+     */
+    @Test
+    public void testRunCompleted() {
+        ExecutableCode code = assembler.assemble("mov r0, #1\nadd r0, r0, r0\n");
+        RunResult result = processor.run(code, new RunLimits(2));
+        assertEquals("Run status is wrong.", RunResult.Status.COMPLETED, result.getStatus());
+        assertEquals("Executed instruction count is wrong.", 2, result.getInstructions());
+        assertEquals("BaseProcessor does not work properly.", 2,
+                processorUnits.getRegisterFile().getValue("r0"));
+    }
+
+    /**
+     * Test of run method, of class BaseProcessor.
+     */
+    @Test
+    public void testRunBudgetExceeded() {
+        ExecutableCode code = assembler.assemble(INFINITE_LOOP);
+        RunResult result = processor.run(code, new RunLimits(5001).withCheckInterval(64));
+        assertEquals("Run status is wrong.", RunResult.Status.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals("Executed instruction count is wrong.", 5001, result.getInstructions());
+        assertEquals("BaseProcessor does not work properly.", 2500,
+                processorUnits.getRegisterFile().getValue("r0"));
+    }
+
+    /**
+     * Test of run method, of class BaseProcessor.
+     */
+    @Test
+    public void testRunTimedOut() {
+        ExecutableCode code = assembler.assemble(INFINITE_LOOP);
+        RunLimits limits = new RunLimits(Long.MAX_VALUE, 50, TimeUnit.MILLISECONDS);
+        RunResult result = processor.run(code, limits);
+        assertEquals("Run status is wrong.", RunResult.Status.TIMED_OUT, result.getStatus());
+        assertTrue("Run took too long.",
+                result.getElapsedNanos() < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    /**
+     * Test of run method, of class BaseProcessor.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testRunCancelled() throws InterruptedException {
+        ExecutableCode code = assembler.assemble(INFINITE_LOOP);
+        AtomicReference<RunResult> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> result.set(processor.run(code, RunLimits.NONE)));
+        thread.start();
+        Thread.sleep(50);
+        thread.interrupt();
+        thread.join(5000);
+        assertEquals("Run status is wrong.", RunResult.Status.CANCELLED, result.get().getStatus());
+    }
+
+    /**
+     * Test of run method, of class BaseProcessor.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testRunSharedCode() throws InterruptedException {
+        ExecutableCode code = assembler.assemble("mov r0, #0\n"
+                + "loop:\n"
+                + "add r0, r0, #1\n"
+                + "cmp r0, #200\n"
+                + "bne loop\n");
+        Thread[] threads = new Thread[4];
+        int[] results = new int[threads.length];
+        for(int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                ProcessorUnits units = new BaseProcessorUnits();
+                new BaseProcessor(units).run(code, RunLimits.NONE);
+                results[index] = units.getRegisterFile().getValue("r0");
+            });
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join(5000);
+        }
+        for(int result : results) {
+            assertEquals("Processors sharing the code interfere.", 200, result);
+        }
+    }
+
+    /**
+     * Test of setSeed method, of class BaseProcessorUnits.
+     */
+    @Test
+    public void testSetSeed() {
+        ProcessorUnits other = new BaseProcessorUnits();
+        processorUnits.setSeed(42);
+        other.setSeed(42);
+        assertEquals("Seeded memory is not reproducible.",
+                processorUnits.getMemory().get(0, Memory.Size.WORD),
+                other.getMemory().get(0, Memory.Size.WORD));
+        assertEquals("Seeded stack is not reproducible.", processorUnits.getStack().pop(),
+                other.getStack().pop());
+    }
+}
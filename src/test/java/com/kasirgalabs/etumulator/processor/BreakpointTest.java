@@ -0,0 +1,113 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class BreakpointTest {
+    /**
+     * Test of add, remove and toggle methods, of class Breakpoint.
+     */
+    @Test
+    public void testPoints() {
+        Breakpoint breakpoint = new Breakpoint();
+        assertTrue("Breakpoint is not empty.", breakpoint.isEmpty());
+        assertEquals("Point is wrong.", Integer.MAX_VALUE, breakpoint.getPoint());
+
+        breakpoint.add(200);
+        breakpoint.add(3);
+        breakpoint.add(64);
+        assertEquals("Points are wrong.", Arrays.asList(3, 64, 200), breakpoint.getPoints());
+        assertEquals("Point is wrong.", 3, breakpoint.getPoint());
+        assertTrue("Contains does not work properly.", breakpoint.contains(64));
+        assertFalse("Contains does not work properly.", breakpoint.contains(65));
+        assertFalse("Contains does not work properly.", breakpoint.contains(-1));
+        assertFalse("Contains does not work properly.", breakpoint.contains(100000));
+
+        breakpoint.remove(200);
+        assertFalse("Toggle does not work properly.", breakpoint.toggle(3));
+        assertTrue("Toggle does not work properly.", breakpoint.toggle(5));
+        assertEquals("Points are wrong.", Arrays.asList(5, 64), breakpoint.getPoints());
+
+        breakpoint.setPoint(7);
+        assertEquals("Set point does not work properly.", Arrays.asList(7),
+                breakpoint.getPoints());
+        breakpoint.reset();
+        assertTrue("Reset does not work properly.", breakpoint.isEmpty());
+    }
+
+    /**
+     * Test of hit method, of class Breakpoint, with a condition and a hit count.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testHit() throws SyntaxError, LabelError {
+        String code = "mov r0, #0\n"
+                + "loop:\n"
+                + "adds r0, r0, #1\n"
+                + "cmp r0, #10\n"
+                + "bne loop\n"
+                + "mov r1, #1\n";
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        Breakpoint breakpoint = processorUnits.getBreakpoint();
+        breakpoint.add(3, BreakpointCondition.compile("r0 >= 4"), 2);
+
+        RunResult result = processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Status is wrong.", RunResult.Status.BREAKPOINT, result.getStatus());
+        assertEquals("Condition or hit count does not work properly.", 5,
+                processorUnits.getRegisterFile().getValue("r0"));
+        assertEquals("PC is wrong.", 3, processorUnits.getPC().getValue());
+
+        processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Hits are not reset.", 5, processorUnits.getRegisterFile().getValue("r0"));
+
+        Snapshot snapshot = Snapshot.of(processorUnits);
+        breakpoint.reset();
+        result = processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Status is wrong.", RunResult.Status.COMPLETED, result.getStatus());
+        assertEquals("Program does not complete.", 1,
+                processorUnits.getRegisterFile().getValue("r1"));
+        assertTrue("Snapshot does not copy the breakpoint.",
+                snapshot.fork().getBreakpoint().contains(3));
+    }
+
+    /**
+     * Test of compile method, of class BreakpointCondition.
+     */
+    @Test
+    public void testCompile() {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        processorUnits.getRegisterFile().setValue("r1", 7);
+        processorUnits.getRegisterFile().setValue("r2", -3);
+        processorUnits.getLR().setValue(16);
+        processorUnits.getAPSR().setCarry(true);
+
+        assertTrue("Condition is wrong.", BreakpointCondition.compile("r1 > r2 && !z")
+                .test(processorUnits));
+        assertFalse("Condition is wrong.", BreakpointCondition.compile("(C || v) && LR != 0x10")
+                .test(processorUnits));
+        assertTrue("Condition is wrong.", BreakpointCondition.compile("r2 == -3 || r1 < 0")
+                .test(processorUnits));
+        assertTrue("Condition is wrong.", BreakpointCondition.compile("!(r0 != 0) && c")
+                .test(processorUnits));
+        for(String invalid : new String[]{"r0 ==", "r13 == 1", "r0 = 1", "(r0 == 1", "r0 == 1)",
+            "n z"}) {
+            try {
+                BreakpointCondition.compile(invalid);
+                throw new AssertionError("Invalid condition is compiled: " + invalid);
+            } catch(IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.Test;
+
+public class CallProfileTest {
+    /**
+     * Test of getRoutines and writeCollapsedStacks methods, of class CallProfile.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     * @throws IOException
+     */
+    @Test
+    public void testRecursion() throws SyntaxError, LabelError, IOException {
+        String code = "mov r0, #2\n"
+                + "bl fn\n"
+                + "mov r1, #1\n"
+                + "b end\n"
+                + "fn:\n"
+                + "push {lr}\n"
+                + "subs r0, r0, #1\n"
+                + "beq done\n"
+                + "bl fn\n"
+                + "done:\n"
+                + "pop {pc}\n"
+                + "end:\n";
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        CallProfile callProfile = new CallProfile();
+        processor.setCallProfile(callProfile);
+        processor.run(executableCode, RunLimits.NONE);
+
+        StringWriter stacks = new StringWriter();
+        callProfile.writeCollapsedStacks(stacks);
+        assertEquals("Collapsed stacks are wrong.", "main 4\nmain;fn 6\nmain;fn;fn 4\n",
+                stacks.toString());
+
+        List<CallProfile.Routine> routines = callProfile.getRoutines();
+        assertEquals("Routines are wrong.", 2, routines.size());
+        assertEquals("Routines are not sorted.", "main", routines.get(0).getName());
+        assertEquals("Inclusive count is wrong.", 14, routines.get(0).getInclusive());
+        assertEquals("Exclusive count is wrong.", 4, routines.get(0).getExclusive());
+        assertEquals("Routines are not sorted.", "fn", routines.get(1).getName());
+        assertEquals("Recursion is counted twice.", 10, routines.get(1).getInclusive());
+        assertEquals("Exclusive count is wrong.", 10, routines.get(1).getExclusive());
+
+        processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Counts do not accumulate.", 28, callProfile.getTotal());
+    }
+}
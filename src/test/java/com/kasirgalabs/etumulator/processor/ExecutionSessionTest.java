@@ -0,0 +1,102 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ExecutionSessionTest {
+    private static final String CODE = "mov r0, #0\n"
+            + "bl inc\n"
+            + "bl inc\n"
+            + "mov r1, #7\n"
+            + "b end\n"
+            + "inc:\n"
+            + "push {lr}\n"
+            + "adds r0, r0, #1\n"
+            + "pop {pc}\n"
+            + "end:\n";
+
+    /**
+     * Test of step, stepOver and resume methods, of class ExecutionSession.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testStep() throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(CODE);
+        ExecutionSession session = new BaseProcessor(processorUnits).openSession(executableCode);
+        List<Object> updates = new ArrayList<>();
+        session.addObserver((clazz, arg) -> updates.add(arg));
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        PC pc = processorUnits.getPC();
+
+        RunResult result = session.step();
+        assertEquals("Status is wrong.", RunResult.Status.PAUSED, result.getStatus());
+        assertEquals("Step does not work properly.", 1, pc.getValue());
+        session.stepOver();
+        assertEquals("Step over does not work properly.", 2, pc.getValue());
+        assertEquals("Call is not executed.", 1, registerFile.getValue("r0"));
+        session.step();
+        assertEquals("Step does not enter the call.", 6, pc.getValue());
+
+        processorUnits.getBreakpoint().add(3);
+        result = session.resume();
+        assertEquals("Status is wrong.", RunResult.Status.BREAKPOINT, result.getStatus());
+        assertEquals("Session does not pause at the breakpoint.", 3, pc.getValue());
+        assertEquals("Register is wrong.", 2, registerFile.getValue("r0"));
+        result = session.resume();
+        assertEquals("Session does not leave the breakpoint.", RunResult.Status.COMPLETED,
+                result.getStatus());
+        assertEquals("Register is wrong.", 7, registerFile.getValue("r1"));
+        assertTrue("Session is not finished.", session.isFinished());
+        assertEquals("Observers are not told once per pause.", 5, updates.size());
+        assertEquals("Observers are not given the result.", result, updates.get(4));
+
+        result = session.restart();
+        assertEquals("Restart does not work properly.", RunResult.Status.BREAKPOINT,
+                result.getStatus());
+        assertFalse("Session is finished.", session.isFinished());
+    }
+
+    /**
+     * Test of runUntil and run methods, of class ExecutionSession.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testRunUntil() throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(CODE);
+        ExecutionSession session = new BaseProcessor(processorUnits).openSession(executableCode);
+        PC pc = processorUnits.getPC();
+
+        RunResult result = session.runUntil(7);
+        assertEquals("Status is wrong.", RunResult.Status.PAUSED, result.getStatus());
+        assertEquals("Run until does not work properly.", 7, pc.getValue());
+        assertEquals("Register is wrong.", 0, processorUnits.getRegisterFile().getValue("r0"));
+
+        result = session.run(3);
+        assertEquals("Status is wrong.", RunResult.Status.PAUSED, result.getStatus());
+        assertEquals("Instructions are wrong.", 3, result.getInstructions());
+        assertEquals("Run does not work properly.", 6, pc.getValue());
+
+        processorUnits.getBreakpoint().add(7);
+        result = session.stepOver();
+        assertEquals("Step over does not work properly.", 7, pc.getValue());
+        result = session.runUntil(7);
+        assertEquals("Run until does not leave the current line.", RunResult.Status.COMPLETED,
+                result.getStatus());
+        assertEquals("Register is wrong.", 2, processorUnits.getRegisterFile().getValue("r0"));
+    }
+}
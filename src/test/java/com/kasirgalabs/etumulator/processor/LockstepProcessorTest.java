@@ -0,0 +1,101 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LockstepProcessorTest {
+    private static final String CODE = "mov r2, #0\n"
+            + "loop:\n"
+            + "adds r2, r2, r1\n"
+            + "cmp r1, #3\n"
+            + "bge large\n"
+            + "lsl r3, r1, #2\n"
+            + "b next\n"
+            + "large:\n"
+            + "mul r3, r1, r1\n"
+            + "next:\n"
+            + "subs r0, r0, #1\n"
+            + "bne loop\n"
+            + "mov r4, r2\n";
+
+    /**
+     * Test of run method, of class LockstepProcessor.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testRun() throws SyntaxError, LabelError {
+        ProcessorUnits loaded = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(loaded.getMemory()).assemble(CODE);
+        Snapshot snapshot = Snapshot.of(loaded);
+        List<ProcessorUnits> lanes = new ArrayList<>();
+        List<ProcessorUnits> expected = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            ProcessorUnits lane = snapshot.fork();
+            lane.getRegisterFile().setValue("r0", 10 + i);
+            lane.getRegisterFile().setValue("r1", i);
+            lanes.add(lane);
+            ProcessorUnits reference = snapshot.fork();
+            reference.getRegisterFile().setValue("r0", 10 + i);
+            reference.getRegisterFile().setValue("r1", i);
+            new BaseProcessor(reference).run(executableCode);
+            expected.add(reference);
+        }
+        LockstepProcessor processor = new LockstepProcessor(lanes);
+        List<RunResult> results = processor.run(executableCode, RunLimits.NONE);
+        for(int i = 0; i < lanes.size(); i++) {
+            assertNull("Lane raised an error.", processor.getError(i));
+            assertEquals("LockstepProcessor does not work properly.",
+                    RunResult.Status.COMPLETED, results.get(i).getStatus());
+            for(int register = 0; register < 5; register++) {
+                String name = "r" + register;
+                assertEquals("LockstepProcessor does not work properly.",
+                        expected.get(i).getRegisterFile().getValue(name),
+                        lanes.get(i).getRegisterFile().getValue(name));
+            }
+            assertEquals("LockstepProcessor does not work properly.",
+                    expected.get(i).getAPSR().isZero(), lanes.get(i).getAPSR().isZero());
+        }
+        long longest = results.get(results.size() - 1).getInstructions();
+        assertTrue("Diverged lanes are not merged back.",
+                processor.getDispatches() < 2 * longest);
+    }
+
+    /**
+     * Test of run method, of class LockstepProcessor, with an instruction budget.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testRunBudget() throws SyntaxError, LabelError {
+        ProcessorUnits loaded = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(loaded.getMemory())
+                .assemble("loop:\nadd r0, r0, #1\ncmp r0, r1\nbne loop\n");
+        Snapshot snapshot = Snapshot.of(loaded);
+        List<ProcessorUnits> lanes = new ArrayList<>();
+        for(int i = 1; i <= 2; i++) {
+            ProcessorUnits lane = snapshot.fork();
+            lane.getRegisterFile().setValue("r1", i * 100);
+            lanes.add(lane);
+        }
+        List<RunResult> results = new LockstepProcessor(lanes).run(executableCode,
+                new RunLimits(400));
+        assertEquals("LockstepProcessor does not work properly.",
+                RunResult.Status.COMPLETED, results.get(0).getStatus());
+        assertEquals("LockstepProcessor does not work properly.",
+                RunResult.Status.BUDGET_EXCEEDED, results.get(1).getStatus());
+        assertEquals("LockstepProcessor does not work properly.", 400,
+                results.get(1).getInstructions());
+    }
+}
@@ -0,0 +1,125 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class LoopDetectorTest {
+    private static RunResult run(String code, String input, int interval)
+            throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        processorUnits.setSeed(0);
+        processorUnits.getUART().setInput(new ByteArrayInputStream(input.getBytes(
+                StandardCharsets.US_ASCII)));
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        processor.setLoopDetector(new LoopDetector(processorUnits, interval));
+        return processor.run(executableCode, new RunLimits(1_000_000));
+    }
+
+    /**
+     * Test of backwardBranch method, of class LoopDetector.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testBackwardBranch() throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(
+                "mov r0, #1\nloop:\nb loop\n");
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        LoopDetector loopDetector = new LoopDetector(processorUnits);
+        processor.setLoopDetector(loopDetector);
+        RunResult result = processor.run(executableCode, new RunLimits(1_000_000));
+        assertEquals("Status is wrong.", RunResult.Status.NON_TERMINATING, result.getStatus());
+        assertEquals("Cycle PC is wrong.", 2, loopDetector.getCyclePC());
+        assertTrue("Cycle is found too late.", result.getInstructions() < 1000);
+
+        processor.setLoopDetector(null);
+        result = processor.run(executableCode, new RunLimits(1000));
+        assertEquals("Detached detector is used.", RunResult.Status.BUDGET_EXCEEDED,
+                result.getStatus());
+        processor.setLoopDetector(loopDetector);
+        processor.run(executableCode, new RunLimits(10));
+        assertFalse("Detector is not cleared.", loopDetector.isCycleFound());
+    }
+
+    /**
+     * Test of backwardBranch method, of class LoopDetector, with programs which terminate.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testTerminating() throws SyntaxError, LabelError {
+        String countdown = "ldr r0, =20000\n"
+                + "loop:\n"
+                + "subs r0, r0, #1\n"
+                + "bne loop\n";
+        assertEquals("Changing state is taken as a cycle.", RunResult.Status.COMPLETED,
+                run(countdown, "", 1).getStatus());
+        String stores = "ldr r1, =data\n"
+                + "mov r0, #0\n"
+                + "loop:\n"
+                + "adds r0, r0, #1\n"
+                + "strb r0, [r1]\n"
+                + "cmp r0, #200\n"
+                + "mov r0, #0\n"
+                + "ldrb r0, [r1]\n"
+                + "bne loop\n"
+                + "b end\n"
+                + "data: .asciz \"a\"\n"
+                + "end:\n";
+        assertEquals("Memory is not part of the state.", RunResult.Status.COMPLETED,
+                run(stores, "", 1).getStatus());
+        String wait = "loop:\n"
+                + "bl uart_read\n"
+                + "cmp r0, #120\n"
+                + "bne loop\n";
+        assertEquals("Input is not part of the state.", RunResult.Status.COMPLETED,
+                run(wait, "abcdefx", 1).getStatus());
+        assertEquals("Waiting past the end of input is not found.",
+                RunResult.Status.NON_TERMINATING, run(wait, "abc", 1).getStatus());
+    }
+
+    /**
+     * Test of backwardBranch method, of class LoopDetector, with loops which read random values.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testRandom() throws SyntaxError, LabelError {
+        String test = "and r0, r0, #255\n"
+                + "cmp r0, #7\n"
+                + "mov r0, #0\n"
+                + "bne loop\n";
+        String memory = "ldr r1, =4096\n"
+                + "loop:\n"
+                + "ldr r0, [r1]\n"
+                + test;
+        assertEquals("Uninitialized memory is not random.", RunResult.Status.COMPLETED,
+                run(memory, "", 1).getStatus());
+        String stack = "loop:\n"
+                + "pop {r0}\n"
+                + test;
+        assertEquals("Empty stack is not random.", RunResult.Status.COMPLETED,
+                run(stack, "", 1).getStatus());
+        String lr = "loop:\n"
+                + "bl uart_write\n"
+                + "push {lr}\n"
+                + "pop {r0}\n"
+                + test;
+        assertEquals("Link register is not random.", RunResult.Status.COMPLETED,
+                run(lr, "", 1).getStatus());
+    }
+}
@@ -0,0 +1,57 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.util.List;
+import org.junit.Test;
+
+public class ProfileTest {
+    /**
+     * Test of getCount and getHotLines methods, of class Profile.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testGetHotLines() throws SyntaxError, LabelError {
+        String code = "mov r0, #5\n"
+                + "\n"
+                + "loop:\n"
+                + "subs r0, r0, #1 // count down\n"
+                + "bne loop\n"
+                + "mov r1, #1\n";
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        Profile profile = new Profile();
+        processor.setProfile(profile);
+        processor.run(executableCode, RunLimits.NONE);
+
+        assertEquals("Counts are wrong.", 1, profile.getCount(0));
+        assertEquals("Counts are wrong.", 1, profile.getCount(2));
+        assertEquals("Counts are wrong.", 5, profile.getCount(3));
+        assertEquals("Counts are wrong.", 5, profile.getCount(4));
+        assertEquals("Counts are wrong.", 1, profile.getCount(5));
+        assertEquals("Total is wrong.", 14, profile.getTotal());
+
+        List<Profile.HotLine> hotLines = profile.getHotLines();
+        assertEquals("Empty lines and labels are reported.", 4, hotLines.size());
+        assertEquals("Hot lines are not sorted.", 3, hotLines.get(0).getLine());
+        assertEquals("Label is wrong.", "loop", hotLines.get(0).getLabel());
+        assertEquals("Hot lines are not sorted.", 4, hotLines.get(1).getLine());
+        assertEquals("Hot lines are not sorted.", 0, hotLines.get(2).getLine());
+        assertNull("Label is wrong.", hotLines.get(2).getLabel());
+        assertEquals("Share is wrong.", 5.0 / 14, hotLines.get(0).getShare(), 1e-9);
+
+        processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Counts do not accumulate.", 10, profile.getCount(3));
+        processor.run(new Assembler(processorUnits.getMemory()).assemble(code),
+                RunLimits.NONE);
+        assertEquals("Counts are not restarted for new code.", 5, profile.getCount(3));
+    }
+}
@@ -0,0 +1,48 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.processor.Memory.Size;
+import org.junit.Test;
+
+public class SnapshotTest {
+    /**
+     * Test of of, fork and restore methods, of class Snapshot.
+     */
+    @Test
+    public void testFork() {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        Memory memory = processorUnits.getMemory();
+        memory.set(0, 0x11, Size.BYTE);
+        memory.set(10 * Memory.PAGE_SIZE, 0x22, Size.BYTE);
+        processorUnits.getRegisterFile().setValue("r3", 7);
+        processorUnits.getAPSR().setCarry(true);
+        processorUnits.getStack().push(5);
+        processorUnits.getStack().push(6);
+        Snapshot snapshot = Snapshot.of(processorUnits);
+
+        ProcessorUnits fork = snapshot.fork();
+        assertEquals("Fork does not work properly.", 7, fork.getRegisterFile().getValue("r3"));
+        assertTrue("Fork does not work properly.", fork.getAPSR().isCarry());
+        assertEquals("Fork does not work properly.", 6, fork.getStack().pop());
+        assertEquals("Fork does not work properly.", 5, fork.getStack().pop());
+        assertEquals("Fork does not work properly.", 0x22,
+                fork.getMemory().get(10 * Memory.PAGE_SIZE, Size.BYTE));
+        assertEquals("Pages are not shared.", 0, fork.getMemory().getPrivatePageCount());
+
+        fork.getMemory().set(1, 0x33, Size.BYTE);
+        assertEquals("Only the written page should be copied.", 1,
+                fork.getMemory().getPrivatePageCount());
+        assertEquals("Fork does not work properly.", 0x11, fork.getMemory().get(0, Size.BYTE));
+        assertTrue("Fork writes leak into the snapshot.", memory.isAddressEmpty(1, Size.BYTE));
+
+        memory.set(0, 0x44, Size.BYTE);
+        assertEquals("Snapshot writes leak into the fork.", 0x11,
+                fork.getMemory().get(0, Size.BYTE));
+        ProcessorUnits other = snapshot.fork();
+        assertEquals("Snapshot is modified.", 0x11, other.getMemory().get(0, Size.BYTE));
+        assertTrue("Snapshot is modified.", other.getMemory().isAddressEmpty(1, Size.BYTE));
+        assertEquals("Snapshot is modified.", 6, other.getStack().peek());
+    }
+}
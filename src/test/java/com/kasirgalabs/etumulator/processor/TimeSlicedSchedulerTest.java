@@ -0,0 +1,130 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeSlicedSchedulerTest {
+    private static final String LOOP = "loop:\nb loop\n";
+    private static final String COUNT = "loop:\nadd r0, r0, #1\ncmp r0, #100\nbne loop\n";
+    private TimeSlicedScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new TimeSlicedScheduler(1, 64);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Test of submit method, of class TimeSlicedScheduler, with runaway jobs.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubmitRunaway() throws Exception {
+        List<TimeSlicedScheduler.Job> runaways = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            runaways.add(submit("runaway", 1, LOOP, RunLimits.NONE));
+        }
+        List<TimeSlicedScheduler.Job> jobs = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            jobs.add(submit("student", 1, COUNT, RunLimits.NONE));
+        }
+        long total = 0;
+        for(TimeSlicedScheduler.Job job : jobs) {
+            RunResult result = job.getResult().get(10, TimeUnit.SECONDS);
+            assertEquals("Job is not completed.", RunResult.Status.COMPLETED, result.getStatus());
+            assertEquals("Job does not work properly.", 100,
+                    job.getProcessorUnits().getRegisterFile().getValue("r0"));
+            total += result.getInstructions();
+        }
+        assertEquals("Instructions are not accounted properly.", total,
+                scheduler.getInstructions("student"));
+        for(TimeSlicedScheduler.Job runaway : runaways) {
+            assertFalse("Runaway job is completed.", runaway.getResult().isDone());
+            runaway.cancel();
+            assertEquals("Job is not cancelled.", RunResult.Status.CANCELLED,
+                    runaway.getResult().get(10, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    /**
+     * Test of submit method, of class TimeSlicedScheduler, with priorities and a budget.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubmitPriority() throws Exception {
+        ProcessorUnits gateUnits = new BaseProcessorUnits();
+        ExecutableCode gateCode = new Assembler(gateUnits.getMemory()).assemble("bl uart_read\n");
+        CountDownLatch blocked = new CountDownLatch(1);
+        gateUnits.getUART().addDirectObserver((clazz, arg) -> blocked.countDown());
+        scheduler.submit("gate", 1, gateUnits, gateCode, RunLimits.NONE);
+        assertTrue("Gate job is not started.", blocked.await(10, TimeUnit.SECONDS));
+        ProcessorUnits lowUnits = new BaseProcessorUnits();
+        ExecutableCode lowCode = new Assembler(lowUnits.getMemory()).assemble(LOOP);
+        ProcessorUnits highUnits = new BaseProcessorUnits();
+        ExecutableCode highCode = new Assembler(highUnits.getMemory()).assemble(LOOP);
+        TimeSlicedScheduler.Job low = scheduler.submit("low", 1, lowUnits, lowCode,
+                new RunLimits(40_000));
+        TimeSlicedScheduler.Job high = scheduler.submit("high", 3, highUnits, highCode,
+                new RunLimits(40_000));
+        CompletableFuture<Long> lowInstructions = high.getResult()
+                .thenApply(done -> scheduler.getInstructions("low"));
+        gateUnits.getUART().feed('x');
+        RunResult result = high.getResult().get(10, TimeUnit.SECONDS);
+        assertEquals("Budget is not honoured.", RunResult.Status.BUDGET_EXCEEDED,
+                result.getStatus());
+        assertEquals("Budget is not honoured.", 40_000, result.getInstructions());
+        long instructions = lowInstructions.get(10, TimeUnit.SECONDS);
+        assertTrue("Priorities are not honoured.",
+                instructions > 12_000 && instructions < 15_000);
+        assertEquals("Budget is not honoured.", 40_000,
+                low.getResult().get(10, TimeUnit.SECONDS).getInstructions());
+    }
+
+    /**
+     * Test of shutdown method, of class TimeSlicedScheduler, while jobs are running.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        scheduler.shutdown();
+        scheduler = new TimeSlicedScheduler(4, 1);
+        List<TimeSlicedScheduler.Job> jobs = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            jobs.add(submit("runaway", 1, LOOP, RunLimits.NONE));
+        }
+        while(scheduler.getInstructions("runaway") < 1000) {
+            Thread.sleep(1);
+        }
+        scheduler.shutdown();
+        for(TimeSlicedScheduler.Job job : jobs) {
+            assertEquals("Job is not cancelled.", RunResult.Status.CANCELLED,
+                    job.getResult().get(10, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    private TimeSlicedScheduler.Job submit(String tenant, int priority, String code,
+            RunLimits limits) throws Exception {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        return scheduler.submit(tenant, priority, processorUnits, executableCode, limits);
+    }
+}
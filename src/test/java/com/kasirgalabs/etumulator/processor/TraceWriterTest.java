@@ -0,0 +1,90 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TraceWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test of TraceWriter and TraceReader, with chunks smaller than the trace.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     * @throws IOException
+     */
+    @Test
+    public void testTrace() throws SyntaxError, LabelError, IOException {
+        String code = "mov r0, #5\n"
+                + "ldr r1, =data\n"
+                + "strb r0, [r1]\n"
+                + "ldrb r2, [r1]\n"
+                + "subs r0, r0, #5\n"
+                + "b end\n"
+                + "data: .asciz \"ab\"\n"
+                + "end:\n";
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        TraceWriter trace = new TraceWriter(processorUnits, folder.getRoot().toPath(), 4);
+        processor.setTrace(trace);
+        processor.run(executableCode, RunLimits.NONE);
+        trace.close();
+        assertEquals("Records are missing.", 6, trace.getRecords());
+        assertEquals("Last chunk is not truncated.", 2 * TraceWriter.RECORD_SIZE,
+                Files.size(folder.getRoot().toPath().resolve("trace-00001.bin")));
+
+        TraceReader reader = new TraceReader(folder.getRoot().toPath());
+        assertEquals("Size is wrong.", 6, reader.size());
+        int address = processorUnits.getRegisterFile().getValue("r1");
+
+        TraceRecord record = reader.get(0);
+        assertEquals("PC is wrong.", 0, record.getPC());
+        assertEquals("Register is wrong.", "r0", record.getRegister());
+        assertEquals("Register value is wrong.", 5, record.getRegisterValue());
+        assertNull("Memory access is wrong.", record.getSize());
+
+        record = reader.get(2);
+        assertNull("Register is wrong.", record.getRegister());
+        assertTrue("Memory access is wrong.", record.isStore());
+        assertEquals("Memory access is wrong.", Memory.Size.BYTE, record.getSize());
+        assertEquals("Address is wrong.", address, record.getAddress());
+        assertEquals("Memory value is wrong.", 5, record.getMemoryValue());
+
+        record = reader.get(3);
+        assertTrue("Memory access is wrong.", record.isLoad());
+        assertEquals("Register is wrong.", "r2", record.getRegister());
+        assertEquals("Memory value is wrong.", 5, record.getMemoryValue());
+
+        record = reader.get(4);
+        assertEquals("Instruction number is wrong.", 4, record.getInstruction());
+        assertEquals("PC is wrong.", 4, record.getPC());
+        assertEquals("Register value is wrong.", 0, record.getRegisterValue());
+        assertEquals("Flags are wrong.", TraceRecord.ZERO, record.getFlags() & TraceRecord.ZERO);
+        assertEquals("Changed flags are wrong.", TraceRecord.ZERO,
+                record.getChangedFlags() & TraceRecord.ZERO);
+
+        Iterator<TraceRecord> iterator = reader.iterator(5);
+        assertEquals("Seek does not work properly.", 5, iterator.next().getPC());
+        assertFalse("Iterator does not end.", iterator.hasNext());
+
+        reader.close();
+        new TraceWriter(processorUnits, folder.getRoot().toPath(), 4).close();
+        assertEquals("Old chunks are not deleted.", 0,
+                new TraceReader(folder.getRoot().toPath()).size());
+    }
+}
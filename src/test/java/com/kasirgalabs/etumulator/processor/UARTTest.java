@@ -0,0 +1,99 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UARTTest {
+    private RegisterFile registerFile;
+    private UART uart;
+
+    @Before
+    public void setUp() {
+        registerFile = new RegisterFile();
+        uart = new UART(registerFile);
+    }
+
+    /**
+     * Test of read method, of class UART, with an input channel.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testReadChannel() throws InterruptedException {
+        uart.setInput(new ByteArrayInputStream(new byte[]{'a', (byte) 0xff}));
+        uart.read();
+        assertEquals("Read does not work properly.", 'a', registerFile.getValue("r0"));
+        uart.read();
+        assertEquals("Read does not work properly.", 0xff, registerFile.getValue("r0"));
+        uart.read();
+        assertEquals("End of input does not give zero.", 0, registerFile.getValue("r0"));
+
+        uart.setInput(new ByteArrayInputStream(new byte[0]), UART.EndOfInput.MINUS_ONE);
+        uart.read();
+        assertEquals("End of input does not give -1.", -1, registerFile.getValue("r0"));
+
+        uart.setInput(new ByteArrayInputStream(new byte[0]), UART.EndOfInput.ERROR);
+        try {
+            uart.read();
+            fail("End of input does not raise an error.");
+        } catch(UARTException ex) {
+        }
+    }
+
+    /**
+     * Test of write method, of class UART, with an output channel.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testWriteChannel() throws InterruptedException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        CountingOutputStream output = new CountingOutputStream(sink);
+        uart.setOutput(output, 3);
+        for(char c : "abc".toCharArray()) {
+            registerFile.setValue("r0", c);
+            uart.write();
+        }
+        assertEquals("Output is not buffered.", 0, output.writes);
+        uart.setInput(new ByteArrayInputStream(new byte[]{'x'}));
+        uart.read();
+        assertEquals("Output is flushed while input is available.", 0, output.writes);
+        uart.read();
+        assertEquals("Output is not flushed before a read.", "abc", sink.toString());
+        assertEquals("Written bytes are not counted.", 3, uart.getWrittenBytes());
+        try {
+            uart.write();
+            fail("Output limit is not honoured.");
+        } catch(UARTException ex) {
+        }
+        assertEquals("Output limit is not honoured.", "abc", sink.toString());
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private int writes;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writes++;
+            out.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import com.kasirgalabs.etumulator.processor.Memory.Size;
+import org.junit.Test;
+
+public class UndoLogTest {
+    private static final String CODE = "mov r0, #5\n"
+            + "ldr r1, =data\n"
+            + "strb r0, [r1]\n"
+            + "push {r0}\n"
+            + "subs r0, r0, #5\n"
+            + "pop {r2}\n"
+            + "b end\n"
+            + "data: .asciz \"ab\"\n"
+            + "end:\n";
+
+    /**
+     * Test of stepBack method, of class UndoLog.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testStepBack() throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(CODE);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        UndoLog undoLog = new UndoLog(processorUnits);
+        processor.setUndoLog(undoLog);
+        processor.run(executableCode, RunLimits.NONE);
+        RegisterFile registerFile = processorUnits.getRegisterFile();
+        int address = registerFile.getValue("r1");
+        assertEquals("Steps are wrong.", 7, undoLog.getSteps());
+
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("PC is not restored.", 6, processorUnits.getPC().getValue());
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("Register is not restored.", 0, registerFile.getValue("r2"));
+        assertEquals("Pop is not undone.", 5, processorUnits.getStack().peek());
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("Register is not restored.", 5, registerFile.getValue("r0"));
+        assertFalse("Flags are not restored.", processorUnits.getAPSR().isZero());
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("Memory is not restored.", 5, processorUnits.getMemory().get(address,
+                Size.BYTE));
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("Memory is not restored.", 'a', processorUnits.getMemory().get(address,
+                Size.BYTE));
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertTrue("Step back does not work properly.", undoLog.stepBack());
+        assertEquals("Register is not restored.", 0, registerFile.getValue("r0"));
+        assertEquals("PC is not restored.", 0, processorUnits.getPC().getValue());
+        assertFalse("Log is not empty.", undoLog.stepBack());
+
+        processorUnits.getPC().setValue(0);
+        processor.resume(executableCode, RunLimits.NONE);
+        assertEquals("Program does not run again.", 5, registerFile.getValue("r2"));
+        assertTrue("Flags are wrong.", processorUnits.getAPSR().isZero());
+    }
+
+    /**
+     * Test of reverseContinue method, of class UndoLog, with a log too small for the whole run.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testReverseContinue() throws SyntaxError, LabelError {
+        String code = "mov r0, #200\n"
+                + "loop:\n"
+                + "subs r0, r0, #1\n"
+                + "bne loop\n";
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(code);
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        UndoLog undoLog = new UndoLog(processorUnits, 1024);
+        processor.setUndoLog(undoLog);
+        processor.run(executableCode, RunLimits.NONE);
+        int steps = undoLog.getSteps();
+        assertTrue("Oldest steps are not dropped.", steps > 0 && steps < 401);
+
+        processorUnits.getBreakpoint().setPoint(2);
+        assertEquals("Reverse continue does not stop at the breakpoint.", 2,
+                undoLog.reverseContinue());
+        assertEquals("PC is wrong.", 2, processorUnits.getPC().getValue());
+        assertEquals("Register is wrong.", 1, processorUnits.getRegisterFile().getValue("r0"));
+
+        processorUnits.getBreakpoint().reset();
+        assertEquals("Reverse continue does not stop at the oldest step.", steps - 2,
+                undoLog.reverseContinue());
+        assertEquals("Steps are wrong.", 0, undoLog.getSteps());
+    }
+}
@@ -0,0 +1,84 @@
+package com.kasirgalabs.etumulator.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.kasirgalabs.etumulator.lang.Assembler;
+import com.kasirgalabs.etumulator.lang.LabelError;
+import com.kasirgalabs.etumulator.lang.Linker.ExecutableCode;
+import com.kasirgalabs.etumulator.lang.SyntaxError;
+import java.util.List;
+import org.junit.Test;
+
+public class WatchpointsTest {
+    private static final String CODE = "ldr r1, =data\n"
+            + "mov r0, #65\n"
+            + "strb r0, [r1, #1]\n"
+            + "ldrb r2, [r1]\n"
+            + "strb r0, [r1, #3]\n"
+            + "mov r3, #1\n"
+            + "b end\n"
+            + "data: .asciz \"abc\"\n"
+            + "end:\n";
+
+    /**
+     * Test of add method, of class Watchpoints.
+     *
+     * @throws SyntaxError
+     * @throws LabelError
+     */
+    @Test
+    public void testAdd() throws SyntaxError, LabelError {
+        ProcessorUnits processorUnits = new BaseProcessorUnits();
+        ExecutableCode executableCode = new Assembler(processorUnits.getMemory()).assemble(CODE);
+        int address = executableCode.getDataView().get(0).getAddress();
+        BaseProcessor processor = new BaseProcessor(processorUnits);
+        Watchpoints watchpoints = new Watchpoints(processorUnits);
+        processor.setWatchpoints(watchpoints);
+        watchpoints.add(address + 1, 1, Watchpoints.Access.WRITE, true);
+
+        RunResult result = processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Status is wrong.", RunResult.Status.BREAKPOINT, result.getStatus());
+        assertEquals("Processor does not stop after the store.", 3,
+                processorUnits.getPC().getValue());
+        List<Watchpoints.Hit> hits = watchpoints.getHits();
+        assertEquals("Hits are wrong.", 1, hits.size());
+        assertEquals("PC is wrong.", 2, hits.get(0).getPC());
+        assertEquals("Address is wrong.", address + 1, hits.get(0).getAddress());
+        assertTrue("Access is wrong.", hits.get(0).isStore());
+        assertEquals("Old value is wrong.", 'b', hits.get(0).getOldValue());
+        assertEquals("New value is wrong.", 'A', hits.get(0).getNewValue());
+
+        result = processor.resume(executableCode, RunLimits.NONE);
+        assertEquals("Status is wrong.", RunResult.Status.COMPLETED, result.getStatus());
+        assertEquals("Unwatched accesses are reported.", 1, watchpoints.getHits().size());
+
+        watchpoints.reset();
+        watchpoints.clearHits();
+        watchpoints.add(address, 4, Watchpoints.Access.READ_WRITE, false);
+        result = processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Status is wrong.", RunResult.Status.COMPLETED, result.getStatus());
+        hits = watchpoints.getHits();
+        assertEquals("Hits are wrong.", 3, hits.size());
+        assertFalse("Access is wrong.", hits.get(1).isStore());
+        assertEquals("Loaded value is wrong.", 'a', hits.get(1).getNewValue());
+        assertEquals("PC is wrong.", 4, hits.get(2).getPC());
+
+        watchpoints.reset();
+        watchpoints.clearHits();
+        watchpoints.add(address, 4, Watchpoints.Access.WRITE, false);
+        watchpoints.add(address + 3, 1, Watchpoints.Access.WRITE, true);
+        result = processor.run(executableCode, RunLimits.NONE);
+        assertEquals("Overlapping watch does not stop.", RunResult.Status.BREAKPOINT,
+                result.getStatus());
+        assertEquals("Processor does not stop after the store.", 5,
+                processorUnits.getPC().getValue());
+        assertEquals("Hits are wrong.", 2, watchpoints.getHits().size());
+
+        watchpoints.reset();
+        watchpoints.clearHits();
+        processor.run(executableCode, RunLimits.NONE);
+        assertTrue("Removed watches are reported.", watchpoints.getHits().isEmpty());
+    }
+}